@@ -58,7 +58,7 @@ public class DevToolsUtils {
     VmService vmService = app.getVmService();
     if (vmService == null) return;
 
-    vmService.addVmServiceListener(new VmServiceListener() {
+    vmService.addVmServiceListener("ToolEvent", new VmServiceListener() {
       @Override
       public void connectionOpened() { }
 
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2025 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.logging;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs one app's console work, such as formatting its Flutter errors, a task at a time and in order.
+ * <p>
+ * Tasks run on the shared application pool rather than on a thread of their own, so an app that's flooding the
+ * console only holds back its own work. The number of waiting tasks is bounded; tasks added when the queue is full are
+ * dropped, and counted. Control tasks, such as resetting state on a reload, are never dropped.
+ */
+class AppWorkQueue {
+  private static final @NotNull Logger LOG = PluginLogger.createLogger(AppWorkQueue.class);
+
+  static final int MAX_PENDING_TASKS = 1000;
+
+  /**
+   * Runs tasks one at a time, in the order they're added.
+   */
+  @NotNull private final Executor executor;
+  private final int maxPending;
+
+  private final AtomicInteger pending = new AtomicInteger();
+  private final AtomicInteger maxPendingSeen = new AtomicInteger();
+  private final AtomicLong completed = new AtomicLong();
+  private final AtomicLong dropped = new AtomicLong();
+
+  AppWorkQueue(@NotNull String name) {
+    this(AppExecutorUtil.createBoundedApplicationPoolExecutor(name, 1), MAX_PENDING_TASKS);
+  }
+
+  /**
+   * @param executor an executor that runs tasks one at a time, in the order they're added
+   */
+  AppWorkQueue(@NotNull Executor executor, int maxPending) {
+    this.executor = executor;
+    this.maxPending = maxPending;
+  }
+
+  /**
+   * Adds a task to run after the ones already added, unless the queue is full.
+   *
+   * @return whether the task was accepted
+   */
+  boolean add(@NotNull Runnable task) {
+    final int depth = pending.incrementAndGet();
+    if (depth > maxPending) {
+      pending.decrementAndGet();
+      dropped.incrementAndGet();
+      return false;
+    }
+    maxPendingSeen.accumulateAndGet(depth, Math::max);
+    execute(task);
+    return true;
+  }
+
+  /**
+   * Adds a task to run after the ones already added, even if the queue is full.
+   * <p>
+   * This is for the few tasks that keep the queue's state consistent, which are added once per event rather than once
+   * per error, so they can't flood the queue.
+   */
+  void addControl(@NotNull Runnable task) {
+    maxPendingSeen.accumulateAndGet(pending.incrementAndGet(), Math::max);
+    execute(task);
+  }
+
+  private void execute(@NotNull Runnable task) {
+    executor.execute(() -> {
+      try {
+        task.run();
+      }
+      catch (Throwable t) {
+        LOG.warn("Error running console task: " + t.getMessage());
+      }
+      finally {
+        pending.decrementAndGet();
+        completed.incrementAndGet();
+      }
+    });
+  }
+
+  /**
+   * Returns a future that completes when the tasks added so far have run.
+   */
+  @NotNull
+  CompletableFuture<Void> whenIdle() {
+    return CompletableFuture.runAsync(() -> {
+    }, executor);
+  }
+
+  /**
+   * The number of tasks accepted but not run yet.
+   */
+  @VisibleForTesting
+  int getPendingCount() {
+    return pending.get();
+  }
+
+  /**
+   * The most tasks that were waiting at once.
+   */
+  @VisibleForTesting
+  int getMaxPendingCount() {
+    return maxPendingSeen.get();
+  }
+
+  @VisibleForTesting
+  long getCompletedCount() {
+    return completed.get();
+  }
+
+  long getDroppedCount() {
+    return dropped.get();
+  }
+
+  @NotNull
+  String getStats() {
+    return completed.get() + " run, " + dropped.get() + " dropped, " + pending.get() + " pending, at most " +
+           maxPendingSeen.get() + " waiting";
+  }
+}
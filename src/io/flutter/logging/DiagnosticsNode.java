@@ -9,11 +9,13 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.intellij.openapi.util.text.StringUtil;
 import io.flutter.run.daemon.FlutterApp;
 import io.flutter.utils.CustomIconMaker;
 import io.flutter.utils.JsonUtils;
 import org.dartlang.vm.service.element.InstanceRef;
+import org.dartlang.vm.service.internal.JsonScanner;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -56,6 +58,8 @@ public class DiagnosticsNode {
                          boolean isProperty,
                          DiagnosticsNode parent) {
     this.json = json;
+    this.jsonText = null;
+    this.jsonStart = 0;
     this.isProperty = isProperty;
   }
 
@@ -64,9 +68,29 @@ public class DiagnosticsNode {
                          boolean isProperty,
                          DiagnosticsNode parent) {
     this.json = json;
+    this.jsonText = null;
+    this.jsonStart = 0;
     this.isProperty = isProperty;
   }
 
+  private DiagnosticsNode(@NotNull String jsonText, int jsonStart, boolean isProperty) {
+    this.jsonText = jsonText;
+    this.jsonStart = jsonStart;
+    this.isProperty = isProperty;
+  }
+
+  /**
+   * Returns a node that reads its members from the given JSON text on demand.
+   * <p>
+   * Nothing is parsed until a member is asked for. Then only the node's own members are decoded; its children and
+   * properties are just located in the text, and in turn decoded when they're accessed. This suits large trees that
+   * are mostly never looked at, such as the details of a structured error shown in terse form.
+   */
+  @NotNull
+  public static DiagnosticsNode fromJsonText(@NotNull String jsonText, boolean isProperty) {
+    return new DiagnosticsNode(jsonText, 0, isProperty);
+  }
+
   @Override
   public boolean equals(Object other) {
     if (other instanceof DiagnosticsNode otherNode) {
@@ -214,7 +238,7 @@ public class DiagnosticsNode {
   }
 
   public boolean hasIsQuoted() {
-    return json.has("quoted");
+    return json().has("quoted");
   }
 
   /**
@@ -231,7 +255,7 @@ public class DiagnosticsNode {
   }
 
   public boolean hasUnit() {
-    return json.has("unit");
+    return json().has("unit");
   }
 
   /**
@@ -244,7 +268,7 @@ public class DiagnosticsNode {
   }
 
   public boolean hasNumberToString() {
-    return json.has("numberToString");
+    return json().has("numberToString");
   }
 
   /**
@@ -260,7 +284,7 @@ public class DiagnosticsNode {
   }
 
   public boolean hasIfTrue() {
-    return json.has("ifTrue");
+    return json().has("ifTrue");
   }
 
   /**
@@ -276,7 +300,7 @@ public class DiagnosticsNode {
   }
 
   public boolean hasIfFalse() {
-    return json.has("ifFalse");
+    return json().has("ifFalse");
   }
 
   /**
@@ -287,10 +311,10 @@ public class DiagnosticsNode {
    * Only applies to IterableProperty.
    */
   public ArrayList<String> getValues() {
-    if (!json.has("values")) {
+    if (!json().has("values")) {
       return null;
     }
-    final JsonArray rawValues = json.getAsJsonArray("values");
+    final JsonArray rawValues = json().getAsJsonArray("values");
     final ArrayList<String> values = new ArrayList<>(rawValues.size());
     for (int i = 0; i < rawValues.size(); ++i) {
       values.add(rawValues.get(i).getAsString());
@@ -299,7 +323,7 @@ public class DiagnosticsNode {
   }
 
   public boolean hasValues() {
-    return json.has("values");
+    return json().has("values");
   }
 
   /**
@@ -316,7 +340,7 @@ public class DiagnosticsNode {
   }
 
   public boolean hasIfPresent() {
-    return json.has("ifPresent");
+    return json().has("ifPresent");
   }
 
   /**
@@ -341,7 +365,7 @@ public class DiagnosticsNode {
    * Whether a property has a default value.
    */
   public boolean hasDefaultValue() {
-    return json.has("defaultValue");
+    return json().has("defaultValue");
   }
 
   /**
@@ -374,7 +398,7 @@ public class DiagnosticsNode {
   }
 
   public boolean hasTooltip() {
-    return json.has("tooltip");
+    return json().has("tooltip");
   }
 
   /**
@@ -397,11 +421,11 @@ public class DiagnosticsNode {
    * Whether accessing the property throws an exception.
    */
   boolean hasException() {
-    return json.has("exception");
+    return json().has("exception");
   }
 
   public int getLocationId() {
-    return JsonUtils.getIntMember(json, "locationId");
+    return JsonUtils.getIntMember(json(), "locationId");
   }
 
   /**
@@ -448,9 +472,22 @@ public class DiagnosticsNode {
   }
 
   /**
-   * JSON describing the diagnostic node.
+   * JSON describing the diagnostic node; for a node read from text, only its members other than children and
+   * properties, once they've been decoded.
+   */
+  private JsonObject json;
+
+  /**
+   * The text a node created by {@link #fromJsonText} reads its members from, and where its JSON starts in it.
+   */
+  @Nullable private final String jsonText;
+  private final int jsonStart;
+
+  /**
+   * Where the elements of the node's children and properties arrays start in {@link #jsonText}, if it has them.
    */
-  private final JsonObject json;
+  private int[] childStarts;
+  private int[] propertyStarts;
 
   private CompletableFuture<ArrayList<DiagnosticsNode>> children;
 
@@ -462,15 +499,76 @@ public class DiagnosticsNode {
     return isProperty;
   }
 
+  @NotNull
+  private JsonObject json() {
+    if (json == null) {
+      decode();
+    }
+    return json;
+  }
+
+  /**
+   * Decodes the members of a node read from text, except for the elements of its children and properties.
+   */
+  private void decode() {
+    final String text = Objects.requireNonNull(jsonText);
+    final JsonObject members = new JsonObject();
+    JsonScanner.forEachMember(text, jsonStart, (name, valueStart, valueEnd) -> {
+      final char first = text.charAt(valueStart);
+      if (first == '[' && name.equals("children")) {
+        childStarts = JsonScanner.elementStarts(text, valueStart);
+      }
+      else if (first == '[' && name.equals("properties")) {
+        propertyStarts = JsonScanner.elementStarts(text, valueStart);
+      }
+      else if (first == '"') {
+        members.addProperty(name, JsonScanner.readString(text, valueStart));
+      }
+      else {
+        members.add(name, JsonParser.parseString(text.substring(valueStart, valueEnd)));
+      }
+      return true;
+    });
+    json = members;
+  }
+
+  /**
+   * Where the elements of the node's children array start in the text it's read from, or null if it isn't read from
+   * text or has no children array.
+   */
+  private int[] getChildStarts() {
+    json();
+    return childStarts;
+  }
+
+  /**
+   * Like {@link #getChildStarts}, for the node's properties array.
+   */
+  private int[] getPropertyStarts() {
+    json();
+    return propertyStarts;
+  }
+
+  /**
+   * Returns all of the node's JSON, including its children and properties.
+   */
+  @NotNull
+  private JsonObject getFullJson() {
+    if (jsonText == null) {
+      return json;
+    }
+    return JsonParser.parseString(jsonText.substring(jsonStart, JsonScanner.skipValue(jsonText, jsonStart))).getAsJsonObject();
+  }
+
   public String getStringMember(@NotNull String memberName) {
-    return JsonUtils.getStringMember(json, memberName);
+    return JsonUtils.getStringMember(json(), memberName);
   }
 
   private boolean getBooleanMember(String memberName, boolean defaultValue) {
-    if (!json.has(memberName)) {
+    if (!json().has(memberName)) {
       return defaultValue;
     }
-    final JsonElement value = json.get(memberName);
+    final JsonElement value = json().get(memberName);
     if (value instanceof JsonNull) {
       return defaultValue;
     }
@@ -478,10 +576,10 @@ public class DiagnosticsNode {
   }
 
   private DiagnosticLevel getLevelMember(String memberName, @NotNull DiagnosticLevel defaultValue) {
-    if (!json.has(memberName)) {
+    if (!json().has(memberName)) {
       return defaultValue;
     }
-    final JsonElement value = json.get(memberName);
+    final JsonElement value = json().get(memberName);
     if (value instanceof JsonNull) {
       return defaultValue;
     }
@@ -494,10 +592,10 @@ public class DiagnosticsNode {
   }
 
   private DiagnosticsTreeStyle getStyleMember(String memberName, DiagnosticsTreeStyle defaultValue) {
-    if (!json.has(memberName)) {
+    if (!json().has(memberName)) {
       return defaultValue;
     }
-    final JsonElement value = json.get(memberName);
+    final JsonElement value = json().get(memberName);
     if (value instanceof JsonNull) {
       return defaultValue;
     }
@@ -508,7 +606,7 @@ public class DiagnosticsNode {
    * Returns a reference to the value the DiagnosticsNode object is describing.
    */
   public InspectorInstanceRef getValueRef() {
-    final JsonElement valueId = json.get("valueId");
+    final JsonElement valueId = json().get("valueId");
     return new InspectorInstanceRef(valueId.isJsonNull() ? null : valueId.getAsString());
   }
 
@@ -518,7 +616,7 @@ public class DiagnosticsNode {
   }
 
   public JsonObject getValuePropertiesJson() {
-    return json.getAsJsonObject("valueProperties");
+    return json().getAsJsonObject("valueProperties");
   }
 
   public boolean hasChildren() {
@@ -551,13 +649,23 @@ public class DiagnosticsNode {
    * Check whether children are already available.
    */
   public boolean childrenReady() {
-    return json.has("children") || (children != null && children.isDone());
+    return getChildStarts() != null || json().has("children") || (children != null && children.isDone());
   }
 
   public CompletableFuture<ArrayList<DiagnosticsNode>> getChildren() {
     if (children == null) {
-      if (json.has("children")) {
-        final JsonArray jsonArray = json.get("children").getAsJsonArray();
+      final int[] childStarts = getChildStarts();
+      if (childStarts != null) {
+        final ArrayList<DiagnosticsNode> nodes = new ArrayList<>(childStarts.length);
+        for (int start : childStarts) {
+          final DiagnosticsNode child = new DiagnosticsNode(Objects.requireNonNull(jsonText), start, false);
+          child.setParent(this);
+          nodes.add(child);
+        }
+        children = CompletableFuture.completedFuture(nodes);
+      }
+      else if (json().has("children")) {
+        final JsonArray jsonArray = json().get("children").getAsJsonArray();
         final ArrayList<DiagnosticsNode> nodes = new ArrayList<>();
         for (JsonElement element : jsonArray) {
           final DiagnosticsNode child = new DiagnosticsNode(element.getAsJsonObject(), false, parent);
@@ -578,15 +686,19 @@ public class DiagnosticsNode {
    * Reference the actual Dart DiagnosticsNode object this object is referencing.
    */
   public InspectorInstanceRef getDartDiagnosticRef() {
-    final JsonElement objectId = json.get("objectId");
+    final JsonElement objectId = json().get("objectId");
     return new InspectorInstanceRef(objectId.isJsonNull() ? null : objectId.getAsString());
   }
 
   public boolean hasInlineProperties() {
-    if (!json.has("properties")) {
+    final int[] propertyStarts = getPropertyStarts();
+    if (propertyStarts != null) {
+      return propertyStarts.length > 0;
+    }
+    if (!json().has("properties")) {
       return false;
     }
-    final JsonArray jsonArray = json.get("properties").getAsJsonArray();
+    final JsonArray jsonArray = json().get("properties").getAsJsonArray();
     return !jsonArray.isEmpty();
   }
 
@@ -596,8 +708,14 @@ public class DiagnosticsNode {
   public ArrayList<DiagnosticsNode> getInlineProperties() {
     if (cachedProperties == null) {
       cachedProperties = new ArrayList<>();
-      if (json.has("properties")) {
-        final JsonArray jsonArray = json.get("properties").getAsJsonArray();
+      final int[] propertyStarts = getPropertyStarts();
+      if (propertyStarts != null) {
+        for (int start : propertyStarts) {
+          cachedProperties.add(new DiagnosticsNode(Objects.requireNonNull(jsonText), start, true));
+        }
+      }
+      else if (json().has("properties")) {
+        final JsonArray jsonArray = json().get("properties").getAsJsonArray();
         for (JsonElement element : jsonArray) {
           cachedProperties.add(new DiagnosticsNode(element.getAsJsonObject(), true, parent));
         }
@@ -625,8 +743,10 @@ public class DiagnosticsNode {
     if (node == null) {
       return false;
     }
-    final Set<Map.Entry<String, JsonElement>> entries = json.entrySet();
-    if (entries.size() != node.json.entrySet().size()) {
+    final JsonObject thisJson = getFullJson();
+    final JsonObject otherJson = node.getFullJson();
+    final Set<Map.Entry<String, JsonElement>> entries = thisJson.entrySet();
+    if (entries.size() != otherJson.entrySet().size()) {
       return false;
     }
     for (Map.Entry<String, JsonElement> entry : entries) {
@@ -634,7 +754,7 @@ public class DiagnosticsNode {
       if (Objects.equals(key, "objectId") || key.equals("valueId")) {
         continue;
       }
-      if (!Objects.equals(entry.getValue(), node.json.get(key))) {
+      if (!Objects.equals(entry.getValue(), otherJson.get(key))) {
         return false;
       }
     }
@@ -0,0 +1,301 @@
+/*
+ * Copyright 2025 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.logging;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * Recognizes repeats of the same Flutter error, such as a layout error thrown on every frame of an animation, so that
+ * they can be collapsed into a count instead of being printed in full each time.
+ * <p>
+ * Errors are identified by a {@link Fingerprint}. Each distinct error has a sliding-window counter made of one-second
+ * buckets, and a total for the session. The table of distinct errors is bounded; when it's full, the least frequent
+ * error is dropped to make room for a new one.
+ * <p>
+ * While an error keeps repeating, its count is reported at most once per interval, and only if it changed. The interval
+ * doubles after each report, so a long storm adds a few lines rather than one per second.
+ * <p>
+ * This class isn't thread safe; the console log manager only uses it from its queue.
+ */
+class ErrorStormTracker {
+  static final long WINDOW_MILLIS = 5000;
+  static final long MIN_REPORT_INTERVAL_MILLIS = 1000;
+  static final long MAX_REPORT_INTERVAL_MILLIS = 60_000;
+  private static final long BUCKET_MILLIS = 1000;
+  private static final int BUCKETS = (int)(WINDOW_MILLIS / BUCKET_MILLIS);
+
+  static final int MAX_DISTINCT_ERRORS = 100;
+
+  private static final Pattern NUMBER_PATTERN = Pattern.compile("[0-9]+(\\.[0-9]+)?");
+  private static final String RELEVANT_WIDGET_PREFIX = "The relevant error-causing widget";
+  private static final String ANOTHER_EXCEPTION_PREFIX = "Another exception was thrown:";
+
+  /**
+   * What identifies an error: its summary, the location of the widget that caused it, and a hash of its rendered
+   * text. Numbers in the summary and text are ignored, since an overflow during an animation reports a different
+   * size on each frame.
+   * <p>
+   * After the first error since a reload, the framework renders errors as just "Another exception was thrown", so the
+   * text hash of those is 0, which {@link #record} treats as matching any text.
+   */
+  record Fingerprint(@Nullable String summary, @Nullable String creatorLocation, int renderedTextHash) {
+    @NotNull
+    static Fingerprint of(@NotNull DiagnosticsNode error) {
+      String summary = null;
+      String creatorLocation = null;
+      for (DiagnosticsNode property : error.getInlineProperties()) {
+        if (summary == null && property.getLevel() == DiagnosticLevel.summary && property.getDescription() != null) {
+          summary = normalize(property.getDescription());
+        }
+        else if (creatorLocation == null && property.getName() != null && property.getName().startsWith(RELEVANT_WIDGET_PREFIX)) {
+          final List<DiagnosticsNode> children = property.getChildren().getNow(null);
+          if (children != null && !children.isEmpty()) {
+            creatorLocation = children.get(0).getDescription();
+          }
+        }
+      }
+
+      final String renderedText = error.getStringMember("renderedErrorText");
+      final int renderedTextHash =
+        renderedText == null || renderedText.startsWith(ANOTHER_EXCEPTION_PREFIX) ? 0 : normalize(renderedText).hashCode();
+      return new Fingerprint(summary, creatorLocation, renderedTextHash);
+    }
+
+    boolean matchesIgnoringText(@NotNull Fingerprint other) {
+      return Objects.equals(summary, other.summary) && Objects.equals(creatorLocation, other.creatorLocation);
+    }
+  }
+
+  /**
+   * A distinct error and how often it was seen in the session.
+   */
+  record ErrorCount(@NotNull Fingerprint fingerprint, @NotNull String title, long total, long lastSeen) {
+  }
+
+  /**
+   * A distinct error that was seen again since it was last reported, with the number of times it was seen since it was
+   * last printed in full.
+   */
+  record Repeat(@NotNull Fingerprint fingerprint, @NotNull String title, int count) {
+  }
+
+  private static final class Entry {
+    @NotNull final Fingerprint fingerprint;
+
+    /**
+     * How the error was last described, e.g. "A RenderFlex overflowed by 12 pixels on the right."
+     */
+    @NotNull String title = "";
+
+    long total;
+    long lastSeen;
+
+    /**
+     * The occurrences since the error was last printed in full, and how many of them have been reported.
+     */
+    int stormCount;
+    int reportedCount;
+
+    /**
+     * When the count may next be reported, and the interval to wait after that.
+     */
+    long nextReport;
+    long reportInterval;
+
+    /**
+     * The second each bucket counts occurrences for, and the counts.
+     */
+    final long[] bucketSeconds = new long[BUCKETS];
+    final int[] bucketCounts = new int[BUCKETS];
+
+    Entry(@NotNull Fingerprint fingerprint) {
+      this.fingerprint = fingerprint;
+    }
+
+    void add(@NotNull String title, long now) {
+      final long second = now / BUCKET_MILLIS;
+      final int bucket = (int)(second % BUCKETS);
+      if (bucketSeconds[bucket] != second) {
+        bucketSeconds[bucket] = second;
+        bucketCounts[bucket] = 0;
+      }
+      bucketCounts[bucket]++;
+      total++;
+      lastSeen = now;
+      this.title = title;
+    }
+
+    int countInWindow(long now) {
+      final long second = now / BUCKET_MILLIS;
+      int count = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        if (second - bucketSeconds[i] < BUCKETS) {
+          count += bucketCounts[i];
+        }
+      }
+      return count;
+    }
+
+    void startStorm(long now) {
+      stormCount = 1;
+      reportedCount = 1;
+      reportInterval = MIN_REPORT_INTERVAL_MILLIS;
+      nextReport = now + reportInterval;
+    }
+
+    boolean hasUnreported() {
+      return stormCount > reportedCount;
+    }
+
+    void clearWindow() {
+      Arrays.fill(bucketCounts, 0);
+      stormCount = 0;
+      reportedCount = 0;
+    }
+  }
+
+  private final int maxDistinctErrors;
+  private final Map<Fingerprint, Entry> entries = new HashMap<>();
+
+  ErrorStormTracker() {
+    this(MAX_DISTINCT_ERRORS);
+  }
+
+  ErrorStormTracker(int maxDistinctErrors) {
+    this.maxDistinctErrors = maxDistinctErrors;
+  }
+
+  /**
+   * Records an occurrence of an error, with the title to show for it.
+   *
+   * @return whether it should be printed, because the same error wasn't seen in the window; otherwise it's counted
+   * as a repeat, to be reported by {@link #takeRepeats}
+   */
+  boolean record(@NotNull Fingerprint fingerprint, @NotNull String title, long now) {
+    Entry entry = entries.get(fingerprint);
+    if (entry == null && fingerprint.renderedTextHash == 0) {
+      entry = findRecentMatch(fingerprint);
+    }
+    if (entry == null) {
+      if (entries.size() >= maxDistinctErrors) {
+        evictLeastFrequent();
+      }
+      entry = new Entry(fingerprint);
+      entries.put(fingerprint, entry);
+    }
+
+    final boolean isRepeat = entry.countInWindow(now) > 0;
+    entry.add(title, now);
+    if (isRepeat) {
+      entry.stormCount++;
+    }
+    else {
+      entry.startStorm(now);
+    }
+    return !isRepeat;
+  }
+
+  /**
+   * Returns the most recently seen error with the same summary and location, whatever its text.
+   */
+  @Nullable
+  private Entry findRecentMatch(@NotNull Fingerprint fingerprint) {
+    Entry match = null;
+    for (Entry entry : entries.values()) {
+      if (entry.fingerprint.matchesIgnoringText(fingerprint) && (match == null || entry.lastSeen > match.lastSeen)) {
+        match = entry;
+      }
+    }
+    return match;
+  }
+
+  private void evictLeastFrequent() {
+    entries.values().stream()
+      .min(Comparator.<Entry>comparingLong((entry) -> entry.total).thenComparingLong((entry) -> entry.lastSeen))
+      .ifPresent((entry) -> entries.remove(entry.fingerprint));
+  }
+
+  /**
+   * Returns the errors that were repeated since they were last reported and are due to be reported again.
+   */
+  @NotNull
+  List<Repeat> takeRepeats(long now) {
+    final List<Repeat> repeats = new ArrayList<>();
+    for (Entry entry : entries.values()) {
+      if (entry.hasUnreported() && now >= entry.nextReport) {
+        entry.reportedCount = entry.stormCount;
+        entry.reportInterval = Math.min(MAX_REPORT_INTERVAL_MILLIS, entry.reportInterval * 2);
+        entry.nextReport = now + entry.reportInterval;
+        repeats.add(new Repeat(entry.fingerprint, entry.title, entry.stormCount));
+      }
+    }
+    return repeats;
+  }
+
+  /**
+   * Returns how long until the next repeat is due to be reported, or -1 if there are no unreported repeats.
+   */
+  long getNextReportDelay(long now) {
+    long delay = -1;
+    for (Entry entry : entries.values()) {
+      if (entry.hasUnreported()) {
+        final long due = Math.max(0, entry.nextReport - now);
+        delay = delay < 0 ? due : Math.min(delay, due);
+      }
+    }
+    return delay;
+  }
+
+  /**
+   * Forgets recent occurrences, so that the next occurrence of each error is printed in full, e.g. after a reload.
+   * The session totals are kept.
+   */
+  void clearWindows() {
+    for (Entry entry : entries.values()) {
+      entry.clearWindow();
+    }
+  }
+
+  /**
+   * Returns up to <code>limit</code> of the distinct errors seen in the session, most frequent first.
+   */
+  @NotNull
+  List<ErrorCount> getTopErrors(int limit) {
+    return entries.values().stream()
+      .sorted(Comparator.<Entry>comparingLong((entry) -> entry.total).reversed())
+      .limit(limit)
+      .map((entry) -> new ErrorCount(entry.fingerprint, entry.title, entry.total, entry.lastSeen))
+      .toList();
+  }
+
+  /**
+   * Returns the text to show for an error in counts: its summary, if it has one.
+   */
+  @NotNull
+  static String getTitle(@NotNull DiagnosticsNode error) {
+    for (DiagnosticsNode property : error.getInlineProperties()) {
+      if (property.getLevel() == DiagnosticLevel.summary && property.getDescription() != null) {
+        return property.getDescription();
+      }
+    }
+    return String.valueOf(error);
+  }
+
+  @NotNull
+  private static String normalize(@NotNull String text) {
+    return NUMBER_PATTERN.matcher(text).replaceAll("#");
+  }
+}
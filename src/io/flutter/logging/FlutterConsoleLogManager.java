@@ -7,6 +7,7 @@
 package io.flutter.logging;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
@@ -27,10 +28,12 @@ import com.intellij.openapi.wm.ToolWindow;
 import com.intellij.openapi.wm.ToolWindowManager;
 import com.intellij.openapi.wm.ex.ToolWindowManagerEx;
 import com.intellij.ui.SimpleTextAttributes;
-import com.intellij.util.concurrency.QueueProcessor;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import io.flutter.FlutterUtils;
 import io.flutter.devtools.DevToolsUtils;
 import io.flutter.jxbrowser.JxBrowserManager;
+import io.flutter.logging.LogRecordPipeline.Rendered;
+import io.flutter.logging.LogRecordPipeline.Segment;
 import io.flutter.run.daemon.FlutterApp;
 import io.flutter.settings.FlutterSettings;
 import io.flutter.utils.JsonUtils;
@@ -45,11 +48,11 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Handle displaying dart:developer log messages and Flutter.Error messages in the Run and Debug
@@ -68,8 +71,17 @@ public class FlutterConsoleLogManager {
     new ConsoleViewContentType("subtle", SimpleTextAttributes.GRAY_ATTRIBUTES.toTextAttributes());
   private static final ConsoleViewContentType ERROR_CONTENT_TYPE = ConsoleViewContentType.ERROR_OUTPUT;
 
-  private static QueueProcessor<Runnable> queue;
-  private static final AtomicInteger queueLength = new AtomicInteger();
+  private static final Gson PRETTY_GSON = new GsonBuilder().setPrettyPrinting().create();
+
+  /**
+   * How long to wait for the full value of a truncated string, or for <code>toString</code> to be invoked.
+   */
+  private static final long VALUE_TIMEOUT_MILLIS = 1000;
+
+  /**
+   * How many of the most frequent errors to list when an app that had repeated errors terminates.
+   */
+  private static final int TOP_ERRORS_REPORTED = 5;
 
   /**
    * Set our preferred settings for the run console.
@@ -88,11 +100,37 @@ public class FlutterConsoleLogManager {
   @NotNull final ConsoleView console;
   @NotNull final FlutterApp app;
 
+  /**
+   * The app's log records, printed in order as they're rendered.
+   */
+  @NotNull private final LogRecordPipeline logRecords;
+
+  /**
+   * Formats and prints the app's Flutter errors, in order.
+   */
+  @NotNull private final AppWorkQueue errorQueue = new AppWorkQueue("Flutter error formatter");
+
   private int frameErrorCount = 0;
 
+  /**
+   * The app's Flutter errors, for collapsing repeats; only used from the error queue.
+   */
+  @NotNull private final ErrorStormTracker errorStorms = new ErrorStormTracker();
+
+  /**
+   * Whether a report of repeated errors is scheduled.
+   */
+  private volatile boolean repeatReportScheduled;
+
+  /**
+   * The number of errors dropped by the error queue that have been reported; only used from the error queue.
+   */
+  private long reportedDroppedErrors;
+
   public FlutterConsoleLogManager(@NotNull ConsoleView console, @NotNull FlutterApp app) {
     this.console = console;
     this.app = app;
+    this.logRecords = new LogRecordPipeline((segment) -> console.print(segment.text(), segment.contentType()));
 
     app.addStateListener(new FlutterApp.FlutterAppListener() {
       @Override
@@ -103,34 +141,43 @@ public class FlutterConsoleLogManager {
       @Override
       public void stateChanged(FlutterApp.State newState) {
         frameErrorCount = 0;
+        if (newState == FlutterApp.State.TERMINATED) {
+          errorQueue.addControl(FlutterConsoleLogManager.this::printTopErrors);
+          if (FlutterSettings.getInstance().isVerboseLogging()) {
+            LOG.info("Flutter error queue: " + errorQueue.getStats());
+          }
+        }
       }
 
       @Override
       public void notifyAppReloaded() {
         frameErrorCount = 0;
+        errorQueue.addControl(errorStorms::clearWindows);
       }
 
       @Override
       public void notifyAppRestarted() {
         frameErrorCount = 0;
+        errorQueue.addControl(errorStorms::clearWindows);
       }
     });
-
-    if (queue == null) {
-      queue = QueueProcessor.createRunnableQueueProcessor();
-    }
   }
 
   public void handleFlutterErrorEvent(@NotNull Event event) {
     try {
-      final ExtensionData extensionData = event.getExtensionData();
-      final JsonObject jsonObject = extensionData.getJson().getAsJsonObject();
-      final DiagnosticsNode diagnosticsNode = new DiagnosticsNode(jsonObject, app, false, null);
-
       if (FlutterSettings.getInstance().isShowStructuredErrors()) {
-        queueLength.incrementAndGet();
+        // Large errors arrive as text; only the parts that are printed get decoded.
+        final DiagnosticsNode diagnosticsNode;
+        if (event instanceof DeferredExtensionEvent deferredEvent) {
+          diagnosticsNode = DiagnosticsNode.fromJsonText(deferredEvent.getExtensionDataText(), false);
+        }
+        else {
+          final ExtensionData extensionData = event.getExtensionData();
+          final JsonObject jsonObject = extensionData.getJson().getAsJsonObject();
+          diagnosticsNode = new DiagnosticsNode(jsonObject, app, false, null);
+        }
 
-        queue.add(() -> {
+        errorQueue.add(() -> {
           try {
             processFlutterErrorEvent(diagnosticsNode);
           }
@@ -141,13 +188,6 @@ public class FlutterConsoleLogManager {
               LOG.warn("Error processing FlutterErrorEvent: " + t.getMessage());
             }
           }
-          finally {
-            queueLength.decrementAndGet();
-
-            synchronized (queueLength) {
-              queueLength.notifyAll();
-            }
-          }
         });
       }
     }
@@ -161,24 +201,20 @@ public class FlutterConsoleLogManager {
   }
 
   /**
-   * Wait until all pending work has completed.
+   * Wait until the app's pending Flutter errors have been printed.
    */
   public void flushFlutterErrorQueue() {
-    // If the queue isn't empty, then wait until the all the items have been processed.
-    if (queueLength.get() > 0) {
-      try {
-        while (queueLength.get() > 0) {
-          synchronized (queueLength) {
-            queueLength.wait();
-          }
-        }
+    try {
+      errorQueue.whenIdle().get();
+    }
+    catch (InterruptedException | ExecutionException e) {
+      if (e instanceof InterruptedException) {
+        Thread.currentThread().interrupt();
       }
-      catch (InterruptedException e) {
-        if (FlutterSettings.getInstance().isVerboseLogging()) {
-          LOG.error(e);
-        } else {
-          LOG.error("Exception when flushing FlutterErrorQueue: " + e.getMessage());
-        }
+      if (FlutterSettings.getInstance().isVerboseLogging()) {
+        LOG.error(e);
+      } else {
+        LOG.error("Exception when flushing FlutterErrorQueue: " + e.getMessage());
       }
     }
   }
@@ -192,12 +228,25 @@ public class FlutterConsoleLogManager {
    * Pretty print the error using the available console syling attributes.
    */
   private void processFlutterErrorEvent(@NotNull DiagnosticsNode diagnosticsNode) {
-    final String description = " " + diagnosticsNode + " ";
-
     final boolean terseError = !isFirstErrorForFrame() && !FlutterSettings.getInstance().isIncludeAllStackTraces();
 
     frameErrorCount++;
 
+    final long droppedErrors = errorQueue.getDroppedCount();
+    if (droppedErrors > reportedDroppedErrors) {
+      console.print("... " + (droppedErrors - reportedDroppedErrors) + " Flutter errors dropped\n", SUBTLE_CONTENT_TYPE);
+      reportedDroppedErrors = droppedErrors;
+    }
+
+    // Collapse an error that keeps repeating, e.g. on every frame of an animation, into a count.
+    final ErrorStormTracker.Fingerprint fingerprint = ErrorStormTracker.Fingerprint.of(diagnosticsNode);
+    if (!errorStorms.record(fingerprint, ErrorStormTracker.getTitle(diagnosticsNode), System.currentTimeMillis())) {
+      scheduleRepeatReport(ErrorStormTracker.MIN_REPORT_INTERVAL_MILLIS);
+      return;
+    }
+
+    final String description = " " + diagnosticsNode + " ";
+
     final String prefix = "========";
     final String suffix = "==";
 
@@ -246,6 +295,50 @@ public class FlutterConsoleLogManager {
     console.print(StringUtil.repeat(errorSeparatorChar, errorSeparatorLength) + "\n", TITLE_CONTENT_TYPE);
   }
 
+  private void scheduleRepeatReport(long delayMillis) {
+    if (repeatReportScheduled) {
+      return;
+    }
+    repeatReportScheduled = true;
+    AppExecutorUtil.getAppScheduledExecutorService().schedule(() -> {
+      if (!errorQueue.add(this::printRepeats)) {
+        repeatReportScheduled = false;
+      }
+    }, delayMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Prints the running count of each error storm that changed since it was last printed.
+   * <p>
+   * The console can't update a line in place, so each report is a new line; the tracker backs off between reports to
+   * keep a long storm down to a few of them.
+   */
+  private void printRepeats() {
+    repeatReportScheduled = false;
+    final long now = System.currentTimeMillis();
+    for (ErrorStormTracker.Repeat repeat : errorStorms.takeRepeats(now)) {
+      console.print(repeat.title() + " \u00d7" + repeat.count() + " so far\n", SUBTLE_CONTENT_TYPE);
+    }
+    final long delay = errorStorms.getNextReportDelay(now);
+    if (delay >= 0) {
+      scheduleRepeatReport(delay);
+    }
+  }
+
+  /**
+   * Lists the most frequent errors of the session, if any of them were repeated.
+   */
+  private void printTopErrors() {
+    final List<ErrorStormTracker.ErrorCount> topErrors = errorStorms.getTopErrors(TOP_ERRORS_REPORTED);
+    if (topErrors.isEmpty() || topErrors.get(0).total() < 2) {
+      return;
+    }
+    console.print("\nMost frequent errors:\n", TITLE_CONTENT_TYPE);
+    for (ErrorStormTracker.ErrorCount error : topErrors) {
+      console.print(String.format("%8d\u00d7  %s\n", error.total(), error.title()), NORMAL_CONTENT_TYPE);
+    }
+  }
+
   private boolean isFirstErrorForFrame() {
     return frameErrorCount == 0;
   }
@@ -418,18 +511,9 @@ public class FlutterConsoleLogManager {
   }
 
   public void handleLoggingEvent(@NotNull Event event) {
-    queue.add(() -> {
-      try {
-        processLoggingEvent(event);
-      }
-      catch (Throwable t) {
-        if (FlutterSettings.getInstance().isVerboseLogging()) {
-          LOG.warn(t);
-        } else {
-          LOG.warn("Error processing LoggingEvent: " + t.getMessage());
-        }
-      }
-    });
+    if (!logRecords.addRecord(() -> renderLoggingEvent(event)) && LOG.isDebugEnabled()) {
+      LOG.debug("Dropped a log record; " + logRecords.getPendingCount() + " records waiting to be printed");
+    }
   }
 
   private ConsoleViewContentType getContentTypeFor(DiagnosticLevel level) {
@@ -440,87 +524,109 @@ public class FlutterConsoleLogManager {
     };
   }
 
+  /**
+   * Renders a log record, fetching the full values of its message and error if they were truncated. The record is added
+   * to the app's log store once it's printed, so the store keeps the order the records were received in.
+   */
   @VisibleForTesting
-  public void processLoggingEvent(@NotNull Event event) {
+  @NotNull
+  CompletableFuture<Rendered> renderLoggingEvent(@NotNull Event event) {
     final LogRecord logRecord = event.getLogRecord();
-    if (logRecord == null) return;
+    if (logRecord == null) return CompletableFuture.completedFuture(new Rendered(List.of(), null));
 
     final VmService service = app.getVmService();
     if (service == null) {
-      return;
+      return CompletableFuture.completedFuture(new Rendered(List.of(), null));
     }
 
-    final IsolateRef isolateRef = event.getIsolate();
+    final long received = System.currentTimeMillis();
+    final String isolateId = event.getIsolate().getId();
 
     final InstanceRef message = logRecord.getMessage();
     @NotNull final InstanceRef loggerName = logRecord.getLoggerName();
 
     final String name = loggerName.getValueAsString().isEmpty() ? "log" : loggerName.getValueAsString();
     final String prefix = "[" + name + "] ";
-    final String messageStr = getFullStringValue(service, isolateRef.getId(), message);
+    final String padding = StringUtil.repeat(" ", prefix.length());
 
-    console.print(prefix, SUBTLE_CONTENT_TYPE);
-    console.print(messageStr + "\n", NORMAL_CONTENT_TYPE);
+    // Start fetching the message and error concurrently.
+    final CompletableFuture<String> messageStr = getFullStringValue(service, isolateId, message);
 
     @NotNull final InstanceRef error = logRecord.getError();
     @NotNull final InstanceRef stackTrace = logRecord.getStackTrace();
 
-    if (!error.isNull()) {
-      final String padding = StringUtil.repeat(" ", prefix.length());
-
-      if (error.getKind() == InstanceKind.String) {
-        String string = getFullStringValue(service, isolateRef.getId(), error);
+    final CompletableFuture<Segment> errorSegment;
+    if (error.isNull()) {
+      errorSegment = CompletableFuture.completedFuture(null);
+    }
+    else if (error.getKind() == InstanceKind.String) {
+      errorSegment = getFullStringValue(service, isolateId, error).thenApply((string) -> formatErrorString(string, padding));
+    }
+    else {
+      errorSegment = invokeToString(service, isolateId, error)
+        .thenApply((string) -> new Segment(padding + string + "\n", ERROR_CONTENT_TYPE));
+    }
 
-        // Handle json in the error payload.
-        boolean isJson = false;
-        try {
-          final JsonElement json = JsonUtils.parseString(string);
-          isJson = true;
+    return messageStr.thenCombine(errorSegment, (messageValue, errorValue) -> {
+      final List<Segment> segments = new ArrayList<>(4);
+      segments.add(new Segment(prefix, SUBTLE_CONTENT_TYPE));
+      segments.add(new Segment(messageValue + "\n", NORMAL_CONTENT_TYPE));
 
-          string = new GsonBuilder().setPrettyPrinting().create().toJson(json);
-          string = string.replaceAll("\n", "\n" + padding);
-        }
-        catch (JsonSyntaxException ignored) {
-        }
+      if (errorValue != null) {
+        segments.add(errorValue);
+      }
 
-        console.print(padding + string + "\n", isJson ? ConsoleViewContentType.NORMAL_OUTPUT : ERROR_CONTENT_TYPE);
+      if (!stackTrace.isNull()) {
+        final String out = stackTrace.getValueAsString() == null ? "" : stackTrace.getValueAsString().trim();
+        segments.add(new Segment(padding + out.replaceAll("\n", "\n" + padding) + "\n", ERROR_CONTENT_TYPE));
       }
-      else {
-        final CountDownLatch latch = new CountDownLatch(1);
-
-        service.invoke(
-          isolateRef.getId(), error.getId(),
-          "toString", Collections.emptyList(),
-          true,
-          new VmServiceConsumers.InvokeConsumerWrapper() {
-            @Override
-            public void received(InstanceRef response) {
-              console.print(padding + stringValueFromStringRef(response) + "\n", ERROR_CONTENT_TYPE);
-              latch.countDown();
-            }
+      return new Rendered(segments, () -> app.getLogStore().add(received, logRecord.getLevel(), name, isolateId,
+                                                                 String.valueOf(messageValue)));
+    });
+  }
 
-            @Override
-            public void noGoodResult() {
-              console.print(padding + error.getClassRef().getName() + " " + error.getId() + "\n", ERROR_CONTENT_TYPE);
-              latch.countDown();
-            }
-          });
+  @NotNull
+  private static Segment formatErrorString(@Nullable String string, @NotNull String padding) {
+    // Handle json in the error payload.
+    boolean isJson = false;
+    try {
+      final JsonElement json = JsonUtils.parseString(string);
+      isJson = true;
 
-        try {
-          latch.await();
-        }
-        catch (InterruptedException ignored) {
-        }
-      }
+      string = PRETTY_GSON.toJson(json);
+      string = string.replaceAll("\n", "\n" + padding);
+    }
+    catch (JsonSyntaxException ignored) {
     }
 
-    if (!stackTrace.isNull()) {
-      final String padding = StringUtil.repeat(" ", prefix.length());
-      final String out = stackTrace.getValueAsString() == null ? "" : stackTrace.getValueAsString().trim();
+    return new Segment(padding + string + "\n", isJson ? ConsoleViewContentType.NORMAL_OUTPUT : ERROR_CONTENT_TYPE);
+  }
 
-      console.print(
-        padding + out.replaceAll("\n", "\n" + padding) + "\n", ERROR_CONTENT_TYPE);
-    }
+  /**
+   * Invokes <code>toString</code> on the given object; falls back to its class name and id if that fails.
+   */
+  @NotNull
+  private CompletableFuture<String> invokeToString(@NotNull VmService service, @NotNull String isolateId, @NotNull InstanceRef ref) {
+    final String fallback = ref.getClassRef().getName() + " " + ref.getId();
+    final CompletableFuture<String> result = new CompletableFuture<>();
+
+    service.invoke(
+      isolateId, ref.getId(),
+      "toString", Collections.emptyList(),
+      true,
+      new VmServiceConsumers.InvokeConsumerWrapper() {
+        @Override
+        public void received(InstanceRef response) {
+          result.complete(stringValueFromStringRef(response));
+        }
+
+        @Override
+        public void noGoodResult() {
+          result.complete(fallback);
+        }
+      });
+
+    return result.completeOnTimeout(fallback, VALUE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
   }
 
   private String stringValueFromStringRef(InstanceRef ref) {
@@ -535,51 +641,41 @@ public class FlutterConsoleLogManager {
     return ref.getValueAsString() + "...";
   }
 
-  private @Nullable String getFullStringValue(@NotNull VmService service, @Nullable String isolateId, @Nullable InstanceRef ref) {
-    if (ref == null || isolateId == null) return null;
+  /**
+   * Returns the full value of the given string, or its truncated value if the full value can't be fetched in time.
+   */
+  @NotNull
+  private CompletableFuture<String> getFullStringValue(@NotNull VmService service, @Nullable String isolateId, @Nullable InstanceRef ref) {
+    if (ref == null || isolateId == null) return CompletableFuture.completedFuture(null);
 
     if (!ref.getValueAsStringIsTruncated()) {
-      return ref.getValueAsString();
+      return CompletableFuture.completedFuture(ref.getValueAsString());
     }
 
-    final CountDownLatch latch = new CountDownLatch(1);
-    final String[] result = new String[1];
+    final CompletableFuture<String> result = new CompletableFuture<>();
 
     service.getObject(isolateId, ref.getId(), 0, ref.getLength(), new GetObjectConsumer() {
       @Override
       public void onError(RPCError error) {
-        result[0] = formatTruncatedString(ref);
-        latch.countDown();
+        result.complete(formatTruncatedString(ref));
       }
 
       @Override
       public void received(Obj response) {
         if (response instanceof Instance && ((Instance)response).getKind() == InstanceKind.String) {
-          result[0] = stringValueFromStringRef((Instance)response);
+          result.complete(stringValueFromStringRef((Instance)response));
         }
         else {
-          result[0] = formatTruncatedString(ref);
+          result.complete(formatTruncatedString(ref));
         }
-
-        latch.countDown();
       }
 
       @Override
       public void received(Sentinel response) {
-        result[0] = formatTruncatedString(ref);
-        latch.countDown();
+        result.complete(formatTruncatedString(ref));
       }
     });
 
-    try {
-      // The return can be safely ignored. An unset result will just return 0.
-      //noinspection ResultOfMethodCallIgnored
-      latch.await(1, TimeUnit.SECONDS);
-    }
-    catch (InterruptedException e) {
-      // Fall through to returning an empty result.
-    }
-
-    return result[0];
+    return result.completeOnTimeout(formatTruncatedString(ref), VALUE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
   }
 }
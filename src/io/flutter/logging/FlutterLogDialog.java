@@ -0,0 +1,179 @@
+/*
+ * Copyright 2025 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.logging;
+
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.ComboBox;
+import com.intellij.openapi.ui.DialogWrapper;
+import com.intellij.ui.CollectionListModel;
+import com.intellij.ui.DocumentAdapter;
+import com.intellij.ui.SearchTextField;
+import com.intellij.ui.SimpleListCellRenderer;
+import com.intellij.ui.components.JBLabel;
+import com.intellij.ui.components.JBList;
+import com.intellij.ui.components.JBScrollPane;
+import io.flutter.utils.OpenApiUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import java.awt.*;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Shows the records in an app's {@link FlutterLogStore}, a page at a time, filtered by level and text.
+ * <p>
+ * Unlike the console, which keeps every line it prints, this view only holds the records it has paged in, and the store
+ * itself has a fixed budget.
+ */
+public class FlutterLogDialog extends DialogWrapper {
+  static final int PAGE_SIZE = 500;
+
+  private record LevelChoice(@NotNull String name, int minLevel) {
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+
+  private static final LevelChoice[] LEVELS = {
+    new LevelChoice("All levels", 0),
+    new LevelChoice("Info and above", FlutterLogStore.INFO),
+    new LevelChoice("Warning and above", 900),
+    new LevelChoice("Severe", FlutterLogStore.SEVERE),
+  };
+
+  @NotNull private final FlutterLogStore store;
+
+  @NotNull private final SearchTextField searchField = new SearchTextField(false);
+  @NotNull private final ComboBox<LevelChoice> levelCombo = new ComboBox<>(LEVELS);
+  @NotNull private final CollectionListModel<FlutterLogStore.Entry> model = new CollectionListModel<>();
+  @NotNull private final JBLabel status = new JBLabel();
+  @NotNull private final JButton loadMoreButton = new JButton("Load More");
+
+  /**
+   * Incremented for each new query, so that the results of an outdated one are ignored; only used on the EDT.
+   */
+  private int generation;
+
+  /**
+   * The sequence number to continue paging from.
+   */
+  private long nextSequence;
+
+  public FlutterLogDialog(@Nullable Project project, @NotNull FlutterLogStore store) {
+    super(project, false);
+    this.store = store;
+    setTitle("Flutter App Log");
+    setModal(false);
+    init();
+    reload();
+  }
+
+  @Nullable
+  @Override
+  protected JComponent createCenterPanel() {
+    searchField.addDocumentListener(new DocumentAdapter() {
+      @Override
+      protected void textChanged(@NotNull DocumentEvent e) {
+        reload();
+      }
+    });
+    levelCombo.addActionListener((event) -> reload());
+    loadMoreButton.addActionListener((event) -> loadPage(generation, nextSequence, false));
+
+    final JButton clearButton = new JButton("Clear");
+    clearButton.addActionListener((event) -> {
+      store.clear();
+      reload();
+    });
+
+    final JPanel filters = new JPanel(new BorderLayout(8, 0));
+    filters.add(searchField, BorderLayout.CENTER);
+    filters.add(levelCombo, BorderLayout.EAST);
+
+    final SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss.SSS");
+    final JBList<FlutterLogStore.Entry> list = new JBList<>(model);
+    list.setCellRenderer(SimpleListCellRenderer.create(
+      "", (entry) -> timeFormat.format(new Date(entry.timestamp())) + " [" + entry.loggerName() + "] " + entry.message()));
+
+    final JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 8, 0));
+    buttons.add(loadMoreButton);
+    buttons.add(clearButton);
+
+    final JPanel footer = new JPanel(new BorderLayout());
+    footer.add(status, BorderLayout.CENTER);
+    footer.add(buttons, BorderLayout.EAST);
+
+    final JPanel panel = new JPanel(new BorderLayout(0, 8));
+    panel.add(filters, BorderLayout.NORTH);
+    panel.add(new JBScrollPane(list), BorderLayout.CENTER);
+    panel.add(footer, BorderLayout.SOUTH);
+    panel.setPreferredSize(new Dimension(900, 500));
+    return panel;
+  }
+
+  @Override
+  public JComponent getPreferredFocusedComponent() {
+    return searchField;
+  }
+
+  @Override
+  protected Action @NotNull [] createActions() {
+    return new Action[]{getOKAction()};
+  }
+
+  @NotNull
+  private FlutterLogStore.Filter getFilter() {
+    final LevelChoice level = (LevelChoice)levelCombo.getSelectedItem();
+    final String text = searchField.getText().trim();
+    return FlutterLogStore.Filter.ALL
+      .withMinLevel(level == null ? 0 : level.minLevel())
+      .withSubstring(text.isEmpty() ? null : text);
+  }
+
+  /**
+   * Starts over from the oldest record kept, e.g. when the filter changes.
+   */
+  private void reload() {
+    generation++;
+    loadPage(generation, store.getFirstSequence(), true);
+  }
+
+  private void loadPage(int pageGeneration, long fromSequence, boolean replace) {
+    final FlutterLogStore.Filter filter = getFilter();
+    loadMoreButton.setEnabled(false);
+
+    // Decoding and matching messages can take a while for a full store, so query off the EDT.
+    OpenApiUtils.safeExecuteOnPooledThread(() -> {
+      final List<FlutterLogStore.Entry> page = store.query(filter, fromSequence, PAGE_SIZE);
+      final int kept = store.size();
+      OpenApiUtils.safeInvokeLater(() -> {
+        if (pageGeneration != generation || isDisposed()) return;
+
+        if (replace) {
+          model.replaceAll(page);
+        }
+        else {
+          model.add(page);
+        }
+        if (!page.isEmpty()) {
+          nextSequence = page.get(page.size() - 1).sequence() + 1;
+        }
+        else if (replace) {
+          nextSequence = fromSequence;
+        }
+        // Records may still be arriving, so more can be loaded even after a short page.
+        loadMoreButton.setEnabled(true);
+        status.setText("Showing " + model.getSize() + " matching records; " + kept + " records kept");
+      }, ModalityState.any());
+    });
+  }
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright 2025 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.logging;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The log records of a running app, kept in a ring buffer with a fixed memory budget.
+ * <p>
+ * Message text is stored as UTF-8 in a direct (off-heap) buffer; the other fields of each record are kept in parallel
+ * primitive arrays, with logger names and isolate ids interned. The buffer and arrays start small and double as records
+ * are added; when either the record or the byte budget is used up, the oldest records are overwritten.
+ * <p>
+ * Records are numbered in the order they were added, so that a view can page through them by sequence number.
+ * Timestamps never decrease, which lets a time range be found by binary search; levels and logger names are compared as
+ * ints, and only the messages of records that pass the other filters are decoded for a substring search.
+ * <p>
+ * This class is thread safe.
+ */
+public class FlutterLogStore {
+  static final int DEFAULT_MAX_RECORDS = 100_000;
+  static final int DEFAULT_MAX_MESSAGE_BYTES = 8 * 1024 * 1024;
+
+  private static final int INITIAL_RECORDS = 1024;
+  private static final int INITIAL_MESSAGE_BYTES = 64 * 1024;
+
+  /**
+   * The level of <code>app.log</code> lines; matches <code>Level.INFO</code> in <code>package:logging</code>.
+   */
+  public static final int INFO = 800;
+
+  /**
+   * The level of <code>app.log</code> error lines; matches <code>Level.SEVERE</code> in <code>package:logging</code>.
+   */
+  public static final int SEVERE = 1000;
+
+  /**
+   * A log record read back from the store.
+   */
+  public record Entry(long sequence,
+                      long timestamp,
+                      int level,
+                      @NotNull String loggerName,
+                      @Nullable String isolateId,
+                      @NotNull String message) {
+  }
+
+  /**
+   * Selects log records; each criterion is ignored when unset.
+   */
+  public record Filter(int minLevel, @Nullable String loggerName, @Nullable String substring, long fromTime, long toTime) {
+    public static final Filter ALL = new Filter(0, null, null, Long.MIN_VALUE, Long.MAX_VALUE);
+
+    @NotNull
+    public Filter withMinLevel(int level) {
+      return new Filter(level, loggerName, substring, fromTime, toTime);
+    }
+
+    @NotNull
+    public Filter withLoggerName(@Nullable String name) {
+      return new Filter(minLevel, name, substring, fromTime, toTime);
+    }
+
+    /**
+     * Matches messages containing the given text, ignoring case.
+     */
+    @NotNull
+    public Filter withSubstring(@Nullable String text) {
+      return new Filter(minLevel, loggerName, text, fromTime, toTime);
+    }
+
+    /**
+     * Matches records added in the range [from, to), in milliseconds since the epoch.
+     */
+    @NotNull
+    public Filter withTimeRange(long from, long to) {
+      return new Filter(minLevel, loggerName, substring, from, to);
+    }
+  }
+
+  private final int maxRecords;
+  private final int maxMessageBytes;
+
+  private long[] timestamps = new long[0];
+  private int[] levels = new int[0];
+  private int[] loggers = new int[0];
+  private int[] isolates = new int[0];
+
+  /**
+   * The position of each message in {@link #messages}, counted from the first byte ever written.
+   */
+  private long[] messageStarts = new long[0];
+  private int[] messageLengths = new int[0];
+
+  @NotNull private ByteBuffer messages = ByteBuffer.allocateDirect(0);
+
+  private final List<String> names = new ArrayList<>();
+  private final Map<String, Integer> nameIds = new HashMap<>();
+
+  /**
+   * The sequence numbers of the oldest record kept and of the next record to add.
+   */
+  private long firstSequence;
+  private long nextSequence;
+
+  /**
+   * The number of message bytes ever written.
+   */
+  private long bytesWritten;
+
+  public FlutterLogStore() {
+    this(DEFAULT_MAX_RECORDS, DEFAULT_MAX_MESSAGE_BYTES);
+  }
+
+  FlutterLogStore(int maxRecords, int maxMessageBytes) {
+    this.maxRecords = maxRecords;
+    this.maxMessageBytes = maxMessageBytes;
+  }
+
+  /**
+   * Adds a record, overwriting the oldest ones if needed, and returns its sequence number.
+   * <p>
+   * Messages longer than the byte budget are truncated.
+   */
+  public synchronized long add(long timestamp, int level, @NotNull String loggerName, @Nullable String isolateId, @NotNull String message) {
+    byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length > maxMessageBytes) {
+      bytes = Arrays.copyOf(bytes, maxMessageBytes);
+    }
+
+    // Make room for the record and its message, growing the arrays and buffer until they reach their budgets.
+    growRecords();
+    growMessages(bytes.length);
+    while (firstSequence < nextSequence &&
+           (nextSequence - firstSequence >= timestamps.length ||
+            bytesWritten + bytes.length - messageStarts[slot(firstSequence)] > messages.capacity())) {
+      firstSequence++;
+    }
+
+    final long sequence = nextSequence++;
+    final int slot = slot(sequence);
+    final long previous = sequence > firstSequence ? timestamps[slot(sequence - 1)] : Long.MIN_VALUE;
+    timestamps[slot] = Math.max(timestamp, previous);
+    levels[slot] = level;
+    loggers[slot] = intern(loggerName);
+    isolates[slot] = isolateId == null ? -1 : intern(isolateId);
+    messageStarts[slot] = bytesWritten;
+    messageLengths[slot] = bytes.length;
+
+    // An empty message takes no bytes, and the buffer may not have been allocated yet.
+    if (bytes.length > 0) {
+      final int start = (int)(bytesWritten % messages.capacity());
+      final int firstPart = Math.min(bytes.length, messages.capacity() - start);
+      messages.put(start, bytes, 0, firstPart);
+      messages.put(0, bytes, firstPart, bytes.length - firstPart);
+      bytesWritten += bytes.length;
+    }
+
+    return sequence;
+  }
+
+  /**
+   * Grows the record arrays if they're full and below budget. Until then the slots haven't wrapped around, so each
+   * record keeps its slot.
+   */
+  private void growRecords() {
+    final int capacity = timestamps.length;
+    if (capacity >= maxRecords || nextSequence < capacity) return;
+
+    final int newCapacity = (int)Math.min(maxRecords, Math.max(INITIAL_RECORDS, 2L * capacity));
+    timestamps = Arrays.copyOf(timestamps, newCapacity);
+    levels = Arrays.copyOf(levels, newCapacity);
+    loggers = Arrays.copyOf(loggers, newCapacity);
+    isolates = Arrays.copyOf(isolates, newCapacity);
+    messageStarts = Arrays.copyOf(messageStarts, newCapacity);
+    messageLengths = Arrays.copyOf(messageLengths, newCapacity);
+  }
+
+  /**
+   * Grows the message buffer if the next message doesn't fit and it's below budget. Until then the buffer hasn't
+   * wrapped around, so each message keeps its position.
+   */
+  private void growMessages(int length) {
+    final int capacity = messages.capacity();
+    if (capacity >= maxMessageBytes || bytesWritten + length <= capacity) return;
+
+    long newCapacity = Math.max(INITIAL_MESSAGE_BYTES, 2L * capacity);
+    while (newCapacity < bytesWritten + length) {
+      newCapacity *= 2;
+    }
+    final ByteBuffer grown = ByteBuffer.allocateDirect((int)Math.min(maxMessageBytes, newCapacity));
+    grown.put(0, messages, 0, (int)bytesWritten);
+    messages = grown;
+  }
+
+  /**
+   * Returns up to <code>limit</code> records matching the filter, starting at the given sequence number, in order.
+   */
+  @NotNull
+  public synchronized List<Entry> query(@NotNull Filter filter, long fromSequence, int limit) {
+    final List<Entry> results = new ArrayList<>();
+
+    final int logger = filter.loggerName == null ? -2 : nameIds.getOrDefault(filter.loggerName, -3);
+    if (logger == -3) return results;
+    final String substring = filter.substring == null ? null : filter.substring.toLowerCase(Locale.ROOT);
+
+    long sequence = Math.max(fromSequence, firstSequenceAtOrAfter(filter.fromTime));
+    for (; sequence < nextSequence && results.size() < limit; sequence++) {
+      final int slot = slot(sequence);
+      if (timestamps[slot] >= filter.toTime) break;
+      if (levels[slot] < filter.minLevel) continue;
+      if (logger >= 0 && loggers[slot] != logger) continue;
+
+      final String message = readMessage(slot);
+      if (substring != null && !message.toLowerCase(Locale.ROOT).contains(substring)) continue;
+
+      results.add(new Entry(sequence, timestamps[slot], levels[slot], names.get(loggers[slot]),
+                            isolates[slot] < 0 ? null : names.get(isolates[slot]), message));
+    }
+    return results;
+  }
+
+  /**
+   * Returns the sequence number of the first record kept that was added at or after the given time.
+   */
+  private long firstSequenceAtOrAfter(long time) {
+    long low = firstSequence;
+    long high = nextSequence;
+    while (low < high) {
+      final long mid = (low + high) >>> 1;
+      if (timestamps[slot(mid)] < time) {
+        low = mid + 1;
+      }
+      else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  @NotNull
+  private String readMessage(int slot) {
+    if (messageLengths[slot] == 0) return "";
+
+    final byte[] bytes = new byte[messageLengths[slot]];
+    final int start = (int)(messageStarts[slot] % messages.capacity());
+    final int firstPart = Math.min(bytes.length, messages.capacity() - start);
+    messages.get(start, bytes, 0, firstPart);
+    messages.get(0, bytes, firstPart, bytes.length - firstPart);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private int intern(@NotNull String name) {
+    return nameIds.computeIfAbsent(name, (key) -> {
+      names.add(key);
+      return names.size() - 1;
+    });
+  }
+
+  private int slot(long sequence) {
+    return (int)(sequence % timestamps.length);
+  }
+
+  /**
+   * Removes all records, e.g. when the console is cleared.
+   */
+  public synchronized void clear() {
+    firstSequence = nextSequence;
+  }
+
+  /**
+   * The sequence number of the oldest record kept.
+   */
+  public synchronized long getFirstSequence() {
+    return firstSequence;
+  }
+
+  /**
+   * The sequence number the next record will get.
+   */
+  public synchronized long getNextSequence() {
+    return nextSequence;
+  }
+
+  /**
+   * The number of records kept.
+   */
+  public synchronized int size() {
+    return (int)(nextSequence - firstSequence);
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2025 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.logging;
+
+import com.intellij.execution.ui.ConsoleViewContentType;
+import com.intellij.openapi.diagnostic.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Prints an app's log records in the order they were received, while the values they need from the VM are fetched
+ * concurrently.
+ * <p>
+ * Each record is rendered asynchronously into the segments to print; a record is printed once it and every record
+ * before it have been rendered, so a slow record holds back only the records of its own app. When too many records are
+ * waiting, new ones are dropped, and a marker saying how many were suppressed is printed in their place.
+ */
+class LogRecordPipeline {
+  private static final @NotNull Logger LOG = PluginLogger.createLogger(LogRecordPipeline.class);
+
+  static final int MAX_PENDING_RECORDS = 1000;
+
+  /**
+   * A piece of text to print to the console.
+   */
+  record Segment(@NotNull String text, @NotNull ConsoleViewContentType contentType) {
+  }
+
+  /**
+   * A rendered record: the segments to print, and an action to run just after they're printed.
+   */
+  record Rendered(@NotNull List<Segment> segments, @Nullable Runnable whenPrinted) {
+  }
+
+  @NotNull private final Consumer<Segment> printer;
+  private final int maxPending;
+
+  private final AtomicInteger pending = new AtomicInteger();
+
+  /**
+   * The number of records dropped since the last one was accepted; guarded by this.
+   */
+  private int suppressed;
+
+  /**
+   * Completes when the last accepted record has been printed; guarded by this.
+   */
+  @NotNull private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+
+  LogRecordPipeline(@NotNull Consumer<Segment> printer) {
+    this(printer, MAX_PENDING_RECORDS);
+  }
+
+  LogRecordPipeline(@NotNull Consumer<Segment> printer, int maxPending) {
+    this.printer = printer;
+    this.maxPending = maxPending;
+  }
+
+  /**
+   * Adds a record to print after the ones already added, unless too many are waiting.
+   * <p>
+   * The renderer is only called if the record is accepted. It shouldn't block; it should start any requests the record
+   * needs and return a future for the rendered record. The records' actions, such as storing them, run in the order the
+   * records were added.
+   *
+   * @return whether the record was accepted
+   */
+  synchronized boolean addRecord(@NotNull Supplier<CompletableFuture<Rendered>> renderer) {
+    if (pending.get() >= maxPending) {
+      suppressed++;
+      return false;
+    }
+    pending.incrementAndGet();
+
+    final int suppressedBefore = suppressed;
+    suppressed = 0;
+
+    CompletableFuture<Rendered> rendered;
+    try {
+      rendered = renderer.get();
+    }
+    catch (Throwable t) {
+      rendered = CompletableFuture.failedFuture(t);
+    }
+
+    tail = tail.thenCombine(rendered.handle((record, error) -> {
+      if (error != null) {
+        LOG.warn("Error rendering log record: " + error.getMessage());
+        return new Rendered(List.of(), null);
+      }
+      return record;
+    }), (ignored, record) -> {
+      try {
+        if (suppressedBefore > 0) {
+          printer.accept(new Segment("... " + suppressedBefore + " log records suppressed\n", ConsoleViewContentType.SYSTEM_OUTPUT));
+        }
+        for (Segment segment : record.segments()) {
+          printer.accept(segment);
+        }
+        if (record.whenPrinted() != null) {
+          record.whenPrinted().run();
+        }
+      }
+      catch (Throwable t) {
+        LOG.warn("Error printing log record: " + t.getMessage());
+      }
+      finally {
+        pending.decrementAndGet();
+      }
+      return null;
+    });
+    return true;
+  }
+
+  /**
+   * The number of records accepted but not printed yet.
+   */
+  int getPendingCount() {
+    return pending.get();
+  }
+}
@@ -16,6 +16,7 @@ import com.intellij.psi.search.FilenameIndex;
 import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.search.GlobalSearchScopesCore;
 import com.intellij.util.PathUtil;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import com.intellij.xdebugger.XSourcePosition;
 import com.jetbrains.lang.dart.analyzer.DartAnalysisServerService;
 import com.jetbrains.lang.dart.util.DartResolveUtil;
@@ -31,13 +32,16 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Converts positions between Dart files in Observatory and local Dart files.
@@ -94,13 +98,23 @@ public class FlutterPositionMapper implements DartVmServiceDebugProcess.Position
    * Initialized shortly after connecting.
    */
   @Nullable
-  private String remoteSourceRoot;
+  private volatile String remoteSourceRoot;
 
   // TODO(skybrian) clear the cache at hot restart? (Old cache entries seem unlikely to be used again.)
   /**
    * A cache containing each file version downloaded from Observatory. The key is an isolate id.
    */
-  private final Map<String, ObservatoryFile.Cache> fileCache = new HashMap<>();
+  private final Map<String, ObservatoryFile.Cache> fileCache = new ConcurrentHashMap<>();
+
+  /**
+   * The snapshots of the scripts downloaded from Observatory, shared by all isolates.
+   */
+  private final ScriptSourceCache snapshots = new ScriptSourceCache();
+
+  /**
+   * The local files that Observatory URIs resolve to, and the reverse.
+   */
+  private final RemoteUriIndex uriIndex = new RemoteUriIndex();
 
   public FlutterPositionMapper(@NotNull Project project,
                                @NotNull VirtualFile sourceRoot,
@@ -134,14 +148,51 @@ public class FlutterPositionMapper implements DartVmServiceDebugProcess.Position
     // This happens when there is more than one isolate.
     // Currently it overwrites the previous value.
 
-    // Calculate the remote source root.
+    final List<String> remoteUris = new ArrayList<>();
     for (LibraryRef library : libraries) {
-      final String remoteUri = library.getUri();
-      if (remoteUri.startsWith(DartUrlResolver.DART_PREFIX)) continue;
-      if (remoteUri.startsWith(DartUrlResolver.PACKAGE_PREFIX)) continue;
-      remoteSourceRoot = findRemoteSourceRoot(remoteUri);
-      if (remoteSourceRoot != null) return;
+      remoteUris.add(library.getUri());
     }
+
+    // Calculate the remote source root, looking up the candidate files in a single read action.
+    final String previousRoot = remoteSourceRoot;
+    remoteSourceRoot = OpenApiUtils.safeRunReadAction(() -> {
+      for (String remoteUri : remoteUris) {
+        if (remoteUri.startsWith(DartUrlResolver.DART_PREFIX)) continue;
+        if (remoteUri.startsWith(DartUrlResolver.PACKAGE_PREFIX)) continue;
+        final String root = findRemoteSourceRoot(remoteUri);
+        if (root != null) return root;
+      }
+      return null;
+    });
+    if (!Objects.equals(previousRoot, remoteSourceRoot)) {
+      uriIndex.clear();
+    }
+
+    // Resolve the libraries in the background, so that mapping the frames of a stack later on doesn't need to. This
+    // only maps URIs locally; a library that can't be mapped is left out of the index, so that mapping a frame in it
+    // can still ask the analysis server.
+    final String root = remoteSourceRoot;
+    AppExecutorUtil.getAppExecutorService().execute(() -> {
+      for (String remoteUri : remoteUris) {
+        if (project == null || project.isDisposed() || !Objects.equals(root, remoteSourceRoot)) return;
+        //noinspection OptionalAssignedToNull
+        if (remoteUri.startsWith(DartUrlResolver.DART_PREFIX) || uriIndex.peek(remoteUri) != null) continue;
+        final VirtualFile local = OpenApiUtils.safeRunReadAction(() -> findLocalFileWithoutAnalyzer(remoteUri));
+        if (local != null) {
+          uriIndex.put(remoteUri, local);
+        }
+      }
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Indexed " + remoteUris.size() + " libraries: " + uriIndex.getStats());
+      }
+    });
+  }
+
+  /**
+   * Called after a hot reload, which may have loaded new libraries.
+   */
+  public void onScriptsReloaded() {
+    uriIndex.forgetUnresolved();
   }
 
   /**
@@ -151,15 +202,14 @@ public class FlutterPositionMapper implements DartVmServiceDebugProcess.Position
    * <p>
    * Returns null if there isn't a unique result.
    */
+  @Nullable
   private String findRemoteSourceRoot(String remotePath) {
     if (project == null || project.isDisposed()) return null;
 
     // Find files with the same filename (matching the suffix after the last slash).
-    final PsiFile[] localFilesWithSameName = OpenApiUtils.safeRunReadAction(() -> {
-      final String remoteFileName = PathUtil.getFileName(remotePath);
-      final GlobalSearchScope scope = GlobalSearchScopesCore.directoryScope(project, sourceRoot, true);
-      return FilenameIndex.getFilesByName(project, remoteFileName, scope);
-    });
+    final String remoteFileName = PathUtil.getFileName(remotePath);
+    final GlobalSearchScope scope = GlobalSearchScopesCore.directoryScope(project, sourceRoot, true);
+    final PsiFile[] localFilesWithSameName = FilenameIndex.getFilesByName(project, remoteFileName, scope);
 
     String match = null;
     for (PsiFile psiFile : localFilesWithSameName) {
@@ -228,6 +278,9 @@ public class FlutterPositionMapper implements DartVmServiceDebugProcess.Position
       }
     }
 
+    // The URIs that Observatory is known to use for this file.
+    results.addAll(uriIndex.getRemoteUris(file));
+
     return results;
   }
 
@@ -266,17 +319,56 @@ public class FlutterPositionMapper implements DartVmServiceDebugProcess.Position
       return null;
     }
 
-    final VirtualFile local = findLocalFile(scriptUri, fileFuture);
-
-    final ObservatoryFile.Cache cache =
-      fileCache.computeIfAbsent(isolateId, (id) -> new ObservatoryFile.Cache(id, scriptProvider));
+    final VirtualFile local = findIndexedLocalFile(scriptUri, fileFuture);
 
-    final ObservatoryFile remote = cache.downloadOrGet(scriptId, local == null);
+    // The script provider gives up on scripts the VM doesn't send in time, so this wait is bounded.
+    scriptProvider.assertWaitAllowed();
+    final ObservatoryFile remote = getFileCache(isolateId, scriptProvider).download(scriptId, local == null).join();
     if (remote == null) return null;
 
     return remote.createPosition(local, tokenPos);
   }
 
+  public void prefetchScripts(@NotNull final String isolateId, @NotNull final Collection<ScriptRef> scripts) {
+    if (scriptProvider == null) return;
+
+    final ObservatoryFile.Cache cache = getFileCache(isolateId, scriptProvider);
+    for (ScriptRef script : scripts) {
+      // Snapshots are only needed for scripts without a local file; if that isn't known yet, the snapshot will be
+      // downloaded when the position is looked up.
+      final Optional<VirtualFile> local = uriIndex.peek(script.getUri());
+      //noinspection OptionalAssignedToNull
+      cache.download(script.getId(), local != null && local.isEmpty());
+    }
+  }
+
+  @NotNull
+  private ObservatoryFile.Cache getFileCache(@NotNull String isolateId, @NotNull DartVmServiceDebugProcess.ScriptProvider provider) {
+    return fileCache.computeIfAbsent(isolateId, (id) -> new ObservatoryFile.Cache(id, provider, snapshots));
+  }
+
+  /**
+   * Finds the local file corresponding to a script in Observatory, consulting the index before resolving the URI.
+   */
+  @Nullable
+  private VirtualFile findIndexedLocalFile(@NotNull String uri, @Nullable CompletableFuture<String> fileFuture) {
+    final Optional<VirtualFile> indexed = uriIndex.get(uri);
+    //noinspection OptionalAssignedToNull
+    if (indexed != null) {
+      return indexed.orElse(null);
+    }
+
+    final VirtualFile local = findLocalFile(uri, fileFuture);
+    uriIndex.put(uri, local);
+    return local;
+  }
+
+  @VisibleForTesting
+  @NotNull
+  RemoteUriIndex getUriIndex() {
+    return uriIndex;
+  }
+
   @VisibleForTesting
   @Nullable
   String getRemoteSourceRoot() {
@@ -293,45 +385,54 @@ public class FlutterPositionMapper implements DartVmServiceDebugProcess.Position
    */
   @Nullable
   protected VirtualFile findLocalFile(@NotNull String uri, CompletableFuture<String> fileFuture) {
-    return OpenApiUtils.safeRunReadAction(() -> {
-      // This can be a remote file or URI.
-      if (remoteSourceRoot != null && uri.startsWith(remoteSourceRoot)) {
-        final String rootUri = StringUtil.trimEnd(resolver.getDartUrlForFile(sourceRoot), '/');
-        final String suffix = uri.substring(remoteSourceRoot.length());
-        return resolver.findFileByDartUrl(rootUri + suffix);
-      }
-
-      if (remoteBaseUri != null && uri.startsWith(remoteBaseUri)) {
-        final String rootUri = StringUtil.trimEnd(resolver.getDartUrlForFile(sourceRoot), '/');
-        final String suffix = uri.substring(remoteBaseUri.length());
-        return resolver.findFileByDartUrl(rootUri + suffix);
-      }
-
-      final String remoteUri;
-      if (uri.startsWith("/")) {
-        // Convert a file path to a file: uri.
-        remoteUri = new File(uri).toURI().toString();
-      }
-      else {
-        remoteUri = uri;
-      }
-
-      // See if the analysis server can resolve the URI.
-      if (analyzer != null && !isDartPatchUri(remoteUri)) {
+    // See if the analysis server can resolve the URI. This waits for the server, so it's done outside a read action.
+    if (analyzer != null && !isUnderRemoteRoot(uri)) {
+      final String remoteUri = toFileUri(uri);
+      if (!isDartPatchUri(remoteUri)) {
         final String path = analyzer.getAbsolutePath(remoteUri);
         if (path != null) {
-          if (path.startsWith("file://")) {
-            LocalFileSystem.getInstance().findFileByPath(path.substring(7));
-          }
-          else {
-            LocalFileSystem.getInstance().findFileByPath(path);
-          }
+          final VirtualFile local = LocalFileSystem.getInstance().findFileByPath(path.startsWith("file://") ? path.substring(7) : path);
+          if (local != null) return local;
         }
       }
+    }
 
-      // Otherwise, assume no mapping is needed and see if we can resolve it locally.
-      return resolver.findFileByDartUrl(remoteUri);
-    });
+    return OpenApiUtils.safeRunReadAction(() -> findLocalFileWithoutAnalyzer(uri));
+  }
+
+  /**
+   * Finds the local file for a script in Observatory using the remote roots and the URL resolver. Must be called in a
+   * read action.
+   */
+  @Nullable
+  private VirtualFile findLocalFileWithoutAnalyzer(@NotNull String uri) {
+    // This can be a remote file or URI.
+    if (remoteSourceRoot != null && uri.startsWith(remoteSourceRoot)) {
+      final String rootUri = StringUtil.trimEnd(resolver.getDartUrlForFile(sourceRoot), '/');
+      final String suffix = uri.substring(remoteSourceRoot.length());
+      return resolver.findFileByDartUrl(rootUri + suffix);
+    }
+
+    if (remoteBaseUri != null && uri.startsWith(remoteBaseUri)) {
+      final String rootUri = StringUtil.trimEnd(resolver.getDartUrlForFile(sourceRoot), '/');
+      final String suffix = uri.substring(remoteBaseUri.length());
+      return resolver.findFileByDartUrl(rootUri + suffix);
+    }
+
+    // Otherwise, assume no mapping is needed and see if we can resolve it locally.
+    return resolver.findFileByDartUrl(toFileUri(uri));
+  }
+
+  private boolean isUnderRemoteRoot(@NotNull String uri) {
+    return (remoteSourceRoot != null && uri.startsWith(remoteSourceRoot)) || (remoteBaseUri != null && uri.startsWith(remoteBaseUri));
+  }
+
+  /**
+   * Converts a file path to a file: uri; other URIs are returned unchanged.
+   */
+  @NotNull
+  private static String toFileUri(@NotNull String uri) {
+    return uri.startsWith("/") ? new File(uri).toURI().toString() : uri;
   }
 
   @NotNull
@@ -350,6 +451,10 @@ public class FlutterPositionMapper implements DartVmServiceDebugProcess.Position
   }
 
   public void shutdown() {
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Remote URI index: " + uriIndex.getStats());
+      LOG.debug("Script sources: " + snapshots.getStats());
+    }
     if (analyzer != null) {
       analyzer.close();
     }
@@ -5,23 +5,23 @@
  */
 package io.flutter.run;
 
+import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.testFramework.LightVirtualFile;
-import com.intellij.util.PathUtil;
 import com.intellij.xdebugger.XDebuggerUtil;
 import com.intellij.xdebugger.XSourcePosition;
-import com.jetbrains.lang.dart.DartFileType;
+import io.flutter.logging.PluginLogger;
 import io.flutter.vmService.DartVmServiceDebugProcess;
-import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
-import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import org.dartlang.vm.service.element.Script;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * A specific version of a Dart file, as downloaded from Observatory.
@@ -33,11 +33,19 @@ import java.util.Map;
  * See
  */
 class ObservatoryFile {
+  private static final @NotNull Logger LOG = PluginLogger.createLogger(ObservatoryFile.class);
+
   /**
    * Maps an observatory token id to its line and column.
    */
   @Nullable
-  private final Int2ObjectMap<Position> positionMap;
+  private final TokenPositionTable positionTable;
+
+  /**
+   * The script's URI, shared by all its versions.
+   */
+  @NotNull
+  private final String uri;
 
   /**
    * User-visible source code downloaded from Observatory.
@@ -50,15 +58,19 @@ class ObservatoryFile {
   @Nullable
   private final LightVirtualFile snapshot;
 
-  ObservatoryFile(@NotNull Script script, boolean wantSnapshot) {
+  /**
+   * @param snapshots the cache to take the snapshot of the script's source from, or null if no snapshot is wanted
+   */
+  ObservatoryFile(@NotNull Script script, @Nullable ScriptSourceCache snapshots) {
     final @Nullable List<List<Integer>> tokenPosTable = script.getTokenPosTable();
     if (tokenPosTable != null) {
-      positionMap = createPositionMap(tokenPosTable);
+      positionTable = TokenPositionTable.create(tokenPosTable);
     }
     else {
-      positionMap = null;
+      positionTable = null;
     }
-    snapshot = wantSnapshot ? createSnapshot(script) : null;
+    uri = script.getUri();
+    snapshot = snapshots == null ? null : snapshots.getSnapshot(uri, script.getSource());
   }
 
   boolean hasSnapshot() {
@@ -76,61 +88,38 @@ class ObservatoryFile {
     final VirtualFile fileToUse = local == null ? snapshot : local;
     if (fileToUse == null) return null;
 
-    if (positionMap == null) {
+    if (positionTable == null) {
       return null;
     }
 
-    final Position pos = positionMap.get(tokenPos);
-    if (pos == null) {
+    final int index = positionTable.indexOf(tokenPos);
+    if (index < 0) {
       return XDebuggerUtil.getInstance().createPositionByOffset(fileToUse, 0);
     }
-    return XDebuggerUtil.getInstance().createPosition(fileToUse, pos.line, pos.column);
+    return XDebuggerUtil.getInstance().createPosition(fileToUse, positionTable.getLine(index), positionTable.getColumn(index));
   }
 
   /**
-   * Unpacks a position token table into a map from position id to Position.
-   * <p>
-   * <p>See <a href="https://github.com/dart-lang/vm_service_drivers/blob/master/dart/tool/service.md#scrip">docs</a>.
+   * The approximate number of bytes retained by this file.
    */
-  @NotNull
-  private static Int2ObjectMap<Position> createPositionMap(@NotNull final List<List<Integer>> table) {
-    final Int2ObjectMap<Position> result = new Int2ObjectOpenHashMap<>();
-
-    for (List<Integer> line : table) {
-      // Each line consists of a line number followed by (tokenId, columnNumber) pairs.
-      // Both lines and columns are one-based.
-      final Iterator<Integer> items = line.iterator();
-
-      // Convert line number from one-based to zero-based.
-      final int lineNumber = Math.max(0, items.next() - 1);
-      while (items.hasNext()) {
-        final int tokenId = items.next();
-        // Convert column from one-based to zero-based.
-        final int column = Math.max(0, items.next() - 1);
-        result.put(tokenId, new Position(lineNumber, column));
-      }
-    }
-    return result;
-  }
-
-  @Nullable
-  private static LightVirtualFile createSnapshot(@NotNull Script script) {
-    // LightVirtualFiles have no parent directory, so just use the filename.
-    final String filename = PathUtil.getFileName(script.getUri());
-    final String scriptSource = script.getSource();
-    if (scriptSource == null) {
-      return null;
-    }
-
-    final LightVirtualFile snapshot = new LightVirtualFile(filename, DartFileType.INSTANCE, scriptSource);
-    snapshot.setWritable(false);
-    return snapshot;
+  long getWeight() {
+    final long tableWeight = positionTable == null ? 0 : positionTable.getWeight();
+    final long snapshotWeight = snapshot == null ? 0 : (long)snapshot.getContent().length() * Character.BYTES;
+    return tableWeight + snapshotWeight;
   }
 
   /**
    * A per-isolate cache of Observatory files.
+   * <p>
+   * Only the latest downloaded version of each script is kept: after a hot reload, the entry for the previous version
+   * is replaced. The cache is also bounded by the approximate memory its files retain, evicting the least recently
+   * used files first.
+   * <p>
+   * Downloads are asynchronous, and concurrent requests for the same script share a single download.
    */
   static class Cache {
+    static final long MAX_WEIGHT = 64L * 1024 * 1024;
+
     @NotNull
     private final String isolateId;
 
@@ -138,47 +127,169 @@ class ObservatoryFile {
     private final DartVmServiceDebugProcess.ScriptProvider provider;
 
     /**
-     * A cache containing each file downloaded from Observatory. The key is a script id.
-     * Each version of a file is stored as a separate entry.
+     * The snapshots of script sources, shared with the caches of the app's other isolates.
+     */
+    @NotNull
+    private final ScriptSourceCache snapshots;
+
+    private final long maxWeight;
+
+    /**
+     * A cache containing files downloaded from Observatory, in access order. The key is a script id.
+     */
+    private final LinkedHashMap<String, ObservatoryFile> versions = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The id of the latest version of each script, by URI.
      */
-    private final Map<String, ObservatoryFile> versions = new HashMap<>();
+    private final Map<String, String> latestVersions = new HashMap<>();
+
+    /**
+     * The downloads in progress, by script id.
+     */
+    private final Map<String, Download> downloads = new HashMap<>();
+
+    private record Download(@NotNull CompletableFuture<ObservatoryFile> future, boolean withSnapshot) {
+    }
+
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    Cache(@NotNull String isolateId,
+          @NotNull DartVmServiceDebugProcess.ScriptProvider provider,
+          @NotNull ScriptSourceCache snapshots) {
+      this(isolateId, provider, snapshots, MAX_WEIGHT);
+    }
 
-    Cache(@NotNull String isolateId, @NotNull DartVmServiceDebugProcess.ScriptProvider provider) {
+    Cache(@NotNull String isolateId,
+          @NotNull DartVmServiceDebugProcess.ScriptProvider provider,
+          @NotNull ScriptSourceCache snapshots,
+          long maxWeight) {
       this.isolateId = isolateId;
       this.provider = provider;
+      this.snapshots = snapshots;
+      this.maxWeight = maxWeight;
     }
 
     /**
      * Returns an observatory file, optionally containing a snapshot.
      * <p>
-     * Downloads it if not in the cache.
+     * Downloads it if not in the cache, or joins a download that's already in progress.
      * <p>
-     * Returns null if not available.
+     * The result is null if not available.
      */
-    @Nullable
-    ObservatoryFile downloadOrGet(@NotNull String scriptId, boolean wantSnapshot) {
-      final ObservatoryFile cached = this.versions.get(scriptId);
-      if (cached != null && (cached.hasSnapshot() || !wantSnapshot)) {
-        return cached;
+    @NotNull
+    CompletableFuture<ObservatoryFile> download(@NotNull String scriptId, boolean wantSnapshot) {
+      final CompletableFuture<ObservatoryFile> file;
+      synchronized (this) {
+        final ObservatoryFile cached = versions.get(scriptId);
+        final Download pending = downloads.get(scriptId);
+        if (cached != null && (cached.hasSnapshot() || !wantSnapshot)) {
+          hits++;
+          file = CompletableFuture.completedFuture(cached);
+        }
+        else if (pending != null && (pending.withSnapshot || !wantSnapshot)) {
+          hits++;
+          file = pending.future;
+        }
+        else {
+          misses++;
+          file = startDownload(scriptId, wantSnapshot);
+        }
+      }
+
+      if (!wantSnapshot) {
+        return file;
+      }
+      return file.thenApply((downloaded) -> downloaded != null && downloaded.hasSnapshot() ? downloaded : null);
+    }
+
+    @NotNull
+    private synchronized CompletableFuture<ObservatoryFile> startDownload(@NotNull String scriptId, boolean withSnapshot) {
+      final CompletableFuture<ObservatoryFile> future = provider.getScript(isolateId, scriptId).handle(
+        (script, error) -> script == null ? null : put(scriptId, new ObservatoryFile(script, withSnapshot ? snapshots : null)));
+
+      final Download download = new Download(future, withSnapshot);
+      downloads.put(scriptId, download);
+      // If the download has already finished, this runs immediately.
+      future.whenComplete((downloaded, error) -> {
+        synchronized (this) {
+          downloads.remove(scriptId, download);
+        }
+      });
+      return future;
+    }
+
+    /**
+     * Adds a downloaded file to the cache, and returns the file to use for the script.
+     */
+    @NotNull
+    private synchronized ObservatoryFile put(@NotNull String scriptId, @NotNull ObservatoryFile file) {
+      final ObservatoryFile existing = versions.get(scriptId);
+      if (existing != null && existing.hasSnapshot() && !file.hasSnapshot()) {
+        // A download with a snapshot finished first.
+        return existing;
       }
 
-      final Script script = provider.downloadScript(isolateId, scriptId);
-      if (script == null) return null;
+      remove(scriptId);
+      versions.put(scriptId, file);
+      weight += file.getWeight();
 
-      final ObservatoryFile downloaded = new ObservatoryFile(script, wantSnapshot);
-      this.versions.put(scriptId, downloaded);
+      // A hot reload creates a new version of the script with a different id; the previous one is no longer needed.
+      final String previousVersion = latestVersions.put(file.uri, scriptId);
+      if (previousVersion != null && !previousVersion.equals(scriptId) && remove(previousVersion)) {
+        evictions++;
+      }
 
-      if (wantSnapshot && !downloaded.hasSnapshot()) {
-        return null;
+      final Iterator<Map.Entry<String, ObservatoryFile>> eldest = versions.entrySet().iterator();
+      while (weight > maxWeight && versions.size() > 1 && eldest.hasNext()) {
+        final Map.Entry<String, ObservatoryFile> entry = eldest.next();
+        eldest.remove();
+        weight -= entry.getValue().getWeight();
+        latestVersions.remove(entry.getValue().uri, entry.getKey());
+        evictions++;
       }
-      return downloaded;
+
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Observatory file cache for " + isolateId + ": " + getStats());
+      }
+      return file;
     }
-  }
 
-  /**
-   * @param line   zero-based
-   * @param column zero-based
-   */
-  private record Position(int line, int column) {
+    private boolean remove(@NotNull String scriptId) {
+      final ObservatoryFile removed = versions.remove(scriptId);
+      if (removed == null) return false;
+      weight -= removed.getWeight();
+      return true;
+    }
+
+    /**
+     * The number of files in the cache.
+     */
+    synchronized int size() {
+      return versions.size();
+    }
+
+    /**
+     * The approximate number of bytes retained by the cache.
+     */
+    synchronized long getWeight() {
+      return weight;
+    }
+
+    /**
+     * The fraction of lookups that were answered without downloading, or 0 if there were none.
+     */
+    synchronized double getHitRate() {
+      final long lookups = hits + misses;
+      return lookups == 0 ? 0 : (double)hits / lookups;
+    }
+
+    @NotNull
+    synchronized String getStats() {
+      return versions.size() + " files, " + weight / 1024 + " KB, " + hits + " hits, " + misses + " misses, " + evictions + " evictions";
+    }
   }
 }
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2025 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.run;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers which local file each script URI in Observatory resolved to, and the reverse.
+ * <p>
+ * Resolving a URI needs a read action and queries the URL resolver and analysis server, and a stack typically
+ * contains the same few files many times over. URIs that didn't resolve to a local file, such as most SDK libraries,
+ * are remembered too, until {@link #forgetUnresolved} is called.
+ * <p>
+ * This class is thread safe.
+ */
+class RemoteUriIndex {
+  /**
+   * The local file for each remote URI; empty if there's none.
+   */
+  private final Map<String, Optional<VirtualFile>> localFiles = new ConcurrentHashMap<>();
+
+  /**
+   * The remote URIs known to resolve to each local file.
+   */
+  private final Map<VirtualFile, Set<String>> remoteUris = new ConcurrentHashMap<>();
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * Returns the local file that the URI was resolved to, an empty optional if it's known not to resolve to one, or
+   * null if it hasn't been resolved yet.
+   */
+  @SuppressWarnings("OptionalAssignedToNull")
+  @Nullable
+  Optional<VirtualFile> get(@NotNull String remoteUri) {
+    final Optional<VirtualFile> local = localFiles.get(remoteUri);
+    if (local == null || (local.isPresent() && !local.get().isValid())) {
+      misses.incrementAndGet();
+      return null;
+    }
+    hits.incrementAndGet();
+    return local;
+  }
+
+  /**
+   * Like {@link #get}, but doesn't count towards the hit rate.
+   */
+  @SuppressWarnings("OptionalAssignedToNull")
+  @Nullable
+  Optional<VirtualFile> peek(@NotNull String remoteUri) {
+    final Optional<VirtualFile> local = localFiles.get(remoteUri);
+    return local == null || (local.isPresent() && !local.get().isValid()) ? null : local;
+  }
+
+  /**
+   * Records what the given URI resolved to.
+   */
+  void put(@NotNull String remoteUri, @Nullable VirtualFile local) {
+    final Optional<VirtualFile> previous = localFiles.put(remoteUri, Optional.ofNullable(local));
+    if (previous != null && previous.isPresent() && !previous.get().equals(local)) {
+      final Set<String> uris = remoteUris.get(previous.get());
+      if (uris != null) {
+        uris.remove(remoteUri);
+      }
+    }
+    if (local != null) {
+      remoteUris.computeIfAbsent(local, (file) -> ConcurrentHashMap.newKeySet()).add(remoteUri);
+    }
+  }
+
+  /**
+   * Returns the remote URIs that are known to resolve to the given file.
+   */
+  @NotNull
+  Set<String> getRemoteUris(@NotNull VirtualFile local) {
+    final Set<String> uris = remoteUris.get(local);
+    return uris == null ? Set.of() : Set.copyOf(uris);
+  }
+
+  /**
+   * Forgets the URIs that didn't resolve to a local file, e.g. because new files may have been loaded.
+   */
+  void forgetUnresolved() {
+    localFiles.values().removeIf(Optional::isEmpty);
+  }
+
+  void clear() {
+    localFiles.clear();
+    remoteUris.clear();
+  }
+
+  int size() {
+    return localFiles.size();
+  }
+
+  /**
+   * The fraction of lookups that were answered from the index, or 0 if there were none.
+   */
+  double getHitRate() {
+    final long hitCount = hits.get();
+    final long lookups = hitCount + misses.get();
+    return lookups == 0 ? 0 : (double)hitCount / lookups;
+  }
+
+  @NotNull
+  String getStats() {
+    return localFiles.size() + " URIs, " + hits.get() + " hits, " + misses.get() + " misses";
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2025 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.run;
+
+import com.intellij.testFramework.LightVirtualFile;
+import com.intellij.util.PathUtil;
+import com.jetbrains.lang.dart.DartFileType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * The read-only snapshots of script sources downloaded from Observatory, shared by all the isolates of an app.
+ * <p>
+ * Snapshots are keyed by their file name and content rather than by script id, so isolates running the same code, and
+ * versions of a script that a hot reload didn't change, get the same file. Besides saving memory, this means the editor
+ * opens a single tab for a script no matter which isolate's frame it was reached from.
+ * <p>
+ * The cache is bounded by the approximate memory its sources retain, evicting the least recently used first.
+ */
+class ScriptSourceCache {
+  static final long MAX_WEIGHT = 32L * 1024 * 1024;
+
+  private record Key(@NotNull String fileName, @NotNull String source) {
+  }
+
+  private final long maxWeight;
+
+  /**
+   * The snapshots, in access order.
+   */
+  private final LinkedHashMap<Key, LightVirtualFile> snapshots = new LinkedHashMap<>(16, 0.75f, true);
+
+  private long weight;
+  private long hits;
+  private long misses;
+
+  ScriptSourceCache() {
+    this(MAX_WEIGHT);
+  }
+
+  ScriptSourceCache(long maxWeight) {
+    this.maxWeight = maxWeight;
+  }
+
+  /**
+   * Returns the snapshot of the given script's source, or null if the script has no source.
+   */
+  @Nullable
+  synchronized LightVirtualFile getSnapshot(@NotNull String uri, @Nullable String source) {
+    if (source == null) {
+      return null;
+    }
+
+    // LightVirtualFiles have no parent directory, so just use the filename.
+    final Key key = new Key(PathUtil.getFileName(uri), source);
+    final LightVirtualFile cached = snapshots.get(key);
+    if (cached != null) {
+      hits++;
+      return cached;
+    }
+    misses++;
+
+    final LightVirtualFile snapshot = new LightVirtualFile(key.fileName, DartFileType.INSTANCE, source);
+    snapshot.setWritable(false);
+    snapshots.put(key, snapshot);
+    weight += getWeight(key);
+
+    final Iterator<Key> eldest = snapshots.keySet().iterator();
+    while (weight > maxWeight && snapshots.size() > 1 && eldest.hasNext()) {
+      final Key evicted = eldest.next();
+      eldest.remove();
+      weight -= getWeight(evicted);
+    }
+    return snapshot;
+  }
+
+  private static long getWeight(@NotNull Key key) {
+    return (long)key.source.length() * Character.BYTES;
+  }
+
+  /**
+   * The number of snapshots in the cache.
+   */
+  synchronized int size() {
+    return snapshots.size();
+  }
+
+  @NotNull
+  synchronized String getStats() {
+    return snapshots.size() + " sources, " + weight / 1024 + " KB, " + hits + " shared, " + misses + " created";
+  }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2025 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.run;
+
+import com.intellij.icons.AllIcons;
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.project.DumbAwareAction;
+import io.flutter.logging.FlutterLogDialog;
+import io.flutter.run.daemon.FlutterApp;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Opens a view that pages through the log records kept for an app, with filters for level and text.
+ */
+public class ShowAppLogAction extends DumbAwareAction {
+  private static final String title = "Search App Log";
+
+  @NotNull private final FlutterApp app;
+
+  public ShowAppLogAction(@NotNull final FlutterApp app) {
+    super(title, title, AllIcons.Actions.Find);
+    this.app = app;
+  }
+
+  @Override
+  public @NotNull ActionUpdateThread getActionUpdateThread() {
+    return ActionUpdateThread.BGT;
+  }
+
+  @Override
+  public void actionPerformed(@NotNull final AnActionEvent event) {
+    new FlutterLogDialog(event.getProject(), app.getLogStore()).show();
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2025 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.run;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Maps the token positions of a script in Observatory to lines and columns.
+ * <p>
+ * The positions are kept in parallel primitive arrays sorted by token position and looked up by binary search,
+ * rather than in a hash map holding an object per token.
+ */
+class TokenPositionTable {
+  /**
+   * The approximate number of bytes retained per token.
+   */
+  private static final int BYTES_PER_TOKEN = 3 * Integer.BYTES;
+
+  private final int[] tokenPositions;
+
+  /**
+   * Zero-based; parallel to {@link #tokenPositions}.
+   */
+  private final int[] lines;
+
+  /**
+   * Zero-based; parallel to {@link #tokenPositions}.
+   */
+  private final int[] columns;
+
+  private TokenPositionTable(int[] tokenPositions, int[] lines, int[] columns) {
+    this.tokenPositions = tokenPositions;
+    this.lines = lines;
+    this.columns = columns;
+  }
+
+  /**
+   * Unpacks a script's token position table.
+   * <p>
+   * See <a href="https://github.com/dart-lang/sdk/blob/main/runtime/vm/service/service.md#script">docs</a>.
+   */
+  @NotNull
+  static TokenPositionTable create(@NotNull List<List<Integer>> table) {
+    int size = 0;
+    for (List<Integer> line : table) {
+      size += Math.max(0, (line.size() - 1) / 2);
+    }
+
+    int[] tokenPositions = new int[size];
+    int[] lines = new int[size];
+    int[] columns = new int[size];
+
+    int count = 0;
+    boolean sorted = true;
+    for (List<Integer> line : table) {
+      // Each line consists of a line number followed by (tokenId, columnNumber) pairs.
+      // Both lines and columns are one-based.
+      final Iterator<Integer> items = line.iterator();
+      if (!items.hasNext()) continue;
+
+      // Convert line number from one-based to zero-based.
+      final int lineNumber = Math.max(0, items.next() - 1);
+      while (items.hasNext()) {
+        final int tokenPos = items.next();
+        if (!items.hasNext()) break;
+        // Convert column from one-based to zero-based.
+        final int column = Math.max(0, items.next() - 1);
+
+        if (count > 0 && tokenPos <= tokenPositions[count - 1]) {
+          sorted = false;
+        }
+        tokenPositions[count] = tokenPos;
+        lines[count] = lineNumber;
+        columns[count] = column;
+        count++;
+      }
+    }
+
+    if (!sorted) {
+      // The VM writes tokens in order, so this is rarely needed.
+      final long[] order = new long[count];
+      for (int i = 0; i < count; i++) {
+        order[i] = ((long)tokenPositions[i] << 32) | i;
+      }
+      Arrays.sort(order);
+
+      final int[] sortedTokens = new int[count];
+      final int[] sortedLines = new int[count];
+      final int[] sortedColumns = new int[count];
+      int unique = 0;
+      for (long entry : order) {
+        final int token = (int)(entry >> 32);
+        final int index = (int)entry;
+        // As in a map, the last entry for a token wins.
+        if (unique > 0 && sortedTokens[unique - 1] == token) {
+          unique--;
+        }
+        sortedTokens[unique] = token;
+        sortedLines[unique] = lines[index];
+        sortedColumns[unique] = columns[index];
+        unique++;
+      }
+      tokenPositions = sortedTokens;
+      lines = sortedLines;
+      columns = sortedColumns;
+      count = unique;
+    }
+
+    if (count < tokenPositions.length) {
+      tokenPositions = Arrays.copyOf(tokenPositions, count);
+      lines = Arrays.copyOf(lines, count);
+      columns = Arrays.copyOf(columns, count);
+    }
+    return new TokenPositionTable(tokenPositions, lines, columns);
+  }
+
+  /**
+   * Returns the index of the given token, or a negative number if it isn't in the table.
+   */
+  int indexOf(int tokenPos) {
+    return Arrays.binarySearch(tokenPositions, tokenPos);
+  }
+
+  /**
+   * Zero-based line of the token at the given index.
+   */
+  int getLine(int index) {
+    return lines[index];
+  }
+
+  /**
+   * Zero-based column of the token at the given index.
+   */
+  int getColumn(int index) {
+    return columns[index];
+  }
+
+  int size() {
+    return tokenPositions.length;
+  }
+
+  /**
+   * The approximate number of bytes retained by this table.
+   */
+  long getWeight() {
+    return (long)tokenPositions.length * BYTES_PER_TOKEN;
+  }
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2025 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.run.daemon;
+
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Sits between a daemon and a listener that updates the UI, and coalesces bursts of <code>app.log</code> and
+ * <code>app.progress</code> events.
+ * <p>
+ * Log and progress events are queued and delivered once per UI frame. Consecutive log lines are joined into one
+ * {@link DaemonEvent.AppLog}, so the console sees one append per frame rather than one per line. A progress update
+ * that starts and finishes before it's delivered is dropped when a newer update with the same progress id arrives.
+ * The queue is bounded; lines that don't fit are replaced by a single "lines elided" message.
+ * <p>
+ * All other events flush the queue and are then delivered immediately, so the delegate sees events in order.
+ */
+class CoalescingDaemonEventListener implements DaemonEvent.Listener {
+  static final long FRAME_MILLIS = 16;
+  static final int MAX_QUEUED_LOG_LINES = 2000;
+
+  @NotNull private final DaemonEvent.Listener delegate;
+  @NotNull private final Consumer<Runnable> scheduler;
+
+  /**
+   * Events waiting to be delivered; guarded by itself.
+   */
+  private final List<DaemonEvent> queue = new ArrayList<>();
+  private int queuedLogLines;
+  private int elidedLogLines;
+  private boolean flushScheduled;
+
+  /**
+   * Held while delivering events, so that the delegate sees them one at a time and in order.
+   */
+  private final Object deliveryLock = new Object();
+
+  CoalescingDaemonEventListener(@NotNull DaemonEvent.Listener delegate) {
+    this(delegate, (Runnable flush) -> AppExecutorUtil.getAppScheduledExecutorService().schedule(flush, FRAME_MILLIS, TimeUnit.MILLISECONDS));
+  }
+
+  /**
+   * @param scheduler runs the given flush a frame later.
+   */
+  CoalescingDaemonEventListener(@NotNull DaemonEvent.Listener delegate, @NotNull Consumer<Runnable> scheduler) {
+    this.delegate = delegate;
+    this.scheduler = scheduler;
+  }
+
+  // coalesced events
+
+  @Override
+  public void onAppLog(DaemonEvent.AppLog event) {
+    final boolean schedule;
+    synchronized (queue) {
+      if (queuedLogLines >= MAX_QUEUED_LOG_LINES) {
+        elidedLogLines++;
+        return;
+      }
+      queuedLogLines++;
+      queue.add(event);
+      schedule = scheduleFlushLocked();
+    }
+    if (schedule) {
+      scheduler.accept(this::flush);
+    }
+  }
+
+  @Override
+  public void onAppProgressStarting(DaemonEvent.AppProgress event) {
+    final boolean schedule;
+    synchronized (queue) {
+      dropSupersededProgressLocked(event);
+      queue.add(event);
+      schedule = scheduleFlushLocked();
+    }
+    if (schedule) {
+      scheduler.accept(this::flush);
+    }
+  }
+
+  @Override
+  public void onAppProgressFinished(DaemonEvent.AppProgress event) {
+    final boolean schedule;
+    synchronized (queue) {
+      queue.add(event);
+      schedule = scheduleFlushLocked();
+    }
+    if (schedule) {
+      scheduler.accept(this::flush);
+    }
+  }
+
+  // events delivered immediately
+
+  @Override
+  public void processWillTerminate() {
+    deliverAfterFlush(delegate::processWillTerminate);
+  }
+
+  @Override
+  public void processTerminated(int exitCode) {
+    deliverAfterFlush(() -> delegate.processTerminated(exitCode));
+  }
+
+  @Override
+  public void onDaemonConnected(DaemonEvent.DaemonConnected event) {
+    deliverAfterFlush(() -> delegate.onDaemonConnected(event));
+  }
+
+  @Override
+  public void onDaemonLog(DaemonEvent.DaemonLog event) {
+    deliverAfterFlush(() -> delegate.onDaemonLog(event));
+  }
+
+  @Override
+  public void onDaemonLogMessage(DaemonEvent.DaemonLogMessage event) {
+    deliverAfterFlush(() -> delegate.onDaemonLogMessage(event));
+  }
+
+  @Override
+  public void onDaemonShowMessage(DaemonEvent.DaemonShowMessage event) {
+    deliverAfterFlush(() -> delegate.onDaemonShowMessage(event));
+  }
+
+  @Override
+  public void onAppStarting(DaemonEvent.AppStarting event) {
+    deliverAfterFlush(() -> delegate.onAppStarting(event));
+  }
+
+  @Override
+  public void onAppDebugPort(DaemonEvent.AppDebugPort event) {
+    deliverAfterFlush(() -> delegate.onAppDebugPort(event));
+  }
+
+  @Override
+  public void onAppStarted(DaemonEvent.AppStarted event) {
+    deliverAfterFlush(() -> delegate.onAppStarted(event));
+  }
+
+  @Override
+  public void onAppStopped(DaemonEvent.AppStopped event) {
+    deliverAfterFlush(() -> delegate.onAppStopped(event));
+  }
+
+  @Override
+  public void onDeviceAdded(DaemonEvent.DeviceAdded event) {
+    deliverAfterFlush(() -> delegate.onDeviceAdded(event));
+  }
+
+  @Override
+  public void onDeviceRemoved(DaemonEvent.DeviceRemoved event) {
+    deliverAfterFlush(() -> delegate.onDeviceRemoved(event));
+  }
+
+  // helpers
+
+  /**
+   * Delivers all queued events to the delegate.
+   */
+  void flush() {
+    synchronized (deliveryLock) {
+      deliverQueued();
+    }
+  }
+
+  private void deliverAfterFlush(@NotNull Runnable delivery) {
+    synchronized (deliveryLock) {
+      deliverQueued();
+      delivery.run();
+    }
+  }
+
+  private void deliverQueued() {
+    final List<DaemonEvent> events;
+    final int elided;
+    synchronized (queue) {
+      flushScheduled = false;
+      if (queue.isEmpty() && elidedLogLines == 0) {
+        return;
+      }
+      events = new ArrayList<>(queue);
+      elided = elidedLogLines;
+      queue.clear();
+      queuedLogLines = 0;
+      elidedLogLines = 0;
+    }
+
+    DaemonEvent.AppLog batch = null;
+    StringBuilder batchText = null;
+    for (DaemonEvent event : events) {
+      if (event instanceof DaemonEvent.AppLog log) {
+        if (batch != null && batch.error == log.error && Objects.equals(batch.appId, log.appId)) {
+          batchText.append('\n').append(log.log);
+          continue;
+        }
+        deliverBatch(batch, batchText);
+        batch = log;
+        batchText = new StringBuilder(String.valueOf(log.log));
+      }
+      else {
+        deliverBatch(batch, batchText);
+        batch = null;
+        batchText = null;
+        event.accept(delegate);
+      }
+    }
+    deliverBatch(batch, batchText);
+
+    if (elided > 0) {
+      final DaemonEvent.AppLog marker = new DaemonEvent.AppLog();
+      marker.appId = findAppId(events);
+      marker.log = "... " + elided + (elided == 1 ? " line" : " lines") + " elided ...";
+      delegate.onAppLog(marker);
+    }
+  }
+
+  private void deliverBatch(@Nullable DaemonEvent.AppLog first, @Nullable StringBuilder text) {
+    if (first == null || text == null) return;
+
+    final DaemonEvent.AppLog combined = new DaemonEvent.AppLog();
+    combined.appId = first.appId;
+    combined.error = first.error;
+    combined.log = text.toString();
+    delegate.onAppLog(combined);
+  }
+
+  @Nullable
+  private static String findAppId(@NotNull List<DaemonEvent> events) {
+    for (DaemonEvent event : events) {
+      if (event instanceof DaemonEvent.AppLog log) {
+        return log.appId;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Drops a queued progress update with the same progress id as the given one, if it both started and finished
+   * before being delivered.
+   */
+  private void dropSupersededProgressLocked(@NotNull DaemonEvent.AppProgress newer) {
+    final String type = newer.getType();
+    if (type.isEmpty()) return;
+
+    for (int i = 0; i < queue.size(); i++) {
+      if (!(queue.get(i) instanceof DaemonEvent.AppProgress started) || !started.isStarting() || !type.equals(started.getType())) {
+        continue;
+      }
+      for (int j = i + 1; j < queue.size(); j++) {
+        if (queue.get(j) instanceof DaemonEvent.AppProgress finished && finished.isFinished() && Objects.equals(started.id, finished.id)) {
+          queue.remove(j);
+          queue.remove(i);
+          return;
+        }
+      }
+    }
+  }
+
+  private boolean scheduleFlushLocked() {
+    if (flushScheduled) return false;
+    flushScheduled = true;
+    return true;
+  }
+}
@@ -5,7 +5,6 @@
  */
 package io.flutter.run.daemon;
 
-import com.google.common.base.Charsets;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
@@ -19,23 +18,19 @@ import com.intellij.execution.process.ProcessOutputTypes;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.util.Key;
 import io.flutter.logging.PluginLogger;
+import io.flutter.utils.ByteRingBuffer;
 import io.flutter.utils.JsonUtils;
-import io.flutter.utils.StdoutJsonParser;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
-import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Deque;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -49,30 +44,39 @@ public class DaemonApi {
   public static final String FLUTTER_ERROR_PREFIX = "error from";
   public static final String COMPLETION_EXCEPTION_PREFIX = "java.util.concurrent.CompletionException: java.io.IOException: ";
 
-  private static final int STDERR_LINES_TO_KEEP = 100;
+  /**
+   * The number of bytes of stderr output to keep for error reports.
+   */
+  private static final int STDERR_BYTES_TO_KEEP = 16 * 1024;
   private static final Gson GSON = new Gson();
   private static final @NotNull Logger LOG = PluginLogger.createLogger(DaemonApi.class);
-  @NotNull private final Consumer<String> callback;
+  @NotNull private final CommandSink sink;
   private final AtomicInteger nextId = new AtomicInteger();
-  private final Map<Integer, Command> pending = new LinkedHashMap<>();
-  private final StdoutJsonParser stdoutParser = new StdoutJsonParser();
+  private final Map<Integer, Command<?>> pending = new ConcurrentHashMap<>();
   /**
-   * A ring buffer holding the last few lines that the process sent to stderr.
+   * A ring buffer holding the last bytes that the process sent to stderr.
    */
-  private final Deque<String> stderr = new ArrayDeque<>();
+  private final ByteRingBuffer stderr = new ByteRingBuffer(STDERR_BYTES_TO_KEEP);
 
   /**
    * Creates an Api that sends JSON to a callback.
    */
   DaemonApi(@NotNull Consumer<String> callback) {
-    this.callback = callback;
+    this((String json, Runnable onWritten) -> {
+      callback.accept(json);
+      onWritten.run();
+    });
   }
 
   /**
    * Creates an Api that sends JSON to a process.
    */
   DaemonApi(@NotNull ProcessHandler process) {
-    this((String json) -> sendCommand(json, process));
+    this(new DaemonCommandWriter(process));
+  }
+
+  private DaemonApi(@NotNull CommandSink sink) {
+    this.sink = sink;
   }
 
   CompletableFuture<List<String>> daemonGetSupportedPlatforms(@NotNull String projectRoot) {
@@ -98,9 +102,7 @@ public class DaemonApi {
   void cancelPending() {
     // We used to complete the commands with exceptions here (completeExceptionally), but that generally was surfaced
     // to the user as an exception in the tool. We now choose to not complete the command at all.
-    synchronized (pending) {
-      pending.clear();
-    }
+    pending.clear();
   }
 
   /**
@@ -120,38 +122,32 @@ public class DaemonApi {
    * Receive responses and events from a process until it shuts down.
    */
   void listen(@NotNull ProcessHandler process, @NotNull DaemonEvent.Listener listener) {
+    final DaemonMessageDecoder decoder = new DaemonMessageDecoder(new DaemonMessageDecoder.Handler() {
+      @Override
+      public void onEvent(@NotNull DaemonEvent event) {
+        event.accept(listener);
+      }
+
+      @Override
+      public void onResponse(@NotNull JsonObject response) {
+        dispatch(response, listener);
+      }
+    });
+
     process.addProcessListener(new ProcessAdapter() {
       @Override
       public void onTextAvailable(@NotNull ProcessEvent event, @NotNull Key outputType) {
         if (outputType.equals(ProcessOutputTypes.STDERR)) {
-          // Append text to last line in buffer.
-          final String last = stderr.peekLast();
-          if (last != null && !last.endsWith("\n")) {
-            stderr.removeLast();
-            stderr.add(last + event.getText());
-          }
-          else {
-            stderr.add(event.getText());
-          }
-
-          // Trim buffer size.
-          while (stderr.size() > STDERR_LINES_TO_KEEP) {
-            stderr.removeFirst();
-          }
+          stderr.append(event.getText());
         }
         else if (outputType.equals(ProcessOutputTypes.STDOUT)) {
           final String text = event.getText();
 
-          LOG.debug("[<-- " + text.trim() + "]");
-
-          stdoutParser.appendOutput(text);
-
-          for (String line : stdoutParser.getAvailableLines()) {
-            final JsonObject obj = parseAndValidateDaemonEvent(line);
-            if (obj != null) {
-              dispatch(obj, listener);
-            }
+          if (LOG.isDebugEnabled()) {
+            LOG.debug("[<-- " + text.trim() + "]");
           }
+
+          decoder.append(text);
         }
       }
 
@@ -182,7 +178,7 @@ public class DaemonApi {
       }
     }
     else {
-      final Command cmd = takePending(idField.getAsInt());
+      final Command<?> cmd = takePending(idField.getAsInt());
       if (cmd == null) {
         return;
       }
@@ -204,11 +200,8 @@ public class DaemonApi {
   }
 
   @Nullable
-  private Command takePending(int id) {
-    final Command cmd;
-    synchronized (pending) {
-      cmd = pending.remove(id);
-    }
+  private Command<?> takePending(int id) {
+    final Command<?> cmd = pending.remove(id);
     if (cmd == null) {
       LOG.warn("received a response for a request that wasn't sent: " + id);
       return null;
@@ -217,26 +210,21 @@ public class DaemonApi {
   }
 
   private <T> CompletableFuture<T> send(String method, @Nullable Params<T> params) {
-    // Synchronize on nextId to ensure that we send one command at a time and they are numbered in the order they are sent.
-    synchronized (nextId) {
-      final int id = nextId.getAndIncrement();
-      final Command<T> command = new Command<>(method, params, id);
-      final String json = command.toString();
-      //noinspection NestedSynchronizedStatement
-      synchronized (pending) {
-        pending.put(id, command);
-      }
-      callback.accept(json);
-      return command.done;
-    }
+    // Commands are serialized on the calling thread and written to the process by the sink, so callers never wait on
+    // each other or on process I/O. The daemon matches responses by id, so ids need not reach it in order.
+    final int id = nextId.getAndIncrement();
+    final Command<T> command = new Command<>(method, params, id);
+    final String json = command.toString();
+    pending.put(id, command);
+    sink.send(json, command::markWritten);
+    return command.done;
   }
 
   /**
-   * Returns the last lines written to stderr.
+   * Returns the last text written to stderr.
    */
   public String getStderrTail() {
-    final String[] lines = stderr.toArray(new String[]{ });
-    return String.join("", lines);
+    return stderr.toString();
   }
 
   /**
@@ -261,59 +249,52 @@ public class DaemonApi {
       final JsonElement element = JsonUtils.parseString(message);
       obj = element.getAsJsonObject();
     }
-    catch (JsonSyntaxException e) {
+    catch (JsonSyntaxException | IllegalStateException e) {
       return null;
     }
 
-    // obj must contain either an "id" (int), or an "event" field
-    final JsonPrimitive eventField = obj.getAsJsonPrimitive("event");
+    return isValidDaemonMessage(obj) ? obj : null;
+  }
+
+  /**
+   * Returns whether the given object is a valid Daemon message: it must contain either an "id" (int), or an "event"
+   * field with "params".
+   */
+  static boolean isValidDaemonMessage(@NotNull JsonObject obj) {
+    final JsonElement eventField = obj.get("event");
     if (eventField != null) {
-      final String eventName = eventField.getAsString();
-      if (eventName == null) {
-        return null;
+      if (!eventField.isJsonPrimitive()) {
+        return false;
       }
-      final JsonObject params = obj.getAsJsonObject("params");
-      return params == null ? null : obj;
+      return obj.get("params") instanceof JsonObject;
     }
     else {
       // id
-      final JsonPrimitive idField = obj.getAsJsonPrimitive("id");
-      if (idField == null || !idField.isNumber()) {
-        return null;
+      final JsonElement idField = obj.get("id");
+      if (idField == null || !idField.isJsonPrimitive() || !idField.getAsJsonPrimitive().isNumber()) {
+        return false;
       }
 
       try {
         idField.getAsInt();
-        return obj;
+        return true;
       }
       catch (NumberFormatException e) {
-        return null;
+        return false;
       }
     }
   }
 
-  private static void sendCommand(String json, ProcessHandler handler) {
-    final PrintWriter stdin = getStdin(handler);
-    if (stdin == null) {
-      LOG.warn("can't write command to Flutter process because stdin is null: " + json);
-      return;
-    }
-    stdin.write('[');
-    stdin.write(json);
-    stdin.write("]\n");
-
-    LOG.debug("[--> " + json + "]");
-
-    if (stdin.checkError()) {
-      LOG.warn("can't write command to Flutter process due to error: " + json);
-    }
-  }
-
-  @Nullable
-  private static PrintWriter getStdin(ProcessHandler processHandler) {
-    final OutputStream stdin = processHandler.getProcessInput();
-    if (stdin == null) return null;
-    return new PrintWriter(new OutputStreamWriter(stdin, Charsets.UTF_8));
+  /**
+   * Writes serialized commands to the daemon.
+   */
+  interface CommandSink {
+    /**
+     * Sends the given command, calling <code>onWritten</code> once it has been handed to the process.
+     * <p>
+     * Implementations must not block the caller on process I/O.
+     */
+    void send(@NotNull String json, @NotNull Runnable onWritten);
   }
 
   public static class RestartResult {
@@ -349,6 +330,9 @@ public class DaemonApi {
     transient final @Nullable Function<JsonElement, T> parseResult;
     transient final CompletableFuture<T> done = new CompletableFuture<>();
 
+    transient final long enqueuedNanos = System.nanoTime();
+    transient volatile long writtenNanos;
+
     Command(@NotNull String method, @Nullable Params<T> params, int id) {
       this.method = method;
       // GSON has trouble with params as a field, because it has both a generic type and subclasses.
@@ -358,7 +342,12 @@ public class DaemonApi {
       this.parseResult = params == null ? null : params::parseResult;
     }
 
+    void markWritten() {
+      writtenNanos = System.nanoTime();
+    }
+
     void complete(@Nullable JsonElement result) {
+      logLatency();
       if (parseResult == null) {
         done.complete(null);
         return;
@@ -373,9 +362,26 @@ public class DaemonApi {
     }
 
     void completeExceptionally(Throwable t) {
+      logLatency();
       done.completeExceptionally(t);
     }
 
+    /**
+     * Logs how long this command spent queued for writing and then waiting for the daemon's response.
+     */
+    private void logLatency() {
+      if (!LOG.isDebugEnabled()) return;
+
+      final long respondedNanos = System.nanoTime();
+      final long written = writtenNanos == 0 ? respondedNanos : writtenNanos;
+      LOG.debug("daemon command " + method + " (id " + id + "): queued " + toMillis(written - enqueuedNanos) + "ms, response after " +
+                toMillis(respondedNanos - written) + "ms, total " + toMillis(respondedNanos - enqueuedNanos) + "ms");
+    }
+
+    private static long toMillis(long nanos) {
+      return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
     @Override
     public String toString() {
       return GSON.toJson(this);
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2025 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.run.daemon;
+
+import com.intellij.execution.process.ProcessHandler;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import io.flutter.logging.PluginLogger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Writes commands to the stdin of a Flutter daemon process without blocking the threads that send them.
+ * <p>
+ * Commands are queued and then written by a single task at a time, which drains everything queued so far and
+ * flushes the process input once per batch. The process input is wrapped once and reused for the life of the process.
+ */
+class DaemonCommandWriter implements DaemonApi.CommandSink {
+  private static final @NotNull Logger LOG = PluginLogger.createLogger(DaemonCommandWriter.class);
+
+  @NotNull private final ProcessHandler process;
+  @NotNull private final Executor executor;
+
+  private final Queue<QueuedCommand> queue = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+  /**
+   * Only accessed by the drain task.
+   */
+  private @Nullable Writer stdin;
+  private final List<Runnable> writtenInBatch = new ArrayList<>();
+
+  DaemonCommandWriter(@NotNull ProcessHandler process) {
+    this(process, AppExecutorUtil.createBoundedApplicationPoolExecutor("Flutter daemon command writer", 1));
+  }
+
+  DaemonCommandWriter(@NotNull ProcessHandler process, @NotNull Executor executor) {
+    this.process = process;
+    this.executor = executor;
+  }
+
+  @Override
+  public void send(@NotNull String json, @NotNull Runnable onWritten) {
+    queue.add(new QueuedCommand(json, onWritten));
+    if (drainScheduled.compareAndSet(false, true)) {
+      executor.execute(this::drain);
+    }
+  }
+
+  private void drain() {
+    while (true) {
+      writeQueuedCommands();
+
+      drainScheduled.set(false);
+      // A command may have been queued after the last poll but before the flag was cleared.
+      if (queue.isEmpty() || !drainScheduled.compareAndSet(false, true)) {
+        return;
+      }
+    }
+  }
+
+  private void writeQueuedCommands() {
+    final Writer out = getStdin();
+
+    QueuedCommand command;
+    while ((command = queue.poll()) != null) {
+      if (out == null) {
+        LOG.warn("can't write command to Flutter process because stdin is null: " + command.json);
+        continue;
+      }
+
+      try {
+        out.write('[');
+        out.write(command.json);
+        out.write("]\n");
+        writtenInBatch.add(command.onWritten);
+      }
+      catch (IOException e) {
+        LOG.warn("can't write command to Flutter process due to error: " + command.json, e);
+      }
+
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("[--> " + command.json + "]");
+      }
+    }
+
+    if (out != null) {
+      try {
+        out.flush();
+      }
+      catch (IOException e) {
+        LOG.warn("can't flush commands to Flutter process due to error", e);
+      }
+    }
+
+    for (Runnable onWritten : writtenInBatch) {
+      onWritten.run();
+    }
+    writtenInBatch.clear();
+  }
+
+  @Nullable
+  private Writer getStdin() {
+    if (stdin == null) {
+      final OutputStream processInput = process.getProcessInput();
+      if (processInput == null) return null;
+      stdin = new BufferedWriter(new OutputStreamWriter(processInput, StandardCharsets.UTF_8));
+    }
+    return stdin;
+  }
+
+  private record QueuedCommand(@NotNull String json, @NotNull Runnable onWritten) {
+  }
+}
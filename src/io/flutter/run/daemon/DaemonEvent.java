@@ -6,15 +6,20 @@
 package io.flutter.run.daemon;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.google.gson.JsonPrimitive;
 import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.util.text.StringUtil;
 import io.flutter.logging.PluginLogger;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+
 /**
  * <p>A message received from a Flutter process that's not in response to a particular request.
  */
@@ -74,6 +79,113 @@ abstract class DaemonEvent {
     }
   }
 
+  /**
+   * Reads the parameters of an event from a streaming reader positioned at the start of the "params" object.
+   * <p>
+   * The events that make up most of the daemon's traffic (<code>app.log</code>, <code>app.progress</code>, and
+   * <code>daemon.logMessage</code>) are decoded directly from the reader. Other known events are read into a tree
+   * and bound with Gson, and unknown events are skipped without being decoded.
+   *
+   * @throws IllegalStateException if the parameters don't have the expected types.
+   */
+  @Nullable
+  static DaemonEvent read(@NotNull String eventName, @NotNull JsonReader reader) throws IOException {
+    return switch (eventName) {
+      case "app.log" -> readAppLog(reader);
+      case "app.progress" -> readAppProgress(reader);
+      case "daemon.logMessage" -> readDaemonLogMessage(reader);
+      case "daemon.connected", "daemon.log", "daemon.showMessage", "app.start", "app.debugPort", "app.started", "app.stop",
+           "device.added", "device.removed" -> {
+        final JsonElement params = JsonParser.parseReader(reader);
+        yield params.isJsonObject() ? create(eventName, params.getAsJsonObject()) : null;
+      }
+      default -> {
+        reader.skipValue();
+        yield null; // Drop an unknown event.
+      }
+    };
+  }
+
+  @NotNull
+  private static AppLog readAppLog(@NotNull JsonReader reader) throws IOException {
+    final AppLog event = new AppLog();
+    reader.beginObject();
+    while (reader.hasNext()) {
+      switch (reader.nextName()) {
+        case "appId" -> event.appId = nextString(reader);
+        case "log" -> event.log = nextString(reader);
+        case "error" -> event.error = Boolean.TRUE.equals(nextBoolean(reader));
+        default -> reader.skipValue();
+      }
+    }
+    reader.endObject();
+    return event;
+  }
+
+  @NotNull
+  private static AppProgress readAppProgress(@NotNull JsonReader reader) throws IOException {
+    final AppProgress event = new AppProgress();
+    reader.beginObject();
+    while (reader.hasNext()) {
+      switch (reader.nextName()) {
+        case "appId" -> event.appId = nextString(reader);
+        case "id" -> event.id = nextString(reader);
+        case "progressId" -> event.progressId = nextString(reader);
+        case "message" -> event.message = nextString(reader);
+        case "finished" -> event.finished = nextBoolean(reader);
+        default -> reader.skipValue();
+      }
+    }
+    reader.endObject();
+    return event;
+  }
+
+  @NotNull
+  private static DaemonLogMessage readDaemonLogMessage(@NotNull JsonReader reader) throws IOException {
+    final DaemonLogMessage event = new DaemonLogMessage();
+    reader.beginObject();
+    while (reader.hasNext()) {
+      switch (reader.nextName()) {
+        case "level" -> event.level = nextString(reader);
+        case "message" -> event.message = nextString(reader);
+        case "stackTrace" -> event.stackTrace = nextString(reader);
+        default -> reader.skipValue();
+      }
+    }
+    reader.endObject();
+    return event;
+  }
+
+  /**
+   * Reads a string the same way that Gson binds a String field.
+   */
+  @Nullable
+  private static String nextString(@NotNull JsonReader reader) throws IOException {
+    return switch (reader.peek()) {
+      case NULL -> {
+        reader.nextNull();
+        yield null;
+      }
+      case BOOLEAN -> Boolean.toString(reader.nextBoolean());
+      default -> reader.nextString();
+    };
+  }
+
+  /**
+   * Reads a boolean the same way that Gson binds a Boolean field.
+   */
+  @Nullable
+  private static Boolean nextBoolean(@NotNull JsonReader reader) throws IOException {
+    return switch (reader.peek()) {
+      case NULL -> {
+        reader.nextNull();
+        yield null;
+      }
+      case STRING -> Boolean.parseBoolean(reader.nextString());
+      default -> reader.nextBoolean();
+    };
+  }
+
   abstract void accept(Listener listener);
 
   @Override
@@ -0,0 +1,267 @@
+/*
+ * Copyright 2025 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.run.daemon;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+
+/**
+ * Frames daemon protocol messages out of a process's stdout and decodes them as they complete.
+ * <p>
+ * Messages are written by the daemon as single-line JSON arrays holding one object (<code>[{...}]</code>). Regular
+ * text that the process writes between messages is skipped. Rather than collecting each line into a string, the
+ * decoder copies only the characters of a message into a reusable buffer and tracks the nesting depth (ignoring
+ * brackets inside string literals), so a message is complete as soon as its closing bracket is seen. The finished
+ * message is then read in place with a streaming {@link JsonReader}: events are decoded by {@link DaemonEvent#read}
+ * without building a tree for their parameters, and only responses are materialized as a {@link JsonObject}.
+ * <p>
+ * This class is not thread safe; it is expected to be fed from the single thread that reads the process output.
+ */
+class DaemonMessageDecoder {
+  private static final int INITIAL_CAPACITY = 4 * 1024;
+
+  /**
+   * After a message larger than this, the buffer is dropped rather than being retained for the life of the process.
+   */
+  private static final int MAX_RETAINED_CAPACITY = 256 * 1024;
+
+  private enum State {
+    /**
+     * At the start of a line.
+     */
+    LINE_START,
+    /**
+     * Saw a '[' at the start of a line; a '{' next starts a message.
+     */
+    OPEN_BRACKET,
+    /**
+     * Within a daemon message.
+     */
+    MESSAGE,
+    /**
+     * Within a line of regular text; skipped until the end of the line.
+     */
+    TEXT
+  }
+
+  /**
+   * Receives the messages decoded from the process output.
+   */
+  interface Handler {
+    /**
+     * Called with the decoded parameters of a known event.
+     */
+    void onEvent(@NotNull DaemonEvent event);
+
+    /**
+     * Called with a valid response to a command.
+     */
+    void onResponse(@NotNull JsonObject response);
+  }
+
+  @NotNull private final Handler handler;
+
+  private char[] buffer = new char[INITIAL_CAPACITY];
+  private int length;
+
+  private State state = State.LINE_START;
+  private int depth;
+  private char quote;
+  private boolean escaped;
+
+  DaemonMessageDecoder(@NotNull Handler handler) {
+    this.handler = handler;
+  }
+
+  /**
+   * Processes the next chunk of process output, dispatching any messages that it completes.
+   */
+  void append(@NotNull CharSequence text) {
+    final int n = text.length();
+    for (int i = 0; i < n; i++) {
+      final char c = text.charAt(i);
+
+      switch (state) {
+        case LINE_START -> {
+          if (c == '[') {
+            state = State.OPEN_BRACKET;
+          }
+          else if (!isEol(c)) {
+            state = State.TEXT;
+          }
+        }
+        case OPEN_BRACKET -> {
+          if (c == '{') {
+            startMessage();
+          }
+          else {
+            state = isEol(c) ? State.LINE_START : State.TEXT;
+          }
+        }
+        case TEXT -> {
+          if (isEol(c)) {
+            state = State.LINE_START;
+          }
+        }
+        case MESSAGE -> {
+          if (isEol(c)) {
+            // The daemon never writes a raw line break within a message; drop the truncated message.
+            length = 0;
+            state = State.LINE_START;
+          }
+          else {
+            appendToMessage(c);
+            if (depth == 0) {
+              decodeMessage();
+              // Text may directly follow a message, e.g. "[{...}]Performing hot restart...".
+              state = State.LINE_START;
+            }
+          }
+        }
+      }
+    }
+
+    // Process output is flushed a line at a time, so a message can start with the next chunk even if this one ended
+    // within a line of text.
+    if (state == State.TEXT) {
+      state = State.LINE_START;
+    }
+  }
+
+  private void startMessage() {
+    length = 0;
+    depth = 0;
+    quote = 0;
+    escaped = false;
+    state = State.MESSAGE;
+    appendToMessage('[');
+    appendToMessage('{');
+  }
+
+  private void appendToMessage(char c) {
+    if (length == buffer.length) {
+      final char[] larger = new char[buffer.length * 2];
+      System.arraycopy(buffer, 0, larger, 0, length);
+      buffer = larger;
+    }
+    buffer[length++] = c;
+
+    if (quote != 0) {
+      if (escaped) {
+        escaped = false;
+      }
+      else if (c == '\\') {
+        escaped = true;
+      }
+      else if (c == quote) {
+        quote = 0;
+      }
+    }
+    else if (c == '"' || c == '\'') {
+      // The daemon only writes double quotes; single quotes are accepted for parity with lenient parsing.
+      quote = c;
+    }
+    else if (c == '[' || c == '{') {
+      depth++;
+    }
+    else if (c == ']' || c == '}') {
+      depth--;
+    }
+  }
+
+  private void decodeMessage() {
+    final Object message;
+    try {
+      message = read(new JsonReader(new CharArrayReader(buffer, 0, length)));
+    }
+    catch (IOException | JsonParseException | IllegalStateException | NumberFormatException e) {
+      // Not a daemon message, or an event with unexpected parameters; ignore it.
+      return;
+    }
+    finally {
+      length = 0;
+      if (buffer.length > MAX_RETAINED_CAPACITY) {
+        buffer = new char[INITIAL_CAPACITY];
+      }
+    }
+
+    if (message instanceof DaemonEvent event) {
+      handler.onEvent(event);
+    }
+    else if (message instanceof JsonObject response) {
+      handler.onResponse(response);
+    }
+  }
+
+  /**
+   * Reads a message, returning either a {@link DaemonEvent}, a response {@link JsonObject}, or null if the message
+   * isn't valid or is an unknown event.
+   */
+  @Nullable
+  private static Object read(@NotNull JsonReader reader) throws IOException {
+    reader.setLenient(true);
+    reader.beginArray();
+    reader.beginObject();
+
+    String eventName = null;
+    boolean hasParams = false;
+    DaemonEvent event = null;
+    JsonObject other = null;
+
+    while (reader.hasNext()) {
+      final String name = reader.nextName();
+      if (name.equals("event") && eventName == null && reader.peek() == JsonToken.STRING) {
+        eventName = reader.nextString();
+      }
+      else if (name.equals("params") && eventName != null && reader.peek() == JsonToken.BEGIN_OBJECT) {
+        // The daemon writes the event name first, so the parameters can be decoded as they're read.
+        hasParams = true;
+        event = DaemonEvent.read(eventName, reader);
+      }
+      else {
+        if (other == null) {
+          other = new JsonObject();
+        }
+        other.add(name, JsonParser.parseReader(reader));
+      }
+    }
+
+    reader.endObject();
+    reader.endArray();
+
+    if (hasParams) {
+      return event;
+    }
+
+    // A response, or an event whose fields arrived in an unexpected order.
+    if (other == null) {
+      return null;
+    }
+    if (eventName != null) {
+      other.addProperty("event", eventName);
+    }
+    if (!DaemonApi.isValidDaemonMessage(other)) {
+      return null;
+    }
+    if (eventName != null) {
+      return DaemonEvent.create(eventName, other.getAsJsonObject("params"));
+    }
+    return other;
+  }
+
+  private static boolean isEol(char c) {
+    return c == '\n' || c == '\r';
+  }
+}
@@ -237,8 +237,9 @@ class DeviceDaemon {
           else if (process.isProcessTerminated()) {
             final Integer exitCode = process.getExitCode();
             String failureMessage = "Flutter device daemon #" + daemonId + " exited (exit code " + exitCode + ")";
-            if (!api.getStderrTail().isEmpty()) {
-              failureMessage += ", stderr: " + api.getStderrTail();
+            final String stderrTail = api.getStderrTail();
+            if (!stderrTail.isEmpty()) {
+              failureMessage += ", stderr: " + stderrTail;
             }
             attempts++;
             if (attempts <= DeviceDaemon.RESTART_ATTEMPTS_BEFORE_WARNING) {
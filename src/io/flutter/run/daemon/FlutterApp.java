@@ -39,6 +39,7 @@ import io.flutter.dart.DtdRequest;
 import io.flutter.dart.DtdUtils;
 import io.flutter.dart.FlutterDartAnalysisServer;
 import io.flutter.logging.FlutterConsoleLogManager;
+import io.flutter.logging.FlutterLogStore;
 import io.flutter.logging.PluginLogger;
 import io.flutter.run.FlutterDebugProcess;
 import io.flutter.run.FlutterDevice;
@@ -97,6 +98,11 @@ public class FlutterApp implements Disposable {
   private @Nullable ConsoleView myConsole;
   private FlutterConsoleLogManager myFlutterConsoleLogManager;
 
+  /**
+   * The app's log records, from both the daemon and the VM service.
+   */
+  private final @NotNull FlutterLogStore myLogStore = new FlutterLogStore();
+
   /**
    * The command with which the app was launched.
    * <p>
@@ -266,7 +272,7 @@ public class FlutterApp implements Disposable {
       }
     });
 
-    api.listen(process, new FlutterAppDaemonEventListener(app, project));
+    api.listen(process, new CoalescingDaemonEventListener(new FlutterAppDaemonEventListener(app, project)));
 
     return app;
   }
@@ -598,13 +604,11 @@ public class FlutterApp implements Disposable {
     myVmService = vmService;
     myVMServiceManager = vmServiceManager;
 
-    myVmService.addVmServiceListener(new VmServiceListenerAdapter() {
+    myVmService.addVmServiceListener(VmService.EXTENSION_STREAM_ID, new VmServiceListenerAdapter() {
       @Override
       public void received(String streamId, Event event) {
-        if (StringUtil.equals(streamId, VmService.EXTENSION_STREAM_ID)) {
-          if (StringUtil.equals("Flutter.Frame", event.getExtensionKind())) {
-            listenersDispatcher.getMulticaster().notifyFrameRendered();
-          }
+        if (StringUtil.equals("Flutter.Frame", event.getExtensionKind())) {
+          listenersDispatcher.getMulticaster().notifyFrameRendered();
         }
       }
     });
@@ -630,6 +634,11 @@ public class FlutterApp implements Disposable {
     return myProject;
   }
 
+  @NotNull
+  public FlutterLogStore getLogStore() {
+    return myLogStore;
+  }
+
   public FlutterConsoleLogManager getFlutterConsoleLogManager() {
     if (myFlutterConsoleLogManager == null) {
       assert (getConsole() != null);
@@ -698,6 +707,11 @@ public class FlutterApp implements Disposable {
 class FlutterAppDaemonEventListener implements DaemonEvent.Listener {
   private static final @NotNull Logger LOG = PluginLogger.createLogger(FlutterAppDaemonEventListener.class);
 
+  /**
+   * The logger name under which the app's output, as reported by <code>app.log</code>, is stored.
+   */
+  private static final @NotNull String STDOUT_LOGGER_NAME = "stdout";
+
   private final @NotNull FlutterApp app;
   private final @NotNull ProgressHelper progress;
   private @Nullable String appVmServiceUri;
@@ -799,6 +813,14 @@ class FlutterAppDaemonEventListener implements DaemonEvent.Listener {
 
   @Override
   public void onAppLog(@NotNull DaemonEvent.AppLog message) {
+    // A coalesced event holds a frame's worth of lines; store each line as its own record, so they can be filtered and
+    // paged through one at a time.
+    final long received = System.currentTimeMillis();
+    final int level = message.error ? FlutterLogStore.SEVERE : FlutterLogStore.INFO;
+    for (String line : (message.log == null ? "" : message.log).split("\n", -1)) {
+      app.getLogStore().add(received, level, STDOUT_LOGGER_NAME, null, line);
+    }
+
     final ConsoleView console = app.getConsole();
     if (console == null) return;
     console.print(message.log + "\n", message.error ? ConsoleViewContentType.ERROR_OUTPUT : ConsoleViewContentType.NORMAL_OUTPUT);
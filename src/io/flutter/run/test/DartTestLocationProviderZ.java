@@ -52,7 +52,7 @@ public class DartTestLocationProviderZ implements SMTestLocator, DumbAware {
                                     @NotNull String path,
                                     @NotNull Project project,
                                     @NotNull GlobalSearchScope scope) {
-    // see DartTestEventsConverterZ.addLocationHint()
+    // see DartTestEventsConverterZ.getLocationHint()
     // path is like /Users/x/projects/foo/test/foo_test.dart,35,12,["main tests","calculate_fail"]
 
     final int commaIdx1 = path.indexOf(',');
@@ -112,7 +112,8 @@ public class FlutterTestConfigProducer extends RunConfigurationProducer<TestConf
 
     final PsiElement target = context.getPsiLocation();
     if (target instanceof PsiDirectory) {
-      return ((PsiDirectory)target).getVirtualFile().equals(fileOrDir);
+      // Configurations that run only the affected tests are created in the editor, not from a directory.
+      return !config.getFields().isAffectedOnly() && ((PsiDirectory)target).getVirtualFile().equals(fileOrDir);
     }
 
     if (!FlutterRunConfigurationProducer.hasDartFile(context, fileOrDir.getPath())) return false;
@@ -10,6 +10,7 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.intellij.execution.testframework.TestConsoleProperties;
+import com.intellij.openapi.util.io.FileUtil;
 import com.jetbrains.lang.dart.util.DartUrlResolver;
 import io.flutter.test.DartTestEventsConverterZ;
 import org.jetbrains.annotations.NotNull;
@@ -25,10 +26,13 @@ public class FlutterTestEventsConverter extends DartTestEventsConverterZ {
    */
   public static final String SYNTHETIC_WIDGET_GROUP_NAME = "-";
 
+  @NotNull private final TestDurationStore durations;
+
   public FlutterTestEventsConverter(@NotNull String testFrameworkName,
                                     @NotNull TestConsoleProperties consoleProperties,
                                     @NotNull DartUrlResolver urlResolver) {
     super(testFrameworkName, consoleProperties, urlResolver);
+    durations = TestDurationStore.getInstance(consoleProperties.getProject());
   }
 
   /**
@@ -112,6 +116,23 @@ public class FlutterTestEventsConverter extends DartTestEventsConverterZ {
     }
   }
 
+  @Nullable
+  @Override
+  protected String testDone(@NotNull Test test, @Nullable String suitePath, long durationMillis) {
+    if (suitePath == null || durationMillis < 0) return null;
+
+    // Keyed like VirtualFile paths, so that test files can be looked up when scheduling a run.
+    final String path = FileUtil.toSystemIndependentName(suitePath);
+    final TestDurationStore.Stats before = durations.getStats(path, test.getName());
+    durations.record(path, test.getName(), durationMillis);
+    return TestDurationStore.describeSlowRun(before, durationMillis);
+  }
+
+  @Override
+  protected void allTestsDone() {
+    durations.flush();
+  }
+
   @Override
   protected boolean handleGroup(@NotNull Group group) throws ParseException {
     // Special case synthetic widget test groups.
@@ -24,6 +24,7 @@ import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.util.Key;
 import com.intellij.openapi.wm.ToolWindowId;
 import com.intellij.util.TimeoutUtil;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import com.intellij.xdebugger.XDebugProcess;
 import com.intellij.xdebugger.XDebugProcessStarter;
 import com.intellij.xdebugger.XDebugSession;
@@ -39,6 +40,7 @@ import io.flutter.settings.FlutterSettings;
 import io.flutter.utils.JsonUtils;
 import io.flutter.utils.StdoutJsonParser;
 import io.flutter.utils.VmServiceListenerAdapter;
+import io.flutter.vmService.VmServiceConnections;
 import io.flutter.vmService.VmServiceConsumers;
 import io.flutter.vmService.VmServiceConsumers.EmptyResumeConsumer;
 import org.dartlang.vm.service.VmService;
@@ -53,7 +55,7 @@ import org.dartlang.vm.service.element.VM;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.IOException;
+import java.util.concurrent.CompletionException;
 
 /**
  * Runs a Flutter test configuration in the debugger.
@@ -116,55 +118,59 @@ public class FlutterTestRunner extends GenericProgramRunner {
         return;
       }
 
-      final VmService vmService;
-
-      try {
-        vmService = VmService.connect(url);
-      }
-      catch (IOException | RuntimeException e) {
-        if (!launcher.isTerminated()) {
-          launcher.notifyTextAvailable(
-            "Failed to connect to the VM service at: " + url + "\n" + e + "\n",
-            ProcessOutputTypes.STDERR);
-        }
-        return;
-      }
-
-      // Listen for debug 'PauseStart' events for isolates after the initial connect and resume those isolates.
-      vmService.streamListen(VmService.DEBUG_STREAM_ID, VmServiceConsumers.EMPTY_SUCCESS_CONSUMER);
-      vmService.addVmServiceListener(new VmServiceListenerAdapter() {
-        @Override
-        public void received(String streamId, Event event) {
-          if (EventKind.PauseStart.equals(event.getKind())) {
-            resumePausedAtStartIsolate(launcher, vmService, event.getIsolate());
-          }
-        }
-      });
-
-      // Resume any isolates paused at the initial connect.
-      vmService.getVM(new VMConsumer() {
-        @Override
-        public void received(VM response) {
-          final ElementList<IsolateRef> isolates = response.getIsolates();
-          for (IsolateRef isolateRef : isolates) {
-            resumePausedAtStartIsolate(launcher, vmService, isolateRef);
-          }
-        }
-
-        @Override
-        public void onError(RPCError error) {
+      final String wsUrl = url;
+      // Continue on a pooled thread; the future may complete on the VM service's receiver thread.
+      VmServiceConnections.connect(wsUrl).whenCompleteAsync((vmService, error) -> {
+        if (error != null) {
+          final Throwable e = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
           if (!launcher.isTerminated()) {
             launcher.notifyTextAvailable(
-              "Error connecting to VM: " + error.getCode() + " " + error.getMessage() + "\n",
+              "Failed to connect to the VM service at: " + wsUrl + "\n" + e + "\n",
               ProcessOutputTypes.STDERR);
           }
+          return;
         }
-      });
+
+        onConnected(launcher, vmService);
+      }, AppExecutorUtil.getAppExecutorService());
     });
 
     return new RunContentBuilder(executionResult, env).showRunContent(env.getContentToReuse());
   }
 
+  private void onConnected(@NotNull TestLaunchState launcher, @NotNull VmService vmService) {
+    // Listen for debug 'PauseStart' events for isolates after the initial connect and resume those isolates.
+    vmService.streamListen(VmService.DEBUG_STREAM_ID, VmServiceConsumers.EMPTY_SUCCESS_CONSUMER);
+    vmService.addVmServiceListener(VmService.DEBUG_STREAM_ID, new VmServiceListenerAdapter() {
+      @Override
+      public void received(String streamId, Event event) {
+        if (EventKind.PauseStart.equals(event.getKind())) {
+          resumePausedAtStartIsolate(launcher, vmService, event.getIsolate());
+        }
+      }
+    });
+
+    // Resume any isolates paused at the initial connect.
+    vmService.getVM(new VMConsumer() {
+      @Override
+      public void received(VM response) {
+        final ElementList<IsolateRef> isolates = response.getIsolates();
+        for (IsolateRef isolateRef : isolates) {
+          resumePausedAtStartIsolate(launcher, vmService, isolateRef);
+        }
+      }
+
+      @Override
+      public void onError(RPCError error) {
+        if (!launcher.isTerminated()) {
+          launcher.notifyTextAvailable(
+            "Error connecting to VM: " + error.getCode() + " " + error.getMessage() + "\n",
+            ProcessOutputTypes.STDERR);
+        }
+      }
+    });
+  }
+
   private void resumePausedAtStartIsolate(@NotNull TestLaunchState launcher, @NotNull VmService vmService, @NotNull IsolateRef isolateRef) {
     if (isolateRef.getIsSystemIsolate()) {
       return;
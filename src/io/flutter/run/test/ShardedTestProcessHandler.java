@@ -0,0 +1,176 @@
+/*
+ * Copyright 2025 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.run.test;
+
+import com.intellij.execution.process.ProcessAdapter;
+import com.intellij.execution.process.ProcessEvent;
+import com.intellij.execution.process.ProcessHandler;
+import com.intellij.execution.process.ProcessOutputType;
+import com.intellij.execution.process.ProcessOutputTypes;
+import com.intellij.openapi.util.Key;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Runs the shards of a sharded test run as one process, merging their JSON event streams so that one converter can
+ * build a single test tree from them.
+ * <p>
+ * Each shard's output is forwarded a line at a time, with its ids remapped and its suites and groups merged with the
+ * other shards' by {@link TestShardEvents}. When a shard exits, its wall time is reported. The run ends when every
+ * shard has exited.
+ */
+class ShardedTestProcessHandler extends ProcessHandler {
+  @NotNull
+  private final List<? extends ProcessHandler> shards;
+
+  @NotNull
+  private final TestShardEvents events;
+
+  private final long startNanos = System.nanoTime();
+
+  private int runningShards;
+  private int exitCode;
+  private boolean destroyed;
+
+  /**
+   * @param shardsShareSuites whether the test runner splits each suite's tests between the shards, rather than each
+   *                          shard running whole suites
+   */
+  ShardedTestProcessHandler(@NotNull List<? extends ProcessHandler> shards, boolean shardsShareSuites) {
+    this.shards = shards;
+    this.events = new TestShardEvents(shards.size(), shardsShareSuites);
+    this.runningShards = shards.size();
+  }
+
+  @Override
+  public void startNotify() {
+    super.startNotify();
+    notifyTextAvailable(TestShardEvents.START_EVENT, ProcessOutputTypes.STDOUT);
+
+    for (int i = 0; i < shards.size(); i++) {
+      final ProcessHandler shard = shards.get(i);
+      shard.addProcessListener(new ShardListener(i));
+      shard.startNotify();
+    }
+  }
+
+  @Override
+  protected void destroyProcessImpl() {
+    synchronized (this) {
+      destroyed = true;
+    }
+    for (ProcessHandler shard : shards) {
+      shard.destroyProcess();
+    }
+  }
+
+  @Override
+  protected void detachProcessImpl() {
+    for (ProcessHandler shard : shards) {
+      shard.detachProcess();
+    }
+    notifyProcessDetached();
+  }
+
+  @Override
+  public boolean detachIsDefault() {
+    return false;
+  }
+
+  @Nullable
+  @Override
+  public OutputStream getProcessInput() {
+    return null;
+  }
+
+  /**
+   * Forwards a line of a shard's output; lines from different shards are forwarded one at a time.
+   */
+  private synchronized void forward(@NotNull String text, @NotNull Key<?> outputType) {
+    notifyTextAvailable(text, outputType);
+  }
+
+  /**
+   * Remaps the ids in a stdout line of a shard and forwards it, unless it reports a suite or group that was already
+   * forwarded. Both happen under the handler's lock, so the merged stream has lines in the order their ids were
+   * assigned.
+   */
+  private synchronized void forwardShardLine(@NotNull String line, int shardIndex, @NotNull Key<?> outputType) {
+    final String remapped = events.remapIds(line, shardIndex);
+    if (remapped != null) {
+      notifyTextAvailable(remapped, outputType);
+    }
+  }
+
+  private void shardTerminated(int shardIndex, int shardExitCode) {
+    final long millis = (System.nanoTime() - startNanos) / 1_000_000;
+    final boolean done;
+    synchronized (this) {
+      notifyTextAvailable("Shard " + (shardIndex + 1) + " of " + shards.size() + " finished in " + formatSeconds(millis) +
+                          " (exit code " + shardExitCode + ")\n", ProcessOutputTypes.SYSTEM);
+      if (exitCode == 0) {
+        exitCode = shardExitCode;
+      }
+      done = --runningShards == 0;
+
+      if (done && !destroyed) {
+        notifyTextAvailable(TestShardEvents.doneEvent(exitCode == 0, millis), ProcessOutputTypes.STDOUT);
+      }
+    }
+
+    if (done) {
+      notifyProcessTerminated(exitCode);
+    }
+  }
+
+  @NotNull
+  private static String formatSeconds(long millis) {
+    return String.format("%.1fs", millis / 1000.0);
+  }
+
+  private class ShardListener extends ProcessAdapter {
+    private final int shardIndex;
+
+    /**
+     * The start of a stdout line whose end hasn't arrived yet.
+     */
+    @NotNull
+    private final StringBuilder partialLine = new StringBuilder();
+
+    ShardListener(int shardIndex) {
+      this.shardIndex = shardIndex;
+    }
+
+    @Override
+    public void onTextAvailable(@NotNull ProcessEvent event, @NotNull Key outputType) {
+      if (!ProcessOutputType.isStdout(outputType)) {
+        forward(event.getText(), outputType);
+        return;
+      }
+
+      partialLine.append(event.getText());
+      if (partialLine.isEmpty() || partialLine.charAt(partialLine.length() - 1) != '\n') return;
+
+      final String line = partialLine.toString();
+      partialLine.setLength(0);
+      if (TestShardEvents.isRunEvent(line)) return;
+
+      forwardShardLine(line, shardIndex, outputType);
+    }
+
+    @Override
+    public void processTerminated(@NotNull ProcessEvent event) {
+      if (!partialLine.isEmpty()) {
+        forwardShardLine(partialLine + "\n", shardIndex, ProcessOutputTypes.STDOUT);
+        partialLine.setLength(0);
+      }
+      shardTerminated(shardIndex, event.getExitCode());
+    }
+  }
+}
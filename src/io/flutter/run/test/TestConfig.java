@@ -43,6 +43,16 @@ public class TestConfig extends LocatableConfigurationBase<CommandLineState> imp
 
   public void setFields(@NotNull TestFields fields) {
     this.fields = fields;
+    trackChangesIfNeeded();
+  }
+
+  /**
+   * Starts tracking changed Dart files, if this configuration runs only the tests affected by them.
+   */
+  private void trackChangesIfNeeded() {
+    if (fields.isAffectedOnly()) {
+      TestImpactService.getInstance(getProject());
+    }
   }
 
   @Override
@@ -55,6 +65,7 @@ public class TestConfig extends LocatableConfigurationBase<CommandLineState> imp
   public void readExternal(@NotNull Element element) throws InvalidDataException {
     super.readExternal(element);
     fields = TestFields.readFrom(element);
+    trackChangesIfNeeded();
   }
 
   @Override
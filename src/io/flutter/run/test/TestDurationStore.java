@@ -0,0 +1,345 @@
+/*
+ * Copyright 2025 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.run.test;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import io.flutter.logging.PluginLogger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+
+/**
+ * Remembers how long each test took in its recent runs, keyed by the path of its suite and its name.
+ * <p>
+ * Durations are appended to a log file, one line per test run. When the log has grown to several times the number of
+ * durations kept, it's rewritten with just those. The durations are used to run the slowest test files first, to
+ * balance shards, and to point out tests that were much slower than usual.
+ */
+public class TestDurationStore implements Disposable {
+  private static final @NotNull Logger LOG = PluginLogger.createLogger(TestDurationStore.class);
+
+  /**
+   * The number of recent durations kept for each test.
+   */
+  static final int MAX_RUNS = 20;
+
+  /**
+   * The number of recent runs a test needs before it's reported as slower than usual.
+   */
+  static final int MIN_RUNS_FOR_TRENDS = 5;
+
+  private static final int MIN_LINES_TO_COMPACT = 1000;
+  private static final int COMPACT_RATIO = 3;
+
+  /**
+   * Unsaved durations are written once there are this many.
+   */
+  private static final int MAX_PENDING_LINES = 500;
+
+  @NotNull
+  public static TestDurationStore getInstance(@NotNull final Project project) {
+    return Objects.requireNonNull(project.getService(TestDurationStore.class));
+  }
+
+  /**
+   * The median and 95th percentile of a test's recent durations, in milliseconds.
+   */
+  record Stats(int runs, long p50, long p95) {
+  }
+
+  /**
+   * The recent durations of a test, oldest first once full.
+   */
+  private static final class Runs {
+    final long[] millis = new long[MAX_RUNS];
+    int count;
+    int next;
+
+    void add(long duration) {
+      millis[next] = duration;
+      next = (next + 1) % MAX_RUNS;
+      count = Math.min(count + 1, MAX_RUNS);
+    }
+
+    @NotNull
+    Stats getStats() {
+      final long[] sorted = Arrays.copyOf(millis, count);
+      Arrays.sort(sorted);
+      return new Stats(count, percentile(sorted, 50), percentile(sorted, 95));
+    }
+
+    private static long percentile(long[] sorted, int percent) {
+      final int index = (int)Math.ceil(percent / 100.0 * sorted.length) - 1;
+      return sorted[Math.max(0, index)];
+    }
+
+    /**
+     * Returns the durations, oldest first.
+     */
+    long[] toArray() {
+      final long[] result = new long[count];
+      final int start = count < MAX_RUNS ? 0 : next;
+      for (int i = 0; i < count; i++) {
+        result[i] = millis[(start + i) % MAX_RUNS];
+      }
+      return result;
+    }
+  }
+
+  @NotNull private final Path file;
+
+  /**
+   * For each suite path, the recent durations of each of its tests, by test name.
+   */
+  private final Map<String, Map<String, Runs>> suites = new HashMap<>();
+
+  private final List<String> pendingLines = new ArrayList<>();
+  private int logLines;
+  private boolean loaded;
+
+  private TestDurationStore(@NotNull final Project project) {
+    this(Path.of(PathManager.getSystemPath(), "flutter", "test-durations", project.getLocationHash() + ".log"));
+  }
+
+  TestDurationStore(@NotNull Path file) {
+    this.file = file;
+  }
+
+  /**
+   * Records how long a test took.
+   */
+  synchronized void record(@NotNull String suitePath, @NotNull String testName, long millis) {
+    load();
+    add(suitePath, testName, millis);
+    pendingLines.add(escape(suitePath) + '\t' + escape(testName) + '\t' + millis);
+    if (pendingLines.size() >= MAX_PENDING_LINES) {
+      flush();
+    }
+  }
+
+  @Nullable
+  synchronized Stats getStats(@NotNull String suitePath, @NotNull String testName) {
+    load();
+    final Map<String, Runs> tests = suites.get(suitePath);
+    final Runs runs = tests == null ? null : tests.get(testName);
+    return runs == null ? null : runs.getStats();
+  }
+
+  /**
+   * Returns how long the tests in a suite usually take in total, or -1 if none of them has run.
+   */
+  synchronized long getExpectedMillis(@NotNull String suitePath) {
+    load();
+    final Map<String, Runs> tests = suites.get(suitePath);
+    if (tests == null) return -1;
+
+    long total = 0;
+    for (Runs runs : tests.values()) {
+      total += runs.getStats().p50();
+    }
+    return total;
+  }
+
+  /**
+   * Returns a note for a test that took much longer than it usually does, or null.
+   *
+   * @param before the test's durations before this run
+   */
+  @Nullable
+  static String describeSlowRun(@Nullable Stats before, long millis) {
+    if (before == null || before.runs() < MIN_RUNS_FOR_TRENDS) return null;
+    if (millis <= before.p95() || millis < 2 * before.p50() || millis - before.p50() < 100) return null;
+
+    return "Slower than usual: took " + millis + " ms; p50 " + before.p50() + " ms, p95 " + before.p95() + " ms over the last " +
+           before.runs() + " runs\n";
+  }
+
+  /**
+   * Orders suites so that the ones expected to take longest come first. Suites that haven't run keep their order,
+   * after the ones that have.
+   */
+  @NotNull
+  List<String> sortSlowestFirst(@NotNull List<String> suitePaths) {
+    final List<String> sorted = new ArrayList<>(suitePaths);
+    sorted.sort(Comparator.comparingLong(this::getExpectedMillis).reversed());
+    return sorted;
+  }
+
+  /**
+   * Splits suites into at most <code>shardCount</code> lists with about the same expected time, by adding each suite,
+   * slowest first, to the shard with the least time so far. Suites that haven't run are expected to take the average
+   * time of the ones that have.
+   */
+  @NotNull
+  List<List<String>> planShards(@NotNull List<String> suitePaths, int shardCount) {
+    final Map<String, Long> expected = new HashMap<>();
+    long knownTotal = 0;
+    int known = 0;
+    for (String path : suitePaths) {
+      final long millis = getExpectedMillis(path);
+      expected.put(path, millis);
+      if (millis >= 0) {
+        knownTotal += millis;
+        known++;
+      }
+    }
+    final long average = known == 0 ? 1 : Math.max(1, knownTotal / known);
+    expected.replaceAll((path, millis) -> millis < 0 ? average : millis);
+
+    final List<String> slowestFirst = new ArrayList<>(suitePaths);
+    slowestFirst.sort(Comparator.comparingLong((String path) -> expected.get(path)).reversed());
+
+    final List<List<String>> shards = new ArrayList<>();
+    final long[] loads = new long[shardCount];
+    final PriorityQueue<Integer> leastLoaded =
+      new PriorityQueue<>(Comparator.<Integer>comparingLong((shard) -> loads[shard]).thenComparingInt((shard) -> shard));
+    for (int i = 0; i < shardCount; i++) {
+      shards.add(new ArrayList<>());
+      leastLoaded.add(i);
+    }
+    for (String path : slowestFirst) {
+      final int shard = leastLoaded.remove();
+      shards.get(shard).add(path);
+      loads[shard] += expected.get(path);
+      leastLoaded.add(shard);
+    }
+    shards.removeIf(List::isEmpty);
+    return shards;
+  }
+
+  /**
+   * Writes the durations recorded since the last flush.
+   */
+  synchronized void flush() {
+    if (pendingLines.isEmpty()) return;
+
+    try {
+      Files.createDirectories(file.getParent());
+      Files.write(file, pendingLines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+      logLines += pendingLines.size();
+      pendingLines.clear();
+
+      final int kept = countRuns();
+      if (logLines >= MIN_LINES_TO_COMPACT && logLines > COMPACT_RATIO * kept) {
+        compact();
+      }
+    }
+    catch (IOException e) {
+      LOG.warn("Unable to save test durations to " + file + ": " + e.getMessage());
+      pendingLines.clear();
+    }
+  }
+
+  private void load() {
+    if (loaded) return;
+    loaded = true;
+    if (!Files.exists(file)) return;
+
+    try {
+      for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+        logLines++;
+        final String[] parts = line.split("\t", -1);
+        if (parts.length != 3) continue;
+        try {
+          add(unescape(parts[0]), unescape(parts[1]), Long.parseLong(parts[2]));
+        }
+        catch (NumberFormatException e) {
+          // Skip a line that was only partly written.
+        }
+      }
+    }
+    catch (IOException e) {
+      LOG.warn("Unable to read test durations from " + file + ": " + e.getMessage());
+    }
+  }
+
+  private void add(@NotNull String suitePath, @NotNull String testName, long millis) {
+    suites.computeIfAbsent(suitePath, (key) -> new HashMap<>()).computeIfAbsent(testName, (key) -> new Runs()).add(millis);
+  }
+
+  private int countRuns() {
+    int count = 0;
+    for (Map<String, Runs> tests : suites.values()) {
+      for (Runs runs : tests.values()) {
+        count += runs.count;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Rewrites the log with just the durations that are kept.
+   */
+  private void compact() throws IOException {
+    final Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+    int lines = 0;
+    try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+      for (Map.Entry<String, Map<String, Runs>> suite : suites.entrySet()) {
+        final String suitePath = escape(suite.getKey());
+        for (Map.Entry<String, Runs> test : suite.getValue().entrySet()) {
+          final String prefix = suitePath + '\t' + escape(test.getKey()) + '\t';
+          for (long millis : test.getValue().toArray()) {
+            writer.write(prefix + millis);
+            writer.newLine();
+            lines++;
+          }
+        }
+      }
+    }
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    logLines = lines;
+  }
+
+  @NotNull
+  private static String escape(@NotNull String text) {
+    return text.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+  }
+
+  @NotNull
+  private static String unescape(@NotNull String text) {
+    if (text.indexOf('\\') < 0) return text;
+
+    final StringBuilder result = new StringBuilder(text.length());
+    for (int i = 0; i < text.length(); i++) {
+      final char c = text.charAt(i);
+      if (c != '\\' || i + 1 == text.length()) {
+        result.append(c);
+        continue;
+      }
+      final char next = text.charAt(++i);
+      result.append(switch (next) {
+        case 't' -> '\t';
+        case 'n' -> '\n';
+        case 'r' -> '\r';
+        default -> next;
+      });
+    }
+    return result.toString();
+  }
+
+  @Override
+  public void dispose() {
+    flush();
+  }
+}
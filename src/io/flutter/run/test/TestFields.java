@@ -8,20 +8,26 @@ package io.flutter.run.test;
 import com.google.common.annotations.VisibleForTesting;
 import com.intellij.execution.ExecutionException;
 import com.intellij.execution.configurations.RuntimeConfigurationError;
+import com.intellij.execution.process.ProcessHandler;
+import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.InvalidDataException;
 import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VfsUtilCore;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileVisitor;
 import com.intellij.util.execution.ParametersListUtil;
+import io.flutter.logging.PluginLogger;
 import io.flutter.pub.PubRoot;
 import io.flutter.run.FlutterDevice;
 import io.flutter.run.MainFile;
 import io.flutter.run.common.RunMode;
 import io.flutter.run.daemon.DeviceService;
 import io.flutter.sdk.FlutterCommandStartResult;
+import io.flutter.sdk.FlutterCommandStartResultStatus;
 import io.flutter.sdk.FlutterSdk;
 import io.flutter.utils.ElementIO;
+import io.flutter.utils.OpenApiUtils;
 import org.jdom.Element;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -32,6 +38,14 @@ import java.util.*;
  * Settings for running a Flutter test.
  */
 public class TestFields {
+  private static final @NotNull Logger LOG = PluginLogger.createLogger(TestFields.class);
+
+  /**
+   * The most characters of file paths to pass to the test runner, well below the Windows command line limit of 32K
+   * characters. Longer lists of files are passed as their directory instead.
+   */
+  static final int MAX_TARGET_CHARS = 16_000;
+
   @Nullable
   private final String testName;
 
@@ -44,6 +58,8 @@ public class TestFields {
   @Nullable
   private String additionalArgs;
   private boolean useRegexp = false;
+  private int shardCount = 1;
+  private boolean affectedOnly = false;
 
   private TestFields(@Nullable String testName, @Nullable String testFile, @Nullable String testDir, @Nullable String additionalArgs) {
     if (testFile == null && testDir == null) {
@@ -72,7 +88,10 @@ public class TestFields {
   }
 
   public TestFields copy() {
-    return new TestFields(testName, testFile, testDir, additionalArgs).useRegexp(useRegexp);
+    final TestFields copy = new TestFields(testName, testFile, testDir, additionalArgs).useRegexp(useRegexp);
+    copy.setShardCount(shardCount);
+    copy.setAffectedOnly(affectedOnly);
+    return copy;
   }
 
   /**
@@ -148,6 +167,38 @@ public class TestFields {
     additionalArgs = args;
   }
 
+  /**
+   * The number of test runner processes to split the tests in a directory across; 1 runs them in a single process.
+   */
+  public int getShardCount() {
+    return shardCount;
+  }
+
+  public void setShardCount(int shardCount) {
+    this.shardCount = shardCount;
+  }
+
+  /**
+   * If true, only the tests in the directory that depend on the Dart files changed since the last run of affected
+   * tests are run.
+   */
+  public boolean isAffectedOnly() {
+    return affectedOnly && getScope() == Scope.DIRECTORY;
+  }
+
+  public void setAffectedOnly(boolean affectedOnly) {
+    this.affectedOnly = affectedOnly;
+  }
+
+  /**
+   * Returns whether the tests will be split across several test runner processes.
+   * <p>
+   * Only directory runs without the debugger or coverage are sharded, since those attach to a single process.
+   */
+  boolean isSharded(@NotNull RunMode mode) {
+    return shardCount > 1 && getScope() == Scope.DIRECTORY && mode == RunMode.RUN;
+  }
+
   /**
    * Returns the file or directory containing the tests to run, or null if it doesn't exist.
    */
@@ -204,7 +255,7 @@ public class TestFields {
         return "tests in " + file.getName();
       case DIRECTORY:
         final String relativePath = getRelativePath(project);
-        if (relativePath != null) return "tests in " + relativePath;
+        if (relativePath != null) return (isAffectedOnly() ? "affected tests in " : "tests in ") + relativePath;
 
         // check if it's the pub root itself.
         final PubRoot root = getPubRoot(project);
@@ -222,6 +273,12 @@ public class TestFields {
     ElementIO.addOption(elt, "testDir", testDir);
     ElementIO.addOption(elt, "useRegexp", useRegexp ? "true" : "false");
     ElementIO.addOption(elt, "additionalArgs", additionalArgs);
+    if (shardCount != 1) {
+      ElementIO.addOption(elt, "shardCount", String.valueOf(shardCount));
+    }
+    if (affectedOnly) {
+      ElementIO.addOption(elt, "affectedOnly", "true");
+    }
   }
 
   /**
@@ -236,8 +293,14 @@ public class TestFields {
     final String testDir = options.get("testDir");
     final String useRegexp = options.get("useRegexp");
     final String additionalArgs = options.get("additionalArgs");
+    final String shardCount = options.get("shardCount");
     try {
-      return new TestFields(testName, testFile, testDir, additionalArgs).useRegexp("true".equals(useRegexp));
+      final TestFields fields = new TestFields(testName, testFile, testDir, additionalArgs).useRegexp("true".equals(useRegexp));
+      if (shardCount != null) {
+        fields.setShardCount(Integer.parseInt(shardCount));
+      }
+      fields.setAffectedOnly("true".equals(options.get("affectedOnly")));
+      return fields;
     }
     catch (IllegalArgumentException e) {
       throw new InvalidDataException(e.getMessage());
@@ -252,6 +315,9 @@ public class TestFields {
   void checkRunnable(@NotNull Project project) throws RuntimeConfigurationError {
     checkSdk(project);
     getScope().checkRunnable(this, project);
+    if (shardCount < 1) {
+      throw new RuntimeConfigurationError("The number of shards must be at least 1");
+    }
   }
 
   /**
@@ -277,7 +343,188 @@ public class TestFields {
     }
 
     final String args = adjustArgs(root, fileOrDir, project);
-    return sdk.flutterTest(root, fileOrDir, testName, mode, args, getScope(), useRegexp).startProcess(project);
+    final TestImpactService.AffectedTests affected = findAffectedTests(project, root, fileOrDir);
+    final List<VirtualFile> listed = getListedTests(fileOrDir, affected);
+    List<VirtualFile> targets = List.of(fileOrDir);
+    if (listed != null) {
+      // The affected tests are listed file by file anyway, so start the slowest first. A directory run keeps the test
+      // runner's own order.
+      final TestDurationStore durations = TestDurationStore.getInstance(project);
+      targets = hasDurations(durations, listed) ? toFiles(durations.sortSlowestFirst(toPaths(listed)), listed) : listed;
+    }
+    final FlutterCommandStartResult result =
+      sdk.flutterTest(root, targets, testName, mode, args, getScope(), useRegexp, 1, 0).startProcess(project);
+    if (affected != null && result.status == FlutterCommandStartResultStatus.OK) {
+      TestImpactService.getInstance(project).markRun(affected);
+    }
+    return result;
+  }
+
+  /**
+   * Starts running the tests in a directory as {@link #getShardCount} shards, each in its own test runner process.
+   * <p>
+   * When some of the test files have run before, they're split between the shards by how long they're expected to
+   * take, as long as each shard's files fit on a command line. Otherwise the test runner splits them with its shard
+   * flags.
+   * <p>
+   * The returned handler merges the shards' output into one stream of test events.
+   */
+  @NotNull
+  ProcessHandler runSharded(@NotNull Project project) throws ExecutionException {
+    final FlutterSdk sdk = FlutterSdk.getFlutterSdk(project);
+    if (sdk == null) {
+      throw new ExecutionException("The Flutter SDK is not configured");
+    }
+
+    final VirtualFile fileOrDir = getFileOrDir();
+    if (fileOrDir == null) {
+      throw new ExecutionException("File or directory not found");
+    }
+
+    final PubRoot root = getPubRoot(project);
+    if (root == null) {
+      throw new ExecutionException("Test file isn't within a Flutter pub root");
+    }
+
+    final String args = adjustArgs(root, fileOrDir, project);
+    final TestImpactService.AffectedTests affected = findAffectedTests(project, root, fileOrDir);
+    final List<VirtualFile> listed = getListedTests(fileOrDir, affected);
+    final List<VirtualFile> targets = listed == null ? List.of(fileOrDir) : listed;
+    final List<VirtualFile> tests = findTestFiles(targets);
+    final TestDurationStore durations = TestDurationStore.getInstance(project);
+    List<List<String>> plan = hasDurations(durations, tests) ? durations.planShards(toPaths(tests), shardCount) : null;
+    if (plan != null && !plan.stream().allMatch(TestFields::fitsCommandLine)) {
+      // Let the test runner split the files instead.
+      plan = null;
+    }
+
+    final int count = plan == null ? shardCount : plan.size();
+    final List<ProcessHandler> shards = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      final FlutterCommandStartResult result = plan == null
+        ? sdk.flutterTest(root, targets, null, RunMode.RUN, args, getScope(), useRegexp, shardCount, i).startProcess(project)
+        : sdk.flutterTest(root, toFiles(plan.get(i), tests), null, RunMode.RUN, args, getScope(), useRegexp, 1, 0).startProcess(project);
+      if (result.status != FlutterCommandStartResultStatus.OK || result.processHandler == null) {
+        for (ProcessHandler shard : shards) {
+          shard.destroyProcess();
+        }
+        throw result.exception != null ? result.exception : new ExecutionException("Unable to start test shard " + (i + 1));
+      }
+      shards.add(result.processHandler);
+    }
+    if (affected != null) {
+      TestImpactService.getInstance(project).markRun(affected);
+    }
+    return new ShardedTestProcessHandler(shards, plan == null);
+  }
+
+  /**
+   * Returns the affected tests to run when only those are run, or null to run the whole file or directory. The first
+   * run of a directory's affected tests runs all of them, and is still recorded so later runs only count changes made
+   * after it.
+   */
+  @Nullable
+  private TestImpactService.AffectedTests findAffectedTests(@NotNull Project project, @NotNull PubRoot root,
+                                                            @NotNull VirtualFile fileOrDir) throws ExecutionException {
+    if (!isAffectedOnly()) {
+      return null;
+    }
+
+    final TestImpactService.AffectedTests affected = TestImpactService.getInstance(project).findAffectedTests(root, fileOrDir);
+    if (affected.firstRun()) {
+      LOG.info("Running all tests in " + fileOrDir.getPath() + "; its affected tests haven't been run before");
+      return affected;
+    }
+    if (affected.tests().isEmpty()) {
+      throw new ExecutionException("No tests in " + fileOrDir.getName() + " are affected by the Dart files changed since the last run");
+    }
+    return affected;
+  }
+
+  /**
+   * Returns the affected tests to pass to the test runner, or null to pass the directory, either because all of its
+   * tests are run, including on the first run of its affected tests, or because there are too many affected tests to
+   * list on a command line.
+   */
+  @Nullable
+  private static List<VirtualFile> getListedTests(@NotNull VirtualFile dir, @Nullable TestImpactService.AffectedTests affected) {
+    if (affected == null || affected.firstRun()) return null;
+
+    if (!fitsCommandLine(toPaths(affected.tests()))) {
+      LOG.info("Running all tests in " + dir.getPath() + "; " + affected.tests().size() + " affected tests are too many to list");
+      return null;
+    }
+    return affected.tests();
+  }
+
+  /**
+   * Returns the test files among the given files and in the given directories, in path order.
+   */
+  @NotNull
+  private static List<VirtualFile> findTestFiles(@NotNull List<VirtualFile> filesOrDirs) {
+    final Set<VirtualFile> tests = new TreeSet<>(Comparator.comparing(VirtualFile::getPath));
+    OpenApiUtils.safeRunReadAction(() -> {
+      for (VirtualFile fileOrDir : filesOrDirs) {
+        VfsUtilCore.visitChildrenRecursively(fileOrDir, new VirtualFileVisitor<Void>() {
+          @Override
+          public boolean visitFile(@NotNull VirtualFile file) {
+            if (file.isDirectory()) {
+              return !file.getName().startsWith(".");
+            }
+            if (file.getName().endsWith("_test.dart")) {
+              tests.add(file);
+            }
+            return true;
+          }
+        });
+      }
+    });
+    return new ArrayList<>(tests);
+  }
+
+  /**
+   * Whether a list of files is short enough to pass to the test runner on its command line.
+   */
+  static boolean fitsCommandLine(@NotNull List<String> paths) {
+    long chars = 0;
+    for (String path : paths) {
+      // Allow for quotes and a separating space.
+      chars += path.length() + 3;
+      if (chars > MAX_TARGET_CHARS) return false;
+    }
+    return true;
+  }
+
+  private static boolean hasDurations(@NotNull TestDurationStore durations, @NotNull List<VirtualFile> tests) {
+    for (VirtualFile test : tests) {
+      if (durations.getExpectedMillis(test.getPath()) >= 0) return true;
+    }
+    return false;
+  }
+
+  @NotNull
+  private static List<String> toPaths(@NotNull List<VirtualFile> files) {
+    final List<String> paths = new ArrayList<>(files.size());
+    for (VirtualFile file : files) {
+      paths.add(file.getPath());
+    }
+    return paths;
+  }
+
+  /**
+   * Maps paths back to the files they came from, keeping the order of the paths.
+   */
+  @NotNull
+  private static List<VirtualFile> toFiles(@NotNull List<String> paths, @NotNull List<VirtualFile> files) {
+    final Map<String, VirtualFile> byPath = new HashMap<>();
+    for (VirtualFile file : files) {
+      byPath.put(file.getPath(), file);
+    }
+    final List<VirtualFile> result = new ArrayList<>(paths.size());
+    for (String path : paths) {
+      result.add(byPath.get(path));
+    }
+    return result;
   }
 
   @Nullable
@@ -24,6 +24,8 @@ import static io.flutter.run.test.TestFields.Scope.*;
  * Settings editor for running Flutter tests.
  */
 public class TestForm extends SettingsEditor<TestConfig> {
+  private static final int MAX_SHARDS = 256;
+
   private JPanel form;
 
   private JComboBox<Scope> scope;
@@ -42,6 +44,12 @@ public class TestForm extends SettingsEditor<TestConfig> {
 
   private com.intellij.ui.components.fields.ExpandableTextField additionalArgs;
 
+  private JLabel shardCountLabel;
+  private JSpinner shardCount;
+  private JLabel shardCountHintLabel;
+
+  private JCheckBox affectedOnly;
+
   private Scope displayedScope;
 
   TestForm(@NotNull Project project) {
@@ -62,6 +70,8 @@ public class TestForm extends SettingsEditor<TestConfig> {
       }
     });
 
+    shardCount.setModel(new SpinnerNumberModel(1, 1, MAX_SHARDS, 1));
+
     initDartFileTextWithBrowse(project, testFile);
     testDir.addBrowseFolderListener(project, FileChooserDescriptorFactory.createSingleFolderDescriptor()
       .withTitle("Test Directory"));
@@ -90,6 +100,8 @@ public class TestForm extends SettingsEditor<TestConfig> {
         break;
     }
     additionalArgs.setText(fields.getAdditionalArgs());
+    shardCount.setValue(Math.max(1, Math.min(fields.getShardCount(), MAX_SHARDS)));
+    affectedOnly.setSelected(fields.isAffectedOnly());
     render(next);
   }
 
@@ -101,6 +113,8 @@ public class TestForm extends SettingsEditor<TestConfig> {
       case DIRECTORY -> TestFields.forDir(testDir.getText());
     };
     fields.setAdditionalArgs(additionalArgs.getText().trim());
+    fields.setShardCount((Integer)shardCount.getValue());
+    fields.setAffectedOnly(affectedOnly.isSelected());
     config.setFields(fields);
   }
 
@@ -154,6 +168,11 @@ public class TestForm extends SettingsEditor<TestConfig> {
     testNameHintLabel.setVisible(next == Scope.NAME);
     testName.setVisible(next == Scope.NAME);
 
+    shardCountLabel.setVisible(next == Scope.DIRECTORY);
+    shardCountHintLabel.setVisible(next == Scope.DIRECTORY);
+    shardCount.setVisible(next == Scope.DIRECTORY);
+    affectedOnly.setVisible(next == Scope.DIRECTORY);
+
     displayedScope = next;
   }
 }
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2025 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.run.test;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The import graph of the Dart files in a package, used to find the tests that a change can affect.
+ * <p>
+ * Files are identified by path. For each file the index keeps the files its import, export and part directives refer
+ * to, and the reverse edges, so that the files depending on a changed file can be found without visiting the rest of
+ * the package. A file's edges are replaced when it's indexed again, so the index is kept up to date a file at a time.
+ * <p>
+ * Access is synchronized; the index is updated from a pooled thread while a test run reads it.
+ */
+class TestImpactIndex {
+  /**
+   * Matches an import, export or part directive, up to its semicolon. "part of" directives don't depend on anything.
+   */
+  private static final Pattern DIRECTIVE =
+    Pattern.compile("^\\s*(?:import|export|part)\\s+(?!of\\b)([^;]*);", Pattern.MULTILINE);
+  private static final Pattern STRING_LITERAL = Pattern.compile("'([^']*)'|\"([^\"]*)\"");
+
+  /**
+   * For each indexed file, the files it depends on directly.
+   */
+  private final Map<String, Set<String>> dependencies = new HashMap<>();
+
+  /**
+   * For each file, the indexed files that depend on it directly.
+   */
+  private final Map<String, Set<String>> dependents = new HashMap<>();
+
+  /**
+   * Returns the URIs in the import, export and part directives of a Dart file, including the URIs of conditional
+   * imports.
+   */
+  @NotNull
+  static List<String> findDirectiveUris(@NotNull CharSequence text) {
+    final List<String> uris = new ArrayList<>();
+    final Matcher directives = DIRECTIVE.matcher(text);
+    while (directives.find()) {
+      final Matcher strings = STRING_LITERAL.matcher(directives.group(1));
+      while (strings.find()) {
+        final String uri = strings.group(1) != null ? strings.group(1) : strings.group(2);
+        if (uri.endsWith(".dart")) {
+          uris.add(uri);
+        }
+      }
+    }
+    return uris;
+  }
+
+  /**
+   * Records the files that a file depends on directly, replacing what was recorded before.
+   */
+  synchronized void update(@NotNull String path, @NotNull Collection<String> directDependencies) {
+    remove(path);
+
+    final Set<String> targets = new HashSet<>(directDependencies);
+    dependencies.put(path, targets);
+    for (String target : targets) {
+      dependents.computeIfAbsent(target, (key) -> new HashSet<>()).add(path);
+    }
+  }
+
+  /**
+   * Forgets a file's dependencies, for instance when it's deleted. Files that depend on it keep their edges to it.
+   */
+  synchronized void remove(@NotNull String path) {
+    final Set<String> targets = dependencies.remove(path);
+    if (targets == null) return;
+
+    for (String target : targets) {
+      final Set<String> sources = dependents.get(target);
+      if (sources != null) {
+        sources.remove(path);
+        if (sources.isEmpty()) {
+          dependents.remove(target);
+        }
+      }
+    }
+  }
+
+  synchronized boolean contains(@NotNull String path) {
+    return dependencies.containsKey(path);
+  }
+
+  synchronized int size() {
+    return dependencies.size();
+  }
+
+  /**
+   * Returns the tests that depend on any of the changed files, directly or transitively, in path order. A changed
+   * file that is itself a test is included.
+   */
+  @NotNull
+  synchronized Set<String> findAffectedTests(@NotNull Collection<String> changedPaths, @NotNull Predicate<String> isTest) {
+    final Set<String> visited = new HashSet<>(changedPaths);
+    final Deque<String> toVisit = new ArrayDeque<>(changedPaths);
+    final Set<String> tests = new TreeSet<>();
+    while (!toVisit.isEmpty()) {
+      final String path = toVisit.pop();
+      if (isTest.test(path)) {
+        tests.add(path);
+      }
+      for (String dependent : dependents.getOrDefault(path, Set.of())) {
+        if (visited.add(dependent)) {
+          toVisit.push(dependent);
+        }
+      }
+    }
+    return tests;
+  }
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright 2025 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.run.test;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.ThrowableComputable;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.VirtualFileVisitor;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import com.jetbrains.lang.dart.util.DartUrlResolver;
+import io.flutter.logging.PluginLogger;
+import io.flutter.pub.PubRoot;
+import io.flutter.utils.OpenApiUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Finds the tests affected by the Dart files changed since the last run of affected tests in a directory.
+ * <p>
+ * Each pub root gets a {@link TestImpactIndex}, built the first time its affected tests are asked for. After that,
+ * Dart files that change on disk are indexed again just before the next lookup, so only the changed files are read.
+ * <p>
+ * Changes are stamped with a counter rather than consumed, so runs of different directories don't take each other's
+ * changes. Only changes in the project's directory or in an indexed pub root are kept, one entry per file.
+ */
+public class TestImpactService implements Disposable {
+  private static final @NotNull Logger LOG = PluginLogger.createLogger(TestImpactService.class);
+
+  private static final String DART_EXTENSION = ".dart";
+  private static final String TEST_SUFFIX = "_test.dart";
+
+  @NotNull
+  public static TestImpactService getInstance(@NotNull final Project project) {
+    return Objects.requireNonNull(project.getService(TestImpactService.class));
+  }
+
+  @NotNull private final Project project;
+
+  /**
+   * The index of each pub root, by the root's path.
+   */
+  private final Map<String, TestImpactIndex> indexes = new ConcurrentHashMap<>();
+
+  /**
+   * The paths of the pub roots whose indexes are being built.
+   */
+  private final Set<String> indexingRoots = ConcurrentHashMap.newKeySet();
+
+  /**
+   * The Dart files in indexed pub roots that changed since they were last indexed.
+   */
+  private final Set<String> staleFiles = ConcurrentHashMap.newKeySet();
+
+  /**
+   * For each changed Dart file, the stamp of its latest change.
+   */
+  private final Map<String, Long> changeStamps = new ConcurrentHashMap<>();
+  private final AtomicLong lastChangeStamp = new AtomicLong();
+
+  /**
+   * For each pub root and test directory whose affected tests were run, the stamp of the latest change before the run.
+   */
+  private final Map<String, Long> lastRunStamps = new ConcurrentHashMap<>();
+
+  /**
+   * The tests found for a run of affected tests, with the changes they were found for.
+   * <p>
+   * On the first run of a directory, there's no earlier run to compare with, so no tests are found and all of them
+   * should be run.
+   */
+  record AffectedTests(@NotNull List<VirtualFile> tests, @NotNull String runKey, long changeStamp, boolean firstRun) {
+  }
+
+  private TestImpactService(@NotNull final Project project) {
+    this.project = project;
+    project.getMessageBus().connect(this).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+      @Override
+      public void after(@NotNull List<? extends VFileEvent> events) {
+        for (VFileEvent event : events) {
+          fileChanged(event.getPath());
+          if (event instanceof VFileMoveEvent move) {
+            fileChanged(move.getOldPath());
+          }
+          else if (event instanceof VFilePropertyChangeEvent change && change.isRename()) {
+            fileChanged(change.getOldPath());
+          }
+        }
+      }
+    });
+  }
+
+  private void fileChanged(@NotNull String path) {
+    if (!path.endsWith(DART_EXTENSION)) return;
+
+    final String indexedRoot = findIndexedRoot(path);
+    if (indexedRoot != null) {
+      staleFiles.add(path);
+    }
+    else if (!isUnder(path, project.getBasePath())) {
+      return;
+    }
+    changeStamps.put(path, lastChangeStamp.incrementAndGet());
+  }
+
+  @Nullable
+  private String findIndexedRoot(@NotNull String path) {
+    for (String rootPath : indexes.keySet()) {
+      if (isUnder(path, rootPath)) {
+        return rootPath;
+      }
+    }
+    for (String rootPath : indexingRoots) {
+      if (isUnder(path, rootPath)) {
+        return rootPath;
+      }
+    }
+    return null;
+  }
+
+  private static boolean isUnder(@NotNull String path, @Nullable String dir) {
+    return dir != null && path.startsWith(dir + "/");
+  }
+
+  /**
+   * Returns the tests in a directory that depend on the Dart files changed since its affected tests were last run.
+   * <p>
+   * The changes count as run only when {@link #markRun} is called, after the tests have started. Until then, the
+   * directory's lookups are first runs.
+   * <p>
+   * Builds the pub root's index if it isn't built yet and this isn't a first run, showing progress if called on the UI
+   * thread.
+   */
+  @NotNull
+  AffectedTests findAffectedTests(@NotNull PubRoot root, @NotNull VirtualFile testDir) {
+    final String runKey = root.getPath() + "\u0000" + testDir.getPath();
+    final Long lastRun = lastRunStamps.get(runKey);
+    final long stamp = lastChangeStamp.get();
+    if (lastRun == null) {
+      return new AffectedTests(List.of(), runKey, stamp, true);
+    }
+
+    final TestImpactIndex index;
+    if (indexes.containsKey(root.getPath()) || !ApplicationManager.getApplication().isDispatchThread()) {
+      index = getIndex(root);
+    }
+    else {
+      index = ProgressManager.getInstance().runProcessWithProgressSynchronously(
+        (ThrowableComputable<TestImpactIndex, RuntimeException>)() -> getIndex(root), "Finding Affected Tests", false, project);
+    }
+
+    final Set<String> changed = new HashSet<>();
+    for (Map.Entry<String, Long> entry : changeStamps.entrySet()) {
+      if (entry.getValue() > lastRun && entry.getValue() <= stamp) {
+        changed.add(entry.getKey());
+      }
+    }
+
+    final String testDirPrefix = testDir.getPath() + "/";
+    final List<VirtualFile> tests = new ArrayList<>();
+    for (String path : index.findAffectedTests(changed, (candidate) -> candidate.startsWith(testDirPrefix) && candidate.endsWith(TEST_SUFFIX))) {
+      final VirtualFile file = LocalFileSystem.getInstance().findFileByPath(path);
+      if (file != null && file.isValid()) {
+        tests.add(file);
+      }
+    }
+    LOG.info("Found " + tests.size() + " tests affected by " + changed.size() + " changed files");
+    return new AffectedTests(tests, runKey, stamp, false);
+  }
+
+  /**
+   * Records that affected tests were run, so the next lookup for their directory only counts later changes.
+   */
+  void markRun(@NotNull AffectedTests affected) {
+    lastRunStamps.merge(affected.runKey(), affected.changeStamp(), Math::max);
+  }
+
+  @NotNull
+  private TestImpactIndex getIndex(@NotNull PubRoot root) {
+    final TestImpactIndex existing = indexes.get(root.getPath());
+    if (existing != null) {
+      refresh(root, existing);
+      return existing;
+    }
+
+    // Files that change while the index is built are indexed again on the next lookup.
+    indexingRoots.add(root.getPath());
+    final String rootPrefix = root.getPath() + "/";
+    staleFiles.removeIf((path) -> path.startsWith(rootPrefix));
+
+    try {
+      final TestImpactIndex index = new TestImpactIndex();
+      OpenApiUtils.safeRunReadAction(() -> {
+        final DartUrlResolver resolver = DartUrlResolver.getInstance(project, root.getRoot());
+        VfsUtilCore.visitChildrenRecursively(root.getRoot(), new VirtualFileVisitor<Void>() {
+          @Override
+          public boolean visitFile(@NotNull VirtualFile file) {
+            if (file.isDirectory()) {
+              // Skip build output and tool directories such as .dart_tool.
+              return !file.getName().startsWith(".") && !file.getName().equals("build");
+            }
+            if (file.getName().endsWith(DART_EXTENSION)) {
+              indexFile(index, resolver, file);
+            }
+            return true;
+          }
+        });
+      });
+      LOG.info("Indexed " + index.size() + " Dart files in " + root.getPath());
+      indexes.put(root.getPath(), index);
+      return index;
+    }
+    finally {
+      indexingRoots.remove(root.getPath());
+    }
+  }
+
+  /**
+   * Indexes the stale files in a pub root again.
+   */
+  private void refresh(@NotNull PubRoot root, @NotNull TestImpactIndex index) {
+    final String rootPrefix = root.getPath() + "/";
+    final List<String> stale = new ArrayList<>();
+    for (String path : staleFiles) {
+      if (path.startsWith(rootPrefix)) {
+        stale.add(path);
+      }
+    }
+    if (stale.isEmpty()) return;
+    staleFiles.removeAll(stale);
+
+    OpenApiUtils.safeRunReadAction(() -> {
+      final DartUrlResolver resolver = DartUrlResolver.getInstance(project, root.getRoot());
+      for (String path : stale) {
+        final VirtualFile file = LocalFileSystem.getInstance().findFileByPath(path);
+        if (file == null || !file.isValid()) {
+          index.remove(path);
+        }
+        else {
+          indexFile(index, resolver, file);
+        }
+      }
+    });
+  }
+
+  private static void indexFile(@NotNull TestImpactIndex index, @NotNull DartUrlResolver resolver, @NotNull VirtualFile file) {
+    final String text;
+    try {
+      text = VfsUtilCore.loadText(file);
+    }
+    catch (IOException e) {
+      index.remove(file.getPath());
+      return;
+    }
+
+    final List<String> dependencies = new ArrayList<>();
+    for (String uri : TestImpactIndex.findDirectiveUris(text)) {
+      final VirtualFile target = resolve(resolver, file, uri);
+      if (target != null) {
+        dependencies.add(target.getPath());
+      }
+    }
+    index.update(file.getPath(), dependencies);
+  }
+
+  @Nullable
+  private static VirtualFile resolve(@NotNull DartUrlResolver resolver, @NotNull VirtualFile file, @NotNull String uri) {
+    if (uri.startsWith("dart:")) return null;
+    if (uri.startsWith("package:")) return resolver.findFileByDartUrl(uri);
+
+    final VirtualFile dir = file.getParent();
+    return dir == null ? null : dir.findFileByRelativePath(uri);
+  }
+
+  @Override
+  public void dispose() {
+    indexes.clear();
+    staleFiles.clear();
+    changeStamps.clear();
+    lastRunStamps.clear();
+  }
+}
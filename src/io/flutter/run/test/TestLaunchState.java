@@ -93,6 +93,11 @@ public class TestLaunchState extends CommandLineState {
   @Override
   protected ProcessHandler startProcess() throws ExecutionException {
     final RunMode mode = RunMode.fromEnv(getEnvironment());
+    if (fields.isSharded(mode)) {
+      processHandler = fields.runSharded(getEnvironment().getProject());
+      return processHandler;
+    }
+
     final FlutterCommandStartResult result = fields.run(getEnvironment().getProject(), mode);
     switch (result.status) {
       case OK:
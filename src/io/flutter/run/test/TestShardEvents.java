@@ -0,0 +1,207 @@
+/*
+ * Copyright 2025 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.run.test;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSyntaxException;
+import io.flutter.utils.JsonUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rewrites the JSON events of the shards of a sharded test run so that they can be merged into one test tree.
+ * <p>
+ * Each <code>flutter test --machine</code> process numbers its tests, groups and suites from zero. A shard's test ids
+ * are mapped to <code>id * totalShards + shardIndex</code>, which can't collide with another shard's. Suites and
+ * groups are merged: the first shard to report a suite, or a group with a given name path in a suite, assigns its id,
+ * and the same suite or group reported by another shard is mapped to that id and left out of the merged stream. The
+ * start and done events of each shard are left out too; the merged stream has one of each.
+ */
+final class TestShardEvents {
+  /**
+   * Matches the members that hold ids, which package:test writes without spaces.
+   */
+  private static final Pattern ID_MEMBER = Pattern.compile("(?<!\\\\)\"(id|testID|suiteID|parentID)\":(\\d+)");
+  private static final Pattern GROUP_IDS_MEMBER = Pattern.compile("(?<!\\\\)\"groupIDs\":\\[([\\d,]*)]");
+  private static final Pattern NUMBER = Pattern.compile("\\d+");
+
+  private static final String START_TYPE = "\"type\":\"start\"";
+  private static final String DONE_TYPE = "\"type\":\"done\"";
+  private static final String SUITE_TYPE = "\"type\":\"suite\"";
+  private static final String GROUP_TYPE = "\"type\":\"group\"";
+
+  static final String START_EVENT = "{\"protocolVersion\":\"0.1.1\",\"runnerVersion\":null,\"type\":\"start\",\"time\":0}\n";
+
+  private final int totalShards;
+
+  /**
+   * Whether the test runner splits each suite's tests between the shards, so a group's test count in one shard is
+   * only part of its tests.
+   */
+  private final boolean shardsShareSuites;
+
+  /**
+   * The merged ids of the suites and groups seen so far, by suite path and platform, and by suite and group name path.
+   */
+  @NotNull private final Map<String, Integer> mergedIds = new HashMap<>();
+
+  /**
+   * For each shard, its suite and group ids mapped to merged ids.
+   */
+  @NotNull private final List<Map<Integer, Integer>> shardSuiteIds = new ArrayList<>();
+  @NotNull private final List<Map<Integer, Integer>> shardGroupIds = new ArrayList<>();
+
+  /**
+   * For each shard, how many groups it reported with each name path, to tell apart groups that have the same name.
+   */
+  @NotNull private final List<Map<String, Integer>> shardGroupNames = new ArrayList<>();
+
+  TestShardEvents(int totalShards, boolean shardsShareSuites) {
+    this.totalShards = totalShards;
+    this.shardsShareSuites = shardsShareSuites;
+    for (int i = 0; i < totalShards; i++) {
+      shardSuiteIds.add(new HashMap<>());
+      shardGroupIds.add(new HashMap<>());
+      shardGroupNames.add(new HashMap<>());
+    }
+  }
+
+  /**
+   * Returns the done event that ends the merged stream.
+   */
+  @NotNull
+  static String doneEvent(boolean success, long time) {
+    return "{\"success\":" + success + ",\"type\":\"done\",\"time\":" + time + "}\n";
+  }
+
+  /**
+   * Whether a line is a shard's own start or done event, which is left out of the merged stream.
+   */
+  static boolean isRunEvent(@NotNull String line) {
+    return line.startsWith("{") && (line.contains(START_TYPE) || line.contains(DONE_TYPE));
+  }
+
+  static int remapId(int id, int shardIndex, int totalShards) {
+    return id * totalShards + shardIndex;
+  }
+
+  /**
+   * Returns a shard's output line with the ids in it mapped to merged ids, or null if the line reports a suite or group
+   * that another shard already reported.
+   * <p>
+   * Lines that aren't JSON objects, such as the array that reports the VM service URI, are returned unchanged.
+   */
+  @Nullable
+  synchronized String remapIds(@NotNull String line, int shardIndex) {
+    if (!line.startsWith("{")) return line;
+
+    if (line.contains(SUITE_TYPE) || line.contains(GROUP_TYPE)) {
+      final JsonObject event = parseObject(line);
+      if (event != null && event.get("suite") instanceof JsonObject suite && suite.has("id")) {
+        return mergeSuite(event, suite, shardIndex, line.endsWith("\n"));
+      }
+      if (event != null && event.get("group") instanceof JsonObject group && group.has("id") && group.has("suiteID")) {
+        return mergeGroup(event, group, shardIndex, line.endsWith("\n"));
+      }
+    }
+
+    final Matcher ids = ID_MEMBER.matcher(line);
+    final StringBuilder remapped = new StringBuilder(line.length() + 16);
+    while (ids.find()) {
+      final int id = Integer.parseInt(ids.group(2));
+      final String member = ids.group(1);
+      final int merged = switch (member) {
+        case "suiteID" -> mergedId(shardSuiteIds, id, shardIndex);
+        case "parentID" -> mergedId(shardGroupIds, id, shardIndex);
+        default -> remapId(id, shardIndex, totalShards);
+      };
+      ids.appendReplacement(remapped, "\"" + member + "\":" + merged);
+    }
+    ids.appendTail(remapped);
+
+    final Matcher groupIds = GROUP_IDS_MEMBER.matcher(remapped);
+    final StringBuilder result = new StringBuilder(remapped.length() + 16);
+    while (groupIds.find()) {
+      final Matcher numbers = NUMBER.matcher(groupIds.group(1));
+      final StringBuilder list = new StringBuilder();
+      while (numbers.find()) {
+        numbers.appendReplacement(list, String.valueOf(mergedId(shardGroupIds, Integer.parseInt(numbers.group()), shardIndex)));
+      }
+      numbers.appendTail(list);
+      groupIds.appendReplacement(result, "\"groupIDs\":[" + list + "]");
+    }
+    groupIds.appendTail(result);
+    return result.toString();
+  }
+
+  @Nullable
+  private String mergeSuite(@NotNull JsonObject event, @NotNull JsonObject suite, int shardIndex, boolean newline) {
+    final int id = suite.get("id").getAsInt();
+    final String key = "suite\u0000" + JsonUtils.getStringMember(suite, "path") + "\u0000" + JsonUtils.getStringMember(suite, "platform");
+    final Integer existing = mergedIds.get(key);
+    final int merged = existing != null ? existing : remapId(id, shardIndex, totalShards);
+    shardSuiteIds.get(shardIndex).put(id, merged);
+    if (existing != null) return null;
+
+    mergedIds.put(key, merged);
+    suite.addProperty("id", merged);
+    return event + (newline ? "\n" : "");
+  }
+
+  @Nullable
+  private String mergeGroup(@NotNull JsonObject event, @NotNull JsonObject group, int shardIndex, boolean newline) {
+    final int id = group.get("id").getAsInt();
+    final int suiteId = mergedId(shardSuiteIds, group.get("suiteID").getAsInt(), shardIndex);
+    final JsonElement parent = group.get("parentID");
+    final Integer parentId = parent == null || parent.isJsonNull() ? null : mergedId(shardGroupIds, parent.getAsInt(), shardIndex);
+
+    final String path = "group\u0000" + suiteId + "\u0000" + parentId + "\u0000" + JsonUtils.getStringMember(group, "name");
+    final int occurrence = shardGroupNames.get(shardIndex).merge(path, 1, Integer::sum);
+    final String key = path + "\u0000" + occurrence;
+
+    final Integer existing = mergedIds.get(key);
+    final int merged = existing != null ? existing : remapId(id, shardIndex, totalShards);
+    shardGroupIds.get(shardIndex).put(id, merged);
+    if (existing != null) return null;
+
+    mergedIds.put(key, merged);
+    group.addProperty("id", merged);
+    group.addProperty("suiteID", suiteId);
+    if (parentId != null) {
+      group.addProperty("parentID", parentId);
+    }
+    if (shardsShareSuites) {
+      // The group's tests are split between the shards, so none of them knows how many there are in all. Without a
+      // count, the group is finished when the run is done.
+      group.addProperty("testCount", 0);
+    }
+    return event + (newline ? "\n" : "");
+  }
+
+  private int mergedId(@NotNull List<Map<Integer, Integer>> shardIds, int id, int shardIndex) {
+    final Integer merged = shardIds.get(shardIndex).get(id);
+    return merged != null ? merged : remapId(id, shardIndex, totalShards);
+  }
+
+  @Nullable
+  private static JsonObject parseObject(@NotNull String line) {
+    try {
+      final JsonElement element = JsonUtils.parseString(line);
+      return element instanceof JsonObject object ? object : null;
+    }
+    catch (JsonSyntaxException e) {
+      return null;
+    }
+  }
+}
@@ -370,9 +370,26 @@ public class FlutterSdk {
   @NotNull
   public FlutterCommand flutterTest(@NotNull PubRoot root, @NotNull VirtualFile fileOrDir, @Nullable String testNameSubstring,
                                     @NotNull RunMode mode, @Nullable String additionalArgs, TestFields.Scope scope, boolean useRegexp) {
+    return flutterTest(root, List.of(fileOrDir), testNameSubstring, mode, additionalArgs, scope, useRegexp, 1, 0);
+  }
+
+  /**
+   * Creates a command that runs the tests in the given files and directories, or one shard of them when
+   * <code>totalShards</code> is more than one.
+   */
+  @NotNull
+  public FlutterCommand flutterTest(@NotNull PubRoot root, @NotNull List<VirtualFile> filesOrDirs, @Nullable String testNameSubstring,
+                                    @NotNull RunMode mode, @Nullable String additionalArgs, TestFields.Scope scope, boolean useRegexp,
+                                    int totalShards, int shardIndex) {
 
     final List<String> args = new ArrayList<>();
     args.add("--machine");
+    if (totalShards > 1) {
+      args.add("--total-shards");
+      args.add(String.valueOf(totalShards));
+      args.add("--shard-index");
+      args.add(String.valueOf(shardIndex));
+    }
 
     // Starting the app paused so the IDE can catch early errors is ideal. However, we don't have a way to resume for multiple test files
     // yet, so we want to exclude directory scope tests from starting paused. See https://github.com/flutter/flutter-intellij/issues/4737.
@@ -403,13 +420,15 @@ public class FlutterSdk {
       }
     }
 
-    if (!root.getRoot().equals(fileOrDir)) {
-      // Make the path to main relative (to make the command line prettier).
-      final String mainPath = root.getRelativePath(fileOrDir);
-      if (mainPath == null) {
-        throw new IllegalArgumentException("main isn't within the pub root: " + fileOrDir.getPath());
+    for (VirtualFile fileOrDir : filesOrDirs) {
+      if (!root.getRoot().equals(fileOrDir)) {
+        // Make the path to main relative (to make the command line prettier).
+        final String mainPath = root.getRelativePath(fileOrDir);
+        if (mainPath == null) {
+          throw new IllegalArgumentException("main isn't within the pub root: " + fileOrDir.getPath());
+        }
+        args.add(FileUtil.toSystemDependentName(mainPath));
       }
-      args.add(FileUtil.toSystemDependentName(mainPath));
     }
 
     return new FlutterCommand(this, root.getRoot(), FlutterCommand.Type.TEST, args.toArray(new String[]{ }));
@@ -36,6 +36,7 @@ public class FlutterSettings {
   private static final String sdkVersionOutdatedWarningAcknowledgedKey = "io.flutter.sdkVersionOutdatedWarningAcknowledged";
   private static final String androidStudioBotAcknowledgedKey = "io.flutter.androidStudioBotAcknowledgedKey";
   private static final String enableFilePathLoggingKey = "io.flutter.enableFilePathLogging";
+  private static final String useLegacyVmServiceTransportKey = "io.flutter.useLegacyVmServiceTransport";
 
   private static @Nullable FlutterSettings testInstance;
 
@@ -270,4 +271,16 @@ public class FlutterSettings {
   public void setFilePathLoggingEnabled(boolean value) {
     getPropertiesComponent().setValue(enableFilePathLoggingKey, value);
   }
+
+  /**
+   * Whether to connect to the VM service with the original thread-per-connection WebSocket client instead of the
+   * shared {@link java.net.http.HttpClient} transport.
+   */
+  public boolean isUseLegacyVmServiceTransport() {
+    return getPropertiesComponent().getBoolean(useLegacyVmServiceTransportKey, false);
+  }
+
+  public void setUseLegacyVmServiceTransport(boolean value) {
+    getPropertiesComponent().setValue(useLegacyVmServiceTransportKey, value, false);
+  }
 }
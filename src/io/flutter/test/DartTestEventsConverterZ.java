@@ -4,10 +4,16 @@ import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.intellij.execution.testframework.TestConsoleProperties;
 import com.intellij.execution.testframework.sm.ServiceMessageBuilder;
+import com.intellij.execution.testframework.sm.runner.GeneralTestEventsProcessor;
 import com.intellij.execution.testframework.sm.runner.OutputToGeneralTestEventsConverter;
+import com.intellij.execution.testframework.sm.runner.events.TestFinishedEvent;
+import com.intellij.execution.testframework.sm.runner.events.TestStartedEvent;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.util.Key;
 import com.intellij.openapi.util.text.StringUtil;
@@ -17,17 +23,22 @@ import com.jetbrains.lang.dart.ide.runner.util.DartTestLocationProvider;
 import com.jetbrains.lang.dart.util.DartUrlResolver;
 import io.flutter.logging.PluginLogger;
 import io.flutter.utils.JsonUtils;
+import it.unimi.dsi.fastutil.ints.Int2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import jetbrains.buildServer.messages.serviceMessages.ServiceMessageVisitor;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.io.StringReader;
 import java.lang.reflect.Type;
 import java.text.ParseException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.function.IntFunction;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -37,6 +48,9 @@ import java.util.regex.Pattern;
  * NOTE: The test runner runs tests asynchronously. It is possible to get a 'testDone'
  * event followed some time later by an 'error' event for that same test. That should
  * convert a successful test into a failure. That case is not being handled.
+ * <p>
+ * Test starts and finishes, which make up most of the stream, are passed to the events processor directly. The other
+ * events are formatted as service messages and go through the superclass, which parses them again.
  */
 @SuppressWarnings({"FieldMayBeFinal", "LocalCanBeFinal", "SameReturnValue"})
 public class DartTestEventsConverterZ extends OutputToGeneralTestEventsConverter {
@@ -80,6 +94,23 @@ public class DartTestEventsConverterZ extends OutputToGeneralTestEventsConverter
   private static final String JSON_ROOT_COLUMN = "root_column";
   private static final String JSON_ROOT_URL = "root_url";
 
+  /**
+   * The members of an event that the converter reads; the others are skipped without being decoded.
+   */
+  private static final Set<String> EVENT_MEMBERS = Set.of(
+    JSON_TYPE, JSON_MILLIS, DEF_TEST, DEF_GROUP, DEF_SUITE, JSON_TEST_ID, JSON_RESULT, JSON_COUNT, JSON_MESSAGE,
+    JSON_ERROR_MESSAGE, JSON_STACK_TRACE);
+
+  /**
+   * How many finished tests are kept, for events that arrive after a test is done.
+   */
+  private static final int MAX_FINISHED_TESTS = 256;
+
+  /**
+   * How many finished groups are kept, for tests such as tearDownAll that start after their group's tests are done.
+   */
+  private static final int MAX_FINISHED_GROUPS = 256;
+
   private static final String RESULT_SUCCESS = "success";
   private static final String RESULT_FAILURE = "failure";
   private static final String RESULT_ERROR = "error";
@@ -99,10 +130,12 @@ public class DartTestEventsConverterZ extends OutputToGeneralTestEventsConverter
   private String myLocation;
   private Key myCurrentOutputType;
   private ServiceMessageVisitor myCurrentVisitor;
-  private final HashMap<Integer, Long> myTestIdToTimestamp;
-  private final Map<Integer, Test> myTestData;
-  private final Map<Integer, Group> myGroupData;
-  private final Map<Integer, Suite> mySuiteData;
+  @Nullable private volatile GeneralTestEventsProcessor myEventsProcessor;
+  private final Int2ObjectMap<Test> myTestData;
+  private final Int2ObjectLinkedOpenHashMap<Test> myFinishedTestData;
+  private final Int2ObjectMap<Group> myGroupData;
+  private final Int2ObjectLinkedOpenHashMap<Group> myFinishedGroupData;
+  private final Int2ObjectMap<Suite> mySuiteData;
   private int mySuitCount;
 
   public DartTestEventsConverterZ(@NotNull final String testFrameworkName,
@@ -110,16 +143,25 @@ public class DartTestEventsConverterZ extends OutputToGeneralTestEventsConverter
                                   @NotNull final DartUrlResolver urlResolver) {
     super(testFrameworkName, consoleProperties);
     myUrlResolver = urlResolver;
-    myTestIdToTimestamp = new HashMap<>();
-    myTestData = new HashMap<>();
-    myGroupData = new HashMap<>();
-    mySuiteData = new HashMap<>();
+    myTestData = new Int2ObjectOpenHashMap<>();
+    myFinishedTestData = new Int2ObjectLinkedOpenHashMap<>();
+    myGroupData = new Int2ObjectOpenHashMap<>();
+    myFinishedGroupData = new Int2ObjectLinkedOpenHashMap<>();
+    mySuiteData = new Int2ObjectOpenHashMap<>();
+  }
+
+  @Override
+  public void setProcessor(@Nullable final GeneralTestEventsProcessor processor) {
+    super.setProcessor(processor);
+    myEventsProcessor = processor;
   }
 
   @Override
   protected boolean processServiceMessages(final String text, final @NotNull Key outputType, final @NotNull ServiceMessageVisitor visitor)
     throws ParseException {
-    LOG.debug("<<< " + text.trim());
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("<<< " + text.trim());
+    }
     myCurrentOutputType = outputType;
     myCurrentVisitor = visitor;
     // service message parser expects line like "##teamcity[ .... ]" without whitespaces in the end.
@@ -130,7 +172,7 @@ public class DartTestEventsConverterZ extends OutputToGeneralTestEventsConverter
   private boolean processEventText(final String text) throws JsonSyntaxException, ParseException {
     JsonElement elem;
     try {
-      elem = JsonUtils.parseString(text);
+      elem = text.stripLeading().startsWith("{") ? readEvent(text) : JsonUtils.parseString(text);
     }
     catch (JsonSyntaxException ex) {
       if (text.contains("\"json\" is not an allowed value for option \"reporter\"")) {
@@ -150,6 +192,38 @@ public class DartTestEventsConverterZ extends OutputToGeneralTestEventsConverter
     return process(elem.getAsJsonObject());
   }
 
+  /**
+   * Reads an event object, decoding only the members in {@link #EVENT_MEMBERS}.
+   * <p>
+   * package:test writes the event type after the rest of the event, so it can't be used to decide what to decode.
+   */
+  @NotNull
+  private static JsonObject readEvent(@NotNull String text) throws JsonSyntaxException {
+    final JsonObject event = new JsonObject();
+    try {
+      final JsonReader reader = new JsonReader(new StringReader(text));
+      reader.setLenient(true);
+      reader.beginObject();
+      while (reader.hasNext()) {
+        final String name = reader.nextName();
+        if (EVENT_MEMBERS.contains(name)) {
+          event.add(name, JsonParser.parseReader(reader));
+        }
+        else {
+          reader.skipValue();
+        }
+      }
+      reader.endObject();
+      if (reader.peek() != JsonToken.END_DOCUMENT) {
+        throw new JsonSyntaxException("Did not consume the entire document.");
+      }
+    }
+    catch (IOException | IllegalStateException e) {
+      throw new JsonSyntaxException(e);
+    }
+    return event;
+  }
+
   /**
    * Hook to process arrays.
    */
@@ -158,7 +232,9 @@ public class DartTestEventsConverterZ extends OutputToGeneralTestEventsConverter
   }
 
   private boolean doProcessServiceMessages(@NotNull final String text) throws ParseException {
-    LOG.debug(">>> " + text);
+    if (LOG.isDebugEnabled()) {
+      LOG.debug(">>> " + text);
+    }
     return super.processServiceMessages(text, myCurrentOutputType, myCurrentVisitor);
   }
 
@@ -201,7 +277,7 @@ public class DartTestEventsConverterZ extends OutputToGeneralTestEventsConverter
 
     // Not reached if testObj == null.
     final Test test = getTest(obj);
-    myTestIdToTimestamp.put(test.getId(), getTimestamp(obj));
+    test.myStartTime = getTimestamp(obj);
 
     if (shouldTestBeHiddenIfPassed(test)) {
       // Virtual test that represents loading or compiling a test suite. See lib/src/runner/loader.dart -> Loader.loadFile() in pkg/test source code
@@ -221,13 +297,11 @@ public class DartTestEventsConverterZ extends OutputToGeneralTestEventsConverter
       return true;
     }
 
-    final ServiceMessageBuilder testStarted = ServiceMessageBuilder.testStarted(test.getBaseName());
     test.myTestStartReported = true;
 
     preprocessTestStart(test);
 
-    addLocationHint(testStarted, test);
-    boolean result = finishMessage(testStarted, test.getId(), test.getValidParentId());
+    boolean result = reportTestStarted(test, getLocationHint(test));
 
     final Metadata metadata = Metadata.from(testObj.getAsJsonObject(DEF_METADATA));
     if (metadata.skip) {
@@ -259,8 +333,15 @@ public class DartTestEventsConverterZ extends OutputToGeneralTestEventsConverter
 
   private boolean handleTestDone(JsonObject obj) throws ParseException {
     final Test test = getTest(obj);
+    retireTest(test);
 
-    if (!test.myTestStartReported) return true;
+    final long duration = getTimestamp(obj) - test.myStartTime;
+    final String suitePath = test.hasSuite() ? test.getSuite().getPath() : null;
+    if (!test.myTestStartReported) {
+      // Hidden tests, such as loading a suite, still count towards how long their suite takes.
+      testDone(test, suitePath, duration);
+      return true;
+    }
 
     String result = getResult(obj);
     if (!result.equals(RESULT_SUCCESS) && !result.equals(RESULT_FAILURE) && !result.equals(RESULT_ERROR)) {
@@ -271,21 +352,73 @@ public class DartTestEventsConverterZ extends OutputToGeneralTestEventsConverter
 
     //if (test.getMetadata().skip) return true; // skipped tests are reported as ignored in handleTestStart(). testFinished signal must follow
 
-    ServiceMessageBuilder testFinished = ServiceMessageBuilder.testFinished(test.getBaseName());
-    long duration = getTimestamp(obj) - myTestIdToTimestamp.get(test.getId());
-    testFinished.addAttribute("duration", Long.toString(duration));
+    boolean reported = true;
+    final String note = testDone(test, suitePath, duration);
+    if (note != null) {
+      final ServiceMessageBuilder message = ServiceMessageBuilder.testStdOut(test.getBaseName());
+      message.addAttribute("out", note);
+      reported = finishMessage(message, test.getId(), test.getValidParentId());
+    }
 
-    return finishMessage(testFinished, test.getId(), test.getValidParentId()) && checkGroupDone(test.getParent());
+    return reported & reportTestFinished(test, duration) && checkGroupDone(test.getParent());
+  }
+
+  /**
+   * Hook called with the duration of each test that finishes, including hidden ones.
+   *
+   * @return text to show in the test's output before it's reported as finished, or null
+   */
+  @Nullable
+  protected String testDone(@NotNull Test test, @Nullable String suitePath, long durationMillis) {
+    return null;
+  }
+
+  /**
+   * Hook called when the test runner has reached the end of the tests.
+   */
+  protected void allTestsDone() {
   }
 
   @SuppressWarnings("SimplifiableIfStatement")
   private boolean checkGroupDone(@Nullable final Group group) throws ParseException {
     if (group != null && group.getTestCount() > 0 && group.getDoneTestsCount() == group.getTestCount()) {
+      retireGroup(group);
       return processGroupDone(group) && checkGroupDone(group.getParent());
     }
     return true;
   }
 
+  /**
+   * Moves a done test to the bounded set of finished tests, so that its state is freed once later tests are done.
+   */
+  private void retireTest(@NotNull Test test) {
+    if (myTestData.remove(test.getId()) == null) return;
+
+    myFinishedTestData.put(test.getId(), test);
+    if (myFinishedTestData.size() > MAX_FINISHED_TESTS) {
+      myFinishedTestData.removeFirst();
+    }
+  }
+
+  /**
+   * Moves a done group to the bounded set of finished groups. A group's tearDownAll isn't counted in its tests, so it
+   * starts after the group is done, and still needs to find its parent.
+   */
+  private void retireGroup(@NotNull Group group) {
+    if (myGroupData.remove(group.getId()) == null) return;
+
+    myFinishedGroupData.put(group.getId(), group);
+    if (myFinishedGroupData.size() > MAX_FINISHED_GROUPS) {
+      myFinishedGroupData.removeFirst();
+    }
+  }
+
+  @Nullable
+  private Group findGroup(int id) {
+    final Group group = myGroupData.get(id);
+    return group != null ? group : myFinishedGroupData.get(id);
+  }
+
   private boolean handleGroup(JsonObject obj) throws ParseException {
     final Group group = getGroup(obj.getAsJsonObject(DEF_GROUP));
     return handleGroup(group);
@@ -305,7 +438,7 @@ public class DartTestEventsConverterZ extends OutputToGeneralTestEventsConverter
 
     ServiceMessageBuilder groupMsg = ServiceMessageBuilder.testSuiteStarted(group.getBaseName());
     // Possible attributes: "nodeType" "nodeArgs" "running"
-    addLocationHint(groupMsg, group);
+    groupMsg.addAttribute("locationHint", getLocationHint(group));
     return finishMessage(groupMsg, group.getId(), group.getValidParentId());
   }
 
@@ -323,9 +456,8 @@ public class DartTestEventsConverterZ extends OutputToGeneralTestEventsConverter
     boolean result = true;
 
     if (!test.myTestStartReported) {
-      final ServiceMessageBuilder testStarted = ServiceMessageBuilder.testStarted(test.getBaseName());
       test.myTestStartReported = true;
-      result = finishMessage(testStarted, test.getId(), test.getValidParentId());
+      result = reportTestStarted(test, null);
     }
 
     if (test.myTestErrorReported) {
@@ -392,9 +524,8 @@ public class DartTestEventsConverterZ extends OutputToGeneralTestEventsConverter
         return true; // output in successfully passing setUpAll/tearDownAll is not important enough to make these nodes visible
       }
 
-      final ServiceMessageBuilder testStarted = ServiceMessageBuilder.testStarted(test.getBaseName());
       test.myTestStartReported = true;
-      result = finishMessage(testStarted, test.getId(), test.getValidParentId());
+      result = reportTestStarted(test, null);
     }
 
     ServiceMessageBuilder message = ServiceMessageBuilder.testStdOut(test.getBaseName());
@@ -404,9 +535,10 @@ public class DartTestEventsConverterZ extends OutputToGeneralTestEventsConverter
   }
 
   private boolean handleStart(JsonObject obj) throws ParseException {
-    myTestIdToTimestamp.clear();
     myTestData.clear();
+    myFinishedTestData.clear();
     myGroupData.clear();
+    myFinishedGroupData.clear();
     mySuiteData.clear();
     mySuitCount = 0;
 
@@ -436,11 +568,13 @@ public class DartTestEventsConverterZ extends OutputToGeneralTestEventsConverter
         }
       }
     }
-    myTestIdToTimestamp.clear();
     myTestData.clear();
+    myFinishedTestData.clear();
     myGroupData.clear();
+    myFinishedGroupData.clear();
     mySuiteData.clear();
     mySuitCount = 0;
+    allTestsDone();
   }
 
   private boolean processGroupDone(@NotNull final Group group) throws ParseException {
@@ -456,7 +590,41 @@ public class DartTestEventsConverterZ extends OutputToGeneralTestEventsConverter
     return doProcessServiceMessages(msg.toString());
   }
 
-  private void addLocationHint(ServiceMessageBuilder messageBuilder, Item item) {
+  /**
+   * Reports the start of a test to the events processor, without formatting and parsing a service message.
+   */
+  private boolean reportTestStarted(@NotNull Test test, @Nullable String locationHint) {
+    final String id = String.valueOf(test.getId());
+    final String parentId = String.valueOf(test.getValidParentId());
+    if (LOG.isDebugEnabled()) {
+      LOG.debug(">>> testStarted " + test.getBaseName() + " nodeId=" + id + " parentNodeId=" + parentId);
+    }
+
+    final GeneralTestEventsProcessor processor = myEventsProcessor;
+    if (processor != null) {
+      processor.onTestStarted(new TestStartedEvent(test.getBaseName(), id, parentId, locationHint, null, null, null, true));
+    }
+    return true;
+  }
+
+  /**
+   * Reports the end of a test to the events processor, without formatting and parsing a service message.
+   */
+  private boolean reportTestFinished(@NotNull Test test, long duration) {
+    final String id = String.valueOf(test.getId());
+    if (LOG.isDebugEnabled()) {
+      LOG.debug(">>> testFinished " + test.getBaseName() + " nodeId=" + id + " duration=" + duration);
+    }
+
+    final GeneralTestEventsProcessor processor = myEventsProcessor;
+    if (processor != null) {
+      processor.onTestFinished(new TestFinishedEvent(test.getBaseName(), id, duration));
+    }
+    return true;
+  }
+
+  @NotNull
+  private String getLocationHint(@NotNull Item item) {
     String location = "unknown";
     String loc;
 
@@ -483,7 +651,7 @@ public class DartTestEventsConverterZ extends OutputToGeneralTestEventsConverter
       location = loc + "," + nameList;
     }
 
-    messageBuilder.addAttribute("locationHint", location);
+    return location;
   }
 
   private static long getTimestamp(JsonObject obj) throws ParseException {
@@ -518,17 +686,17 @@ public class DartTestEventsConverterZ extends OutputToGeneralTestEventsConverter
   }
 
   @NotNull
-  private <T extends Item> T getItem(JsonObject obj, Map<Integer, T> items) throws ParseException {
+  private <T extends Item> T getItem(JsonObject obj, Int2ObjectMap<T> items) throws ParseException {
     if (obj == null) throw new ParseException("Unexpected null json object", 0);
     T item;
     JsonElement id = obj.get(JSON_ID);
     if (id != null) {
       if (items == myTestData) {
-        @SuppressWarnings("unchecked") T type = (T)Test.from(obj, myGroupData, mySuiteData);
+        @SuppressWarnings("unchecked") T type = (T)Test.from(obj, this::findGroup, mySuiteData);
         item = type;
       }
       else if (items == myGroupData) {
-        @SuppressWarnings("unchecked") T group = (T)Group.from(obj, myGroupData, mySuiteData);
+        @SuppressWarnings("unchecked") T group = (T)Group.from(obj, this::findGroup, mySuiteData);
         item = group;
       }
       else {
@@ -542,6 +710,10 @@ public class DartTestEventsConverterZ extends OutputToGeneralTestEventsConverter
       if (testId != null) {
         int baseId = testId.getAsInt();
         item = items.get(baseId);
+        if (item == null && items == myTestData) {
+          @SuppressWarnings("unchecked") T finished = (T)myFinishedTestData.get(baseId);
+          item = finished;
+        }
       }
       else {
         JsonElement testObj = obj.get(DEF_TEST);
@@ -613,7 +785,7 @@ public class DartTestEventsConverterZ extends OutputToGeneralTestEventsConverter
       return Metadata.from(obj.get(DEF_METADATA));
     }
 
-    static Suite lookupSuite(JsonObject obj, Map<Integer, Suite> suites) {
+    static Suite lookupSuite(JsonObject obj, Int2ObjectMap<Suite> suites) {
       JsonElement suiteObj = obj.get(JSON_SUITE_ID);
       Suite suite = null;
       if (suiteObj != null && suiteObj.isJsonPrimitive()) {
@@ -745,12 +917,13 @@ public class DartTestEventsConverterZ extends OutputToGeneralTestEventsConverter
   protected static class Test extends Item {
     private boolean myTestStartReported = false;
     private boolean myTestErrorReported = false;
+    private long myStartTime;
 
-    static Test from(JsonObject obj, Map<Integer, Group> groups, Map<Integer, Suite> suites) {
+    static Test from(JsonObject obj, IntFunction<Group> groups, Int2ObjectMap<Suite> suites) {
       int[] groupIds = GSON.fromJson(obj.get(JSON_GROUP_IDS), (Type)int[].class);
       Group parent = null;
       if (groupIds != null && groupIds.length > 0) {
-        parent = groups.get(groupIds[groupIds.length - 1]);
+        parent = groups.apply(groupIds[groupIds.length - 1]);
       }
       Suite suite = lookupSuite(obj, suites);
       int line = extractInt(obj, JSON_ROOT_LINE);
@@ -778,12 +951,12 @@ public class DartTestEventsConverterZ extends OutputToGeneralTestEventsConverter
     private int myTestCount;
     private int myDoneTestsCount = 0;
 
-    static Group from(JsonObject obj, Map<Integer, Group> groups, Map<Integer, Suite> suites) {
+    static Group from(JsonObject obj, IntFunction<Group> groups, Int2ObjectMap<Suite> suites) {
       JsonElement parentObj = obj.get(JSON_PARENT_ID);
       Group parent = null;
       if (parentObj != null && parentObj.isJsonPrimitive()) {
         int parentId = parentObj.getAsInt();
-        parent = groups.get(parentId);
+        parent = groups.apply(parentId);
       }
       Suite suite = lookupSuite(obj, suites);
       final int line = extractInt(obj, JSON_LINE);
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2025 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.utils;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A fixed-capacity buffer that keeps the most recent bytes of text written to it.
+ * <p>
+ * Text is stored UTF-8 encoded, so the memory used is bounded by the capacity regardless of how long the lines are.
+ * Appends copy the new bytes into place, overwriting the oldest ones, and the text is only decoded when it's read.
+ * <p>
+ * This class is thread safe.
+ */
+public class ByteRingBuffer {
+  private final byte[] bytes;
+
+  /**
+   * The index where the next byte will be written.
+   */
+  private int end;
+
+  /**
+   * The number of valid bytes in the buffer.
+   */
+  private int size;
+
+  public ByteRingBuffer(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be positive: " + capacity);
+    }
+    bytes = new byte[capacity];
+  }
+
+  public int getCapacity() {
+    return bytes.length;
+  }
+
+  public synchronized int size() {
+    return size;
+  }
+
+  public synchronized boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Appends the given text, discarding the oldest bytes if the buffer is full.
+   */
+  public void append(@NotNull String text) {
+    if (text.isEmpty()) return;
+    append(text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private synchronized void append(byte[] data) {
+    final int capacity = bytes.length;
+
+    // Only the tail of a chunk larger than the buffer can be kept.
+    int offset = 0;
+    int length = data.length;
+    if (length > capacity) {
+      offset = length - capacity;
+      length = capacity;
+    }
+
+    final int first = Math.min(length, capacity - end);
+    System.arraycopy(data, offset, bytes, end, first);
+    System.arraycopy(data, offset + first, bytes, 0, length - first);
+
+    end = (end + length) % capacity;
+    size = Math.min(capacity, size + length);
+  }
+
+  public synchronized void clear() {
+    end = 0;
+    size = 0;
+  }
+
+  /**
+   * Decodes the buffered text.
+   * <p>
+   * If older bytes have been discarded, any partial character left at the start of the buffer is skipped.
+   */
+  @Override
+  public String toString() {
+    final byte[] copy;
+    synchronized (this) {
+      copy = new byte[size];
+      final int start = Math.floorMod(end - size, bytes.length);
+      final int first = Math.min(size, bytes.length - start);
+      System.arraycopy(bytes, start, copy, 0, first);
+      System.arraycopy(bytes, 0, copy, first, size - first);
+    }
+
+    int offset = 0;
+    while (offset < copy.length && isContinuationByte(copy[offset])) {
+      offset++;
+    }
+    return new String(copy, offset, copy.length - offset, StandardCharsets.UTF_8);
+  }
+
+  private static boolean isContinuationByte(byte b) {
+    return (b & 0xC0) == 0x80;
+  }
+}
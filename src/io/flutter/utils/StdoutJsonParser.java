@@ -6,6 +6,7 @@
 package io.flutter.utils;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -75,7 +76,7 @@ public class StdoutJsonParser {
     if (!bufferIsJson) {
       flushLine();
     }
-    else if (buffer.toString().endsWith("}]")) {
+    else if (endsWithJsonTerminator(buffer)) {
       eatNextEol = true;
       flushLine();
     }
@@ -97,6 +98,11 @@ public class StdoutJsonParser {
     return prev == '}' && current == ']' && Character.isAlphabetic(next);
   }
 
+  private static boolean endsWithJsonTerminator(StringBuilder output) {
+    final int length = output.length();
+    return length >= 2 && output.charAt(length - 2) == '}' && output.charAt(length - 1) == ']';
+  }
+
   private void flushLine() {
     if (!buffer.isEmpty()) {
       synchronized (lines) {
@@ -112,6 +118,9 @@ public class StdoutJsonParser {
    */
   public List<String> getAvailableLines() {
     synchronized (lines) {
+      if (lines.isEmpty()) {
+        return Collections.emptyList();
+      }
       final List<String> copy = new ArrayList<>(lines);
       lines.clear();
       return copy;
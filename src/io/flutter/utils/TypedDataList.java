@@ -5,52 +5,157 @@
  */
 package io.flutter.utils;
 
+import org.jetbrains.annotations.NotNull;
+
 import java.nio.*;
 
+/**
+ * A read-only view of typed data returned by the VM.
+ * <p>
+ * The data isn't copied: each list reads its elements through a little-endian view of the given bytes, and values are
+ * only formatted when they're asked for. {@link #format} and {@link #appendHexDump} render many values into a single
+ * {@link StringBuilder}, which callers can reuse.
+ */
 public abstract class TypedDataList {
-  public  
-  abstract String getValue(int i);
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+  private static final int HEX_DUMP_BYTES_PER_LINE = 16;
+
+  // 95% of CPUs are running in little-endian mode now, and we're not going to get fancy here.
+  // If this becomes a problem, see the Dart code Endian.host for a way to possibly fix it.
+  final ByteBuffer bytes;
+
+  TypedDataList(@NotNull ByteBuffer bytes) {
+    // Read-only buffers are always big-endian, so the order has to be set after the conversion.
+    this.bytes = bytes.slice().asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  public String getValue(int i) {
+    final StringBuilder out = new StringBuilder();
+    appendValue(i, out);
+    return out.toString();
+  }
+
+  /**
+   * Appends the formatted value of the element at the given index.
+   */
+  public abstract void appendValue(int i, @NotNull StringBuilder out);
 
   public abstract int size();
 
+  /**
+   * The number of bytes of data in this list.
+   */
+  public int getByteLength() {
+    return bytes.capacity();
+  }
+
+  /**
+   * Appends the formatted values of the elements in the range [start, end), separated by the given string.
+   */
+  public void format(int start, int end, @NotNull String separator, @NotNull StringBuilder out) {
+    for (int i = start; i < end; i++) {
+      if (i > start) {
+        out.append(separator);
+      }
+      appendValue(i, out);
+    }
+  }
+
+  /**
+   * Appends the underlying bytes in the classic <code>hexdump -C</code> layout, sixteen bytes per line.
+   *
+   * @param baseOffset the offset shown for the first byte, e.g. when this is a page of a larger list
+   */
+  public void appendHexDump(long baseOffset, @NotNull StringBuilder out) {
+    final int length = bytes.capacity();
+    for (int line = 0; line < length; line += HEX_DUMP_BYTES_PER_LINE) {
+      if (line > 0) {
+        out.append('\n');
+      }
+      appendHexDigits(baseOffset + line, 8, out);
+      out.append(' ');
+
+      final int lineEnd = Math.min(line + HEX_DUMP_BYTES_PER_LINE, length);
+      for (int i = line; i < line + HEX_DUMP_BYTES_PER_LINE; i++) {
+        out.append(i - line == HEX_DUMP_BYTES_PER_LINE / 2 ? "  " : " ");
+        if (i < lineEnd) {
+          appendHexDigits(bytes.get(i) & 0xff, 2, out);
+        }
+        else {
+          out.append("  ");
+        }
+      }
+
+      out.append("  |");
+      for (int i = line; i < lineEnd; i++) {
+        final int b = bytes.get(i) & 0xff;
+        out.append(b >= 0x20 && b < 0x7f ? (char)b : '.');
+      }
+      out.append('|');
+    }
+  }
+
+  /**
+   * Appends the value as an unsigned hex number prefixed by "0x", without leading zeros.
+   */
+  static void appendHex(long value, @NotNull StringBuilder out) {
+    out.append("0x");
+    final int digits = Math.max(1, (64 - Long.numberOfLeadingZeros(value) + 3) / 4);
+    appendHexDigits(value, digits, out);
+  }
+
+  private static void appendHexDigits(long value, int digits, @NotNull StringBuilder out) {
+    for (int shift = (digits - 1) * 4; shift >= 0; shift -= 4) {
+      out.append(HEX_DIGITS[(int)(value >>> shift) & 0xf]);
+    }
+  }
+
   public static class Int8List extends TypedDataList {
-      final ByteBuffer buffer;
+    public Int8List(byte[] bytes) {
+      this(ByteBuffer.wrap(bytes));
+    }
 
-    public Int8List(byte   [] bytes) {
-      buffer = ByteBuffer.wrap(bytes);
+    public Int8List(@NotNull ByteBuffer bytes) {
+      super(bytes);
     }
 
-    public   String getValue(int i) {
-      return Byte.toString(buffer.get(i));
+    public void appendValue(int i, @NotNull StringBuilder out) {
+      out.append(bytes.get(i));
     }
 
     public int size() {
-      return buffer.capacity();
+      return bytes.capacity();
     }
   }
 
   public static class Uint8List extends Int8List {
-    public Uint8List(byte   [] bytes) {
+    public Uint8List(byte[] bytes) {
       super(bytes);
     }
 
-    public   String getValue(int i) {
-      return "0x" + Integer.toHexString(buffer.get(i) & 0xff);
+    public Uint8List(@NotNull ByteBuffer bytes) {
+      super(bytes);
+    }
+
+    public void appendValue(int i, @NotNull StringBuilder out) {
+      appendHex(bytes.get(i) & 0xff, out);
     }
   }
 
   public static class Int16List extends TypedDataList {
-      final ShortBuffer buffer;
+    final ShortBuffer buffer;
+
+    public Int16List(byte[] bytes) {
+      this(ByteBuffer.wrap(bytes));
+    }
 
-    public Int16List(byte   [] bytes) {
-      // 95% of CPUs are running in little-endian mode now, and we're not going to get fancy here.
-      // If this becomes a problem, see the Dart code Endian.host for a way to possibly fix it.
-      //noinspection ConstantConditions
-      buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+    public Int16List(@NotNull ByteBuffer bytes) {
+      super(bytes);
+      buffer = this.bytes.asShortBuffer();
     }
 
-    public   String getValue(int i) {
-      return Short.toString(buffer.get(i));
+    public void appendValue(int i, @NotNull StringBuilder out) {
+      out.append(buffer.get(i));
     }
 
     public int size() {
@@ -59,25 +164,33 @@ public abstract class TypedDataList {
   }
 
   public static class Uint16List extends Int16List {
-    public Uint16List(byte   [] bytes) {
+    public Uint16List(byte[] bytes) {
+      super(bytes);
+    }
+
+    public Uint16List(@NotNull ByteBuffer bytes) {
       super(bytes);
     }
 
-    public   String getValue(int i) {
-      return "0x" + Integer.toHexString(buffer.get(i) & 0xffff);
+    public void appendValue(int i, @NotNull StringBuilder out) {
+      appendHex(buffer.get(i) & 0xffff, out);
     }
   }
 
   public static class Int32List extends TypedDataList {
-      final IntBuffer buffer;
+    final IntBuffer buffer;
 
-    public Int32List(byte   [] bytes) {
-      //noinspection ConstantConditions
-      buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    public Int32List(byte[] bytes) {
+      this(ByteBuffer.wrap(bytes));
     }
 
-    public   String getValue(int i) {
-      return Integer.toString(buffer.get(i));
+    public Int32List(@NotNull ByteBuffer bytes) {
+      super(bytes);
+      buffer = this.bytes.asIntBuffer();
+    }
+
+    public void appendValue(int i, @NotNull StringBuilder out) {
+      out.append(buffer.get(i));
     }
 
     public int size() {
@@ -86,25 +199,33 @@ public abstract class TypedDataList {
   }
 
   public static class Uint32List extends Int32List {
-    public Uint32List(byte   [] bytes) {
+    public Uint32List(byte[] bytes) {
+      super(bytes);
+    }
+
+    public Uint32List(@NotNull ByteBuffer bytes) {
       super(bytes);
     }
 
-    public   String getValue(int i) {
-      return "0x" + Integer.toHexString(buffer.get(i));
+    public void appendValue(int i, @NotNull StringBuilder out) {
+      appendHex(buffer.get(i) & 0xffffffffL, out);
     }
   }
 
   public static class Int64List extends TypedDataList {
-      final LongBuffer buffer;
+    final LongBuffer buffer;
 
-    public Int64List(byte   [] bytes) {
-      //noinspection ConstantConditions
-      buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+    public Int64List(byte[] bytes) {
+      this(ByteBuffer.wrap(bytes));
     }
 
-    public   String getValue(int i) {
-      return Long.toString(buffer.get(i));
+    public Int64List(@NotNull ByteBuffer bytes) {
+      super(bytes);
+      buffer = this.bytes.asLongBuffer();
+    }
+
+    public void appendValue(int i, @NotNull StringBuilder out) {
+      out.append(buffer.get(i));
     }
 
     public int size() {
@@ -113,25 +234,33 @@ public abstract class TypedDataList {
   }
 
   public static class Uint64List extends Int64List {
-    public Uint64List(byte   [] bytes) {
+    public Uint64List(byte[] bytes) {
+      super(bytes);
+    }
+
+    public Uint64List(@NotNull ByteBuffer bytes) {
       super(bytes);
     }
 
-    public   String getValue(int i) {
-      return "0x" + Long.toUnsignedString(buffer.get(i), 16);
+    public void appendValue(int i, @NotNull StringBuilder out) {
+      appendHex(buffer.get(i), out);
     }
   }
 
   public static class Float32List extends TypedDataList {
-      final FloatBuffer buffer;
+    final FloatBuffer buffer;
 
-    public Float32List(byte   [] bytes) {
-      //noinspection ConstantConditions
-      buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+    public Float32List(byte[] bytes) {
+      this(ByteBuffer.wrap(bytes));
     }
 
-    public   String getValue(int i) {
-      return String.valueOf(buffer.get(i));
+    public Float32List(@NotNull ByteBuffer bytes) {
+      super(bytes);
+      buffer = this.bytes.asFloatBuffer();
+    }
+
+    public void appendValue(int i, @NotNull StringBuilder out) {
+      out.append(buffer.get(i));
     }
 
     public int size() {
@@ -140,19 +269,23 @@ public abstract class TypedDataList {
   }
 
   public static class Float64List extends TypedDataList {
-      final DoubleBuffer buffer;
+    final DoubleBuffer buffer;
 
-    public Float64List(byte   [] bytes) {
-      //noinspection ConstantConditions
-      buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+    public Float64List(byte[] bytes) {
+      this(ByteBuffer.wrap(bytes));
+    }
+
+    public Float64List(@NotNull ByteBuffer bytes) {
+      super(bytes);
+      buffer = this.bytes.asDoubleBuffer();
     }
 
-    public   String getValue(int i) {
-      return String.valueOf(buffer.get(i));
+    public void appendValue(int i, @NotNull StringBuilder out) {
+      out.append(buffer.get(i));
     }
 
     public int size() {
       return buffer.capacity();
     }
   }
-}
\ No newline at end of file
+}
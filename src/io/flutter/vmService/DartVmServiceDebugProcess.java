@@ -23,6 +23,7 @@ import com.intellij.openapi.wm.WindowManager;
 import com.intellij.testFramework.LightVirtualFile;
 import com.intellij.util.BitUtil;
 import com.intellij.util.TimeoutUtil;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import com.intellij.xdebugger.*;
 import com.intellij.xdebugger.breakpoints.XBreakpointHandler;
 import com.intellij.xdebugger.evaluation.XDebuggerEditorsProvider;
@@ -58,6 +59,7 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public abstract class DartVmServiceDebugProcess extends XDebugProcess {
   private static final @NotNull Logger LOG = PluginLogger.createLogger(DartVmServiceDebugProcess.class);
@@ -233,16 +235,22 @@ public abstract class DartVmServiceDebugProcess extends XDebugProcess {
 
       // "flutter run" has given us a websocket; we can assume it's ready immediately, because
       // "flutter run" has already connected to it.
-      final VmService vmService;
-      try {
-        vmService = VmService.connect(url);
-      }
-      catch (IOException | RuntimeException e) {
-        onConnectFailed("Failed to connect to the VM observatory service at: " + url + "\n"
-                        + e + "\n" + formatStackTraces(e));
-        return;
-      }
-      onConnectSucceeded(vmService);
+      final String wsUrl = url;
+      // Continue on a pooled thread; the future may complete on the VM service's receiver thread.
+      VmServiceConnections.connect(wsUrl).whenCompleteAsync((vmService, error) -> {
+        if (error != null) {
+          final Throwable e = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+          onConnectFailed("Failed to connect to the VM observatory service at: " + wsUrl + "\n"
+                          + e + "\n" + formatStackTraces(e));
+          return;
+        }
+        try {
+          onConnectSucceeded(vmService);
+        }
+        catch (RuntimeException e) {
+          LOG.error(e);
+        }
+      }, AppExecutorUtil.getAppExecutorService());
     });
   }
 
@@ -288,6 +296,10 @@ public abstract class DartVmServiceDebugProcess extends XDebugProcess {
     mapper.onLibrariesDownloaded(libraries);
   }
 
+  public void scriptsReloaded() {
+    mapper.onScriptsReloaded();
+  }
+
   @Override
   public void startStepOver(@Nullable XSuspendContext context) {
     if (myLatestCurrentIsolateId != null && mySuspendedIsolateIds.containsKey(myLatestCurrentIsolateId)) {
@@ -425,6 +437,20 @@ public abstract class DartVmServiceDebugProcess extends XDebugProcess {
     return mapper.getBreakpointUris(file);
   }
 
+  /**
+   * Starts downloading the scripts of the given frames, e.g. when a stack is about to be shown.
+   */
+  public void prefetchScripts(@NotNull final String isolateId, @NotNull final Iterable<Frame> frames) {
+    final Map<String, ScriptRef> scripts = new LinkedHashMap<>();
+    for (Frame frame : frames) {
+      final SourceLocation location = frame.getLocation();
+      if (location != null) {
+        scripts.putIfAbsent(location.getScript().getId(), location.getScript());
+      }
+    }
+    mapper.prefetchScripts(isolateId, scripts.values());
+  }
+
   @Nullable
   public XSourcePosition getSourcePosition(@NotNull final String isolateId, @NotNull final ScriptRef scriptRef, int tokenPos) {
     CompletableFuture<String> fileFuture = myVmServiceWrapper.findResolvedFile(isolateId, scriptRef.getUri());
@@ -479,8 +505,18 @@ public abstract class DartVmServiceDebugProcess extends XDebugProcess {
 
     myVmServiceWrapper = new VmServiceWrapper(this, vmService, vmServiceListener, myIsolatesInfo, breakpointHandler);
 
-    final ScriptProvider provider =
-      (isolateId, scriptId) -> myVmServiceWrapper.getScriptSync(isolateId, scriptId);
+    final ScriptProvider provider = new ScriptProvider() {
+      @NotNull
+      @Override
+      public CompletableFuture<Script> getScript(@NotNull String isolateId, @NotNull String scriptId) {
+        return myVmServiceWrapper.getScript(isolateId, scriptId);
+      }
+
+      @Override
+      public void assertWaitAllowed() {
+        myVmServiceWrapper.assertSyncRequestAllowed();
+      }
+    };
 
     mapper.onConnect(provider, myConnector.getRemoteBaseUrl());
 
@@ -666,6 +702,11 @@ public abstract class DartVmServiceDebugProcess extends XDebugProcess {
      */
     void onLibrariesDownloaded(Iterable<LibraryRef> libraries);
 
+    /**
+     * Called after a hot reload, which may have loaded new libraries.
+     */
+    void onScriptsReloaded();
+
     /**
      * Returns all possible Observatory URI's corresponding to a local file.
      * <p>
@@ -673,6 +714,12 @@ public abstract class DartVmServiceDebugProcess extends XDebugProcess {
      */
     Collection<String> getBreakpointUris(VirtualFile file);
 
+    /**
+     * Starts downloading the given scripts in parallel, so that their source positions can be looked up without waiting
+     * for each in turn.
+     */
+    void prefetchScripts(String isolateId, Collection<ScriptRef> scripts);
+
     /**
      * Returns the local position (to display to the user) corresponding to a token position in Observatory.
      */
@@ -688,9 +735,17 @@ public abstract class DartVmServiceDebugProcess extends XDebugProcess {
 
   public interface ScriptProvider {
     /**
-     * Downloads a script from observatory. Blocks until it's available.
+     * Downloads a script from observatory.
+     * <p>
+     * The result is null if the script isn't available.
+     */
+    @NotNull
+    CompletableFuture<Script> getScript(@NotNull String isolateId, @NotNull String scriptId);
+
+    /**
+     * Logs an error if the calling thread must not wait for a script to download.
      */
-    @Nullable
-    Script downloadScript(@NotNull String isolateId, @NotNull String scriptId);
+    default void assertWaitAllowed() {
+    }
   }
 }
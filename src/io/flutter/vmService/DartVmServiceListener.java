@@ -65,15 +65,19 @@ public class DartVmServiceListener implements VmServiceListener {
         myDebugProcess.getVmServiceWrapper().handleIsolate(event.getIsolate(), false);
         break;
       case IsolateReload:
+        myDebugProcess.getVmServiceWrapper().invalidateObjectCache(event.getIsolate().getId());
+        myDebugProcess.scriptsReloaded();
         break;
       case IsolateUpdate:
         break;
       case IsolateExit:
+        myDebugProcess.getVmServiceWrapper().invalidateObjectCache(event.getIsolate().getId());
         myDebugProcess.isolateExit(event.getIsolate());
         break;
       case PauseBreakpoint:
       case PauseException:
       case PauseInterrupted:
+        myDebugProcess.getVmServiceWrapper().startObjectCache(event.getIsolate().getId());
         myDebugProcess.isolateSuspended(event.getIsolate());
 
         ApplicationManager.getApplication().executeOnPooledThread(() -> {
@@ -90,11 +94,14 @@ public class DartVmServiceListener implements VmServiceListener {
                                                                             .resumeIsolate(event.getIsolate().getId(), null));
         break;
       case PauseExit:
+        myDebugProcess.getVmServiceWrapper().startObjectCache(event.getIsolate().getId());
         break;
       case PauseStart:
+        myDebugProcess.getVmServiceWrapper().invalidateObjectCache(event.getIsolate().getId());
         myDebugProcess.getVmServiceWrapper().handleIsolate(event.getIsolate(), true);
         break;
       case Resume:
+        myDebugProcess.getVmServiceWrapper().invalidateObjectCache(event.getIsolate().getId());
         myDebugProcess.isolateResumed(event.getIsolate());
         break;
       case ServiceExtensionAdded:
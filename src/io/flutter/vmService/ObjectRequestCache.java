@@ -0,0 +1,233 @@
+/*
+ * Copyright 2025 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.vmService;
+
+import com.intellij.openapi.diagnostic.Logger;
+import io.flutter.logging.PluginLogger;
+import org.dartlang.vm.service.consumer.GetObjectConsumer;
+import org.dartlang.vm.service.element.Obj;
+import org.dartlang.vm.service.element.RPCError;
+import org.dartlang.vm.service.element.Sentinel;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Shares <code>getObject</code> requests between the debugger views while an isolate is paused.
+ * <p>
+ * Concurrent requests for the same object (and the same range of a collection) are sent to the VM once, and every
+ * consumer receives the single response. Responses are then cached until the isolate resumes, so expanding the same
+ * value again, e.g. in a watch and in the Variables view, doesn't cost another round trip. Errors aren't cached.
+ * <p>
+ * Objects can only be cached while their isolate is paused, since a running isolate may change them at any time.
+ * Callers must report pauses with {@link #isolatePaused}, {@link #invalidate} an isolate's entries when it resumes,
+ * restarts or exits, and report evaluations with {@link #evaluated}.
+ */
+class ObjectRequestCache {
+  private static final @NotNull Logger LOG = PluginLogger.createLogger(ObjectRequestCache.class);
+
+  static final int MAX_CACHED_OBJECTS = 1000;
+
+  /**
+   * The types of objects that evaluating an expression can't change: the program's structure, as opposed to its state.
+   */
+  private static final Set<String> PROGRAM_TYPES = Set.of("Class", "Code", "Function", "Library", "Script");
+
+  /**
+   * Identifies a request; <code>offset</code> and <code>count</code> are -1 when the whole object is requested.
+   */
+  private record Key(@NotNull String isolateId, @NotNull String objectId, int offset, int count) {
+  }
+
+  /**
+   * A response from the VM; exactly one of the fields is set.
+   */
+  private record Response(@Nullable Obj obj, @Nullable Sentinel sentinel, @Nullable RPCError error) {
+    void deliverTo(@NotNull GetObjectConsumer consumer) {
+      if (obj != null) {
+        consumer.received(obj);
+      }
+      else if (sentinel != null) {
+        consumer.received(sentinel);
+      }
+      else {
+        consumer.onError(error);
+      }
+    }
+  }
+
+  private final Object lock = new Object();
+
+  /**
+   * The consumers waiting for each request that has been sent; guarded by {@link #lock}.
+   */
+  private final Map<Key, List<GetObjectConsumer>> inFlight = new HashMap<>();
+
+  /**
+   * The isolates whose objects can be cached; guarded by {@link #lock}.
+   */
+  private final Set<String> pausedIsolates = new HashSet<>();
+
+  /**
+   * The responses received since the isolates were last invalidated, in access order; guarded by {@link #lock}.
+   */
+  private final Map<Key, Response> cache = new LinkedHashMap<>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Key, Response> eldest) {
+      return size() > MAX_CACHED_OBJECTS;
+    }
+  };
+
+  private int hits;
+  private int shared;
+  private int misses;
+
+  /**
+   * Delivers the given object to the consumer, from the cache or a request already in flight if possible, or else by
+   * calling <code>send</code> with the consumer that will receive the VM's response. Requests for the objects of an
+   * isolate that isn't paused are always sent.
+   *
+   * @param offset the offset of the first collection element requested, or -1 for the whole object
+   * @param count  the number of collection elements requested, or -1 for the whole object
+   */
+  void getObject(@NotNull String isolateId,
+                 @NotNull String objectId,
+                 int offset,
+                 int count,
+                 @NotNull Consumer<GetObjectConsumer> send,
+                 @NotNull GetObjectConsumer consumer) {
+    final Key key = new Key(isolateId, objectId, offset, count);
+    final List<GetObjectConsumer> waiting = new ArrayList<>(1);
+    final boolean paused;
+    final Response cached;
+    synchronized (lock) {
+      paused = pausedIsolates.contains(isolateId);
+      cached = paused ? cache.get(key) : null;
+      if (cached != null) {
+        hits++;
+      }
+      else if (paused) {
+        final List<GetObjectConsumer> existing = inFlight.get(key);
+        if (existing != null) {
+          existing.add(consumer);
+          shared++;
+          return;
+        }
+        waiting.add(consumer);
+        inFlight.put(key, waiting);
+        misses++;
+      }
+    }
+
+    if (!paused) {
+      send.accept(consumer);
+      return;
+    }
+    if (cached != null) {
+      cached.deliverTo(consumer);
+      return;
+    }
+
+    send.accept(new GetObjectConsumer() {
+      @Override
+      public void received(Obj response) {
+        complete(key, waiting, new Response(response, null, null));
+      }
+
+      @Override
+      public void received(Sentinel response) {
+        complete(key, waiting, new Response(null, response, null));
+      }
+
+      @Override
+      public void onError(RPCError error) {
+        complete(key, waiting, new Response(null, null, error));
+      }
+    });
+  }
+
+  private void complete(@NotNull Key key, @NotNull List<GetObjectConsumer> waiting, @NotNull Response response) {
+    final List<GetObjectConsumer> consumers;
+    synchronized (lock) {
+      // If the isolate was invalidated while the request was in flight, the response may already be stale; deliver it
+      // to the consumers that asked for it, but don't cache it.
+      if (inFlight.remove(key, waiting) && response.error == null) {
+        cache.put(key, response);
+      }
+      consumers = new ArrayList<>(waiting);
+    }
+
+    for (GetObjectConsumer consumer : consumers) {
+      response.deliverTo(consumer);
+    }
+  }
+
+  /**
+   * Starts caching the objects of the given isolate, which has just paused.
+   */
+  void isolatePaused(@NotNull String isolateId) {
+    synchronized (lock) {
+      invalidateLocked(isolateId);
+      pausedIsolates.add(isolateId);
+    }
+  }
+
+  /**
+   * Forgets the cached objects of the given isolate that an evaluation may have changed, i.e. everything except the
+   * program's structure, and stops sharing the requests that are in flight.
+   */
+  void evaluated(@NotNull String isolateId) {
+    synchronized (lock) {
+      cache.entrySet().removeIf(entry -> {
+        final Obj obj = entry.getValue().obj;
+        return entry.getKey().isolateId.equals(isolateId) && (obj == null || !PROGRAM_TYPES.contains(obj.getType()));
+      });
+      inFlight.keySet().removeIf(key -> key.isolateId.equals(isolateId));
+    }
+  }
+
+  /**
+   * Forgets the cached objects of the given isolate, and stops caching them until it pauses again. Called when the
+   * isolate resumes, restarts or exits.
+   */
+  void invalidate(@NotNull String isolateId) {
+    synchronized (lock) {
+      pausedIsolates.remove(isolateId);
+      invalidateLocked(isolateId);
+    }
+  }
+
+  private void invalidateLocked(@NotNull String isolateId) {
+    cache.keySet().removeIf(key -> key.isolateId.equals(isolateId));
+    inFlight.keySet().removeIf(key -> key.isolateId.equals(isolateId));
+
+    if (LOG.isDebugEnabled() && hits + shared + misses > 0) {
+      LOG.debug("getObject requests since last invalidation: " + hits + " cached, " + shared + " shared, " + misses + " sent");
+    }
+    hits = 0;
+    shared = 0;
+    misses = 0;
+  }
+
+  /**
+   * Forgets everything, e.g. when the connection is closed.
+   */
+  void clear() {
+    synchronized (lock) {
+      cache.clear();
+      inFlight.clear();
+      pausedIsolates.clear();
+    }
+  }
+}
@@ -75,7 +75,11 @@ public class VMServiceManager implements FlutterApp.FlutterAppListener, Disposab
         onVmServiceReceived(streamId, event);
       }
     };
-    vmService.addVmServiceListener(myVmServiceListener);
+    // Isolate events are requested by the debugger, and tell us when the Flutter isolate starts and stops.
+    vmService.addVmServiceListener(VmService.EXTENSION_STREAM_ID, myVmServiceListener);
+    vmService.addVmServiceListener(VmService.LOGGING_STREAM_ID, myVmServiceListener);
+    vmService.addVmServiceListener(VmService.SERVICE_STREAM_ID, myVmServiceListener);
+    vmService.addVmServiceListener(VmService.ISOLATE_STREAM_ID, myVmServiceListener);
 
     // Populate the service extensions info and look for any Flutter views.
     // TODO(devoncarew): This currently returns the first Flutter view found as the
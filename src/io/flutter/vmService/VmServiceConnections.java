@@ -0,0 +1,45 @@
+/*
+ * Copyright 2025 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.vmService;
+
+import com.intellij.util.concurrency.AppExecutorUtil;
+import io.flutter.settings.FlutterSettings;
+import org.dartlang.vm.service.VmService;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Opens connections to the VM service using the transport chosen in {@link FlutterSettings}.
+ */
+public class VmServiceConnections {
+  private VmServiceConnections() {
+  }
+
+  /**
+   * Connects to the VM service at the given websocket url.
+   * <p>
+   * The returned future completes exceptionally with an {@link IOException} if the connection fails.
+   */
+  @NotNull
+  public static CompletableFuture<VmService> connect(@NotNull String url) {
+    if (!FlutterSettings.getInstance().isUseLegacyVmServiceTransport()) {
+      return VmService.connectAsync(url);
+    }
+
+    // The legacy client blocks until the protocol version is known.
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        return VmService.connect(url);
+      }
+      catch (IOException e) {
+        throw new CompletionException(e);
+      }
+    }, AppExecutorUtil.getAppExecutorService());
+  }
+}
@@ -1,19 +1,15 @@
 package io.flutter.vmService;
 
-import com.google.common.collect.Lists;
-import com.google.common.collect.Sets;
 import com.google.common.net.PercentEscaper;
 import com.google.gson.JsonObject;
 import com.intellij.execution.ui.ConsoleViewContentType;
 import com.intellij.openapi.Disposable;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
-import com.intellij.openapi.util.Ref;
 import com.intellij.openapi.util.SystemInfo;
 import com.intellij.openapi.util.Version;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.util.Alarm;
-import com.intellij.util.concurrency.Semaphore;
 import com.intellij.xdebugger.XDebugSession;
 import com.intellij.xdebugger.XSourcePosition;
 import com.intellij.xdebugger.breakpoints.XBreakpointProperties;
@@ -60,16 +56,13 @@ import org.dartlang.vm.service.element.FrameKind;
 import org.dartlang.vm.service.element.InstanceRef;
 import org.dartlang.vm.service.element.Isolate;
 import org.dartlang.vm.service.element.IsolateRef;
-import org.dartlang.vm.service.element.LibraryRef;
 import org.dartlang.vm.service.element.Obj;
 import org.dartlang.vm.service.element.RPCError;
 import org.dartlang.vm.service.element.Script;
-import org.dartlang.vm.service.element.ScriptRef;
 import org.dartlang.vm.service.element.Sentinel;
 import org.dartlang.vm.service.element.Stack;
 import org.dartlang.vm.service.element.StepOption;
 import org.dartlang.vm.service.element.Success;
-import org.dartlang.vm.service.element.UnresolvedSourceLocation;
 import org.dartlang.vm.service.element.UriList;
 import org.dartlang.vm.service.element.VM;
 import org.jetbrains.annotations.NotNull;
@@ -78,13 +71,14 @@ import org.jetbrains.annotations.Nullable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -94,19 +88,36 @@ public class VmServiceWrapper implements Disposable {
 
   private static final long RESPONSE_WAIT_TIMEOUT = 3000; // millis
 
+  /**
+   * The number of stack frames delivered to the Frames view at a time.
+   */
+  private static final int STACK_FRAMES_PAGE_SIZE = 20;
+
   @NotNull private final DartVmServiceDebugProcess myDebugProcess;
   @NotNull private final VmService myVmService;
   @NotNull private final DartVmServiceListener myVmServiceListener;
   @NotNull private final IsolatesInfo myIsolatesInfo;
   @NotNull private final DartVmServiceBreakpointHandler myBreakpointHandler;
   @NotNull private final Alarm myRequestsScheduler;
-  @NotNull private final Map<Integer, CanonicalBreakpoint> breakpointNumbersToCanonicalMap;
-  @NotNull private final Set<CanonicalBreakpoint> canonicalBreakpoints;
+  @NotNull private final ObjectRequestCache myObjectCache = new ObjectRequestCache();
+
+  private record ScriptKey(@NotNull String isolateId, @NotNull String scriptId) {
+  }
+
+  /**
+   * The script downloads in progress.
+   */
+  @NotNull private final Map<ScriptKey, CompletableFuture<Script>> myScriptRequests = new ConcurrentHashMap<>();
 
-  private long myVmServiceReceiverThreadId;
+  private volatile long myVmServiceReceiverThreadId;
 
   @Nullable private StepOption myLatestStep;
 
+  /**
+   * Whether the VM can map file URIs to package URIs itself; computed once per connection.
+   */
+  @Nullable private CompletableFuture<Boolean> myVmServiceMappingSupported;
+
   public VmServiceWrapper(@NotNull DartVmServiceDebugProcess debugProcess,
                           @NotNull VmService vmService,
                           @NotNull DartVmServiceListener vmServiceListener,
@@ -118,8 +129,6 @@ public class VmServiceWrapper implements Disposable {
     myIsolatesInfo = isolatesInfo;
     myBreakpointHandler = breakpointHandler;
     myRequestsScheduler = new Alarm(Alarm.ThreadToUse.POOLED_THREAD, this);
-    breakpointNumbersToCanonicalMap = new HashMap<>();
-    canonicalBreakpoints = new HashSet<>();
   }
 
   @NotNull
@@ -129,6 +138,22 @@ public class VmServiceWrapper implements Disposable {
 
   @Override
   public void dispose() {
+    myObjectCache.clear();
+  }
+
+  /**
+   * Starts caching the objects of the given isolate, which has just paused.
+   */
+  public void startObjectCache(@NotNull String isolateId) {
+    myObjectCache.isolatePaused(isolateId);
+  }
+
+  /**
+   * Forgets the objects of the given isolate that were cached while it was paused, and stops caching them until it
+   * pauses again. Called when the isolate resumes, restarts or exits.
+   */
+  public void invalidateObjectCache(@NotNull String isolateId) {
+    myObjectCache.invalidate(isolateId);
   }
 
   private void addRequest(@NotNull Runnable runnable) {
@@ -142,7 +167,11 @@ public class VmServiceWrapper implements Disposable {
     return myLatestStep;
   }
 
-  private void assertSyncRequestAllowed() {
+  /**
+   * Logs an error if the calling thread must not wait for an answer from the VM, either because it would freeze the UI or
+   * because the answer would be received on this thread.
+   */
+  public void assertSyncRequestAllowed() {
     if (ApplicationManager.getApplication().isDispatchThread()) {
       LOG.error("EDT should not be blocked by waiting for for the answer from the Dart debugger");
     }
@@ -383,15 +412,123 @@ public class VmServiceWrapper implements Disposable {
       return;
     }
 
-    final AtomicInteger counter = new AtomicInteger(xBreakpoints.size());
+    final BreakpointBatch batch = new BreakpointBatch(isolateId, xBreakpoints.size(), onFinished);
+    getVmServiceMappingSupported().thenAccept((supported) -> {
+      batch.versionChecked();
+      if (supported) {
+        addBreakpointsWithVmService(batch, xBreakpoints);
+      }
+      else {
+        for (final XLineBreakpoint<XBreakpointProperties> xBreakpoint : xBreakpoints) {
+          addBreakpointWithMapper(isolateId, xBreakpoint.getSourcePosition(), batch.consumerFor(xBreakpoint));
+        }
+      }
+    });
+  }
+
+  /**
+   * Sets the given breakpoints using a single <code>lookupPackageUris</code> request for all their files, and then
+   * sending all the <code>addBreakpointWithScriptUri</code> requests without waiting for each response.
+   */
+  private void addBreakpointsWithVmService(@NotNull BreakpointBatch batch,
+                                           @NotNull Collection<XLineBreakpoint<XBreakpointProperties>> xBreakpoints) {
+    addRequest(() -> {
+      // The breakpoints to set in each file, keyed by the file's resolved URI.
+      final Map<String, List<XLineBreakpoint<XBreakpointProperties>>> breakpointsByUri = new LinkedHashMap<>();
+      for (XLineBreakpoint<XBreakpointProperties> xBreakpoint : xBreakpoints) {
+        final XSourcePosition position = xBreakpoint.getSourcePosition();
+        if (position == null || position.getFile().getFileType() != DartFileType.INSTANCE) {
+          batch.consumerFor(xBreakpoint).sourcePositionNotApplicable();
+          continue;
+        }
+
+        final String resolvedUri = getResolvedUri(position);
+        if (FlutterSettings.getInstance().isFilePathLoggingEnabled()) LOG.info("Computed resolvedUri: " + resolvedUri);
+        breakpointsByUri.computeIfAbsent(percentEscapeUri(resolvedUri), (uri) -> new ArrayList<>()).add(xBreakpoint);
+      }
+      if (breakpointsByUri.isEmpty()) {
+        return;
+      }
+
+      final List<String> resolvedUris = new ArrayList<>(breakpointsByUri.keySet());
+      myVmService.lookupPackageUris(batch.isolateId, resolvedUris, new UriListConsumer() {
+        @Override
+        public void received(UriList response) {
+          if (myDebugProcess.getSession().getProject().isDisposed()) {
+            return;
+          }
+          batch.urisResolved();
+
+          final List<String> scriptUris = response.getUris();
+          for (int i = 0; i < resolvedUris.size(); i++) {
+            final String scriptUri = scriptUris == null || i >= scriptUris.size() ? null : scriptUris.get(i);
+            for (XLineBreakpoint<XBreakpointProperties> xBreakpoint : breakpointsByUri.get(resolvedUris.get(i))) {
+              final VmServiceConsumers.BreakpointsConsumer consumer = batch.consumerFor(xBreakpoint);
+              if (scriptUri == null) {
+                LOG.info("Uri was not found: " + resolvedUris.get(i));
+                final JsonObject error = new JsonObject();
+                error.addProperty("error", "Breakpoint could not be mapped to package URI");
+                consumer.received(List.of(), List.of(new RPCError(error)));
+              }
+              else {
+                //noinspection ConstantConditions
+                addBreakpointWithScriptUri(batch.isolateId, scriptUri, xBreakpoint.getSourcePosition().getLine() + 1, consumer);
+              }
+            }
+          }
+        }
 
-    for (final XLineBreakpoint<XBreakpointProperties> xBreakpoint : xBreakpoints) {
-      addBreakpoint(isolateId, xBreakpoint.getSourcePosition(), new VmServiceConsumers.BreakpointsConsumer() {
+        @Override
+        public void onError(RPCError error) {
+          LOG.warn("lookupPackageUris failed: " + error.getMessage());
+          batch.urisResolved();
+          for (List<XLineBreakpoint<XBreakpointProperties>> breakpoints : breakpointsByUri.values()) {
+            for (XLineBreakpoint<XBreakpointProperties> xBreakpoint : breakpoints) {
+              batch.consumerFor(xBreakpoint).received(List.of(), List.of(error));
+            }
+          }
+        }
+      });
+    });
+  }
+
+  /**
+   * Tracks the breakpoints being set in an isolate, reporting them to the breakpoint handler, and logs how long each
+   * phase took once all of them are done.
+   */
+  private class BreakpointBatch {
+    @NotNull final String isolateId;
+    @Nullable private final Runnable onFinished;
+    private final int size;
+    private final AtomicInteger remaining;
+
+    private final long startNanos = System.nanoTime();
+    private volatile long versionCheckedNanos;
+    private volatile long urisResolvedNanos;
+
+    BreakpointBatch(@NotNull String isolateId, int size, @Nullable Runnable onFinished) {
+      this.isolateId = isolateId;
+      this.size = size;
+      this.remaining = new AtomicInteger(size);
+      this.onFinished = onFinished;
+    }
+
+    void versionChecked() {
+      versionCheckedNanos = System.nanoTime();
+    }
+
+    void urisResolved() {
+      urisResolvedNanos = System.nanoTime();
+    }
+
+    @NotNull
+    VmServiceConsumers.BreakpointsConsumer consumerFor(@NotNull XLineBreakpoint<XBreakpointProperties> xBreakpoint) {
+      return new VmServiceConsumers.BreakpointsConsumer() {
         @Override
         void sourcePositionNotApplicable() {
           myBreakpointHandler.breakpointFailed(xBreakpoint);
 
-          checkDone();
+          breakpointDone();
         }
 
         @Override
@@ -405,85 +542,69 @@ public class VmServiceWrapper implements Disposable {
             myBreakpointHandler.breakpointFailed(xBreakpoint);
           }
 
-          checkDone();
+          breakpointDone();
         }
+      };
+    }
 
-        private void checkDone() {
-          if (counter.decrementAndGet() == 0 && onFinished != null) {
-            onFinished.run();
-
-            myVmService.getIsolate(isolateId, new GetIsolateConsumer() {
-              @Override
-              public void received(Isolate response) {
-                Set<String> libraryUris = new HashSet<>();
-                Set<String> fileNames = new HashSet<>();
-                for (LibraryRef library : response.getLibraries()) {
-                  String uri = library.getUri();
-                  libraryUris.add(uri);
-                  String[] split = uri.split("/");
-                  fileNames.add(split[split.length - 1]);
-                }
+    private void breakpointDone() {
+      if (remaining.decrementAndGet() != 0) return;
 
-                ElementList<Breakpoint> breakpoints = response.getBreakpoints();
-                if (breakpoints.isEmpty() && canonicalBreakpoints.isEmpty()) {
-                  return;
-                }
+      final long doneNanos = System.nanoTime();
+      final long versionMillis = millisBetween(startNanos, versionCheckedNanos);
+      final long resolveMillis = urisResolvedNanos == 0 ? 0 : millisBetween(versionCheckedNanos, urisResolvedNanos);
+      final long addMillis = millisBetween(urisResolvedNanos == 0 ? versionCheckedNanos : urisResolvedNanos, doneNanos);
+      LOG.info("Set " + size + " breakpoints in " + isolateId + " in " + millisBetween(startNanos, doneNanos) + " ms (version check " +
+               versionMillis + " ms, URI lookup " + resolveMillis + " ms, adding breakpoints " + addMillis + " ms)");
 
-                Set<CanonicalBreakpoint> mappedCanonicalBreakpoints = new HashSet<>();
-                for (Breakpoint breakpoint : breakpoints) {
-                  Object location = breakpoint.getLocation();
-                  // In JIT mode, locations will be unresolved at this time since files aren't compiled until they are used.
-                  if (location instanceof UnresolvedSourceLocation) {
-                    ScriptRef script = ((UnresolvedSourceLocation)location).getScript();
-                    if (script != null && libraryUris.contains(script.getUri())) {
-                      mappedCanonicalBreakpoints.add(breakpointNumbersToCanonicalMap.get(breakpoint.getBreakpointNumber()));
-                    }
-                  }
-                }
-
-                Sets.SetView<CanonicalBreakpoint> initialDifference =
-                  Sets.difference(canonicalBreakpoints, mappedCanonicalBreakpoints);
-                Set<CanonicalBreakpoint> finalDifference = new HashSet<>();
+      if (onFinished != null) {
+        onFinished.run();
+      }
+    }
+  }
 
-                for (CanonicalBreakpoint missingBreakpoint : initialDifference) {
-                  // If the file name doesn't exist in loaded library files, then most likely it's not part of the dependencies of what was
-                  // built. So it's okay to ignore these breakpoints in our count.
-                  if (fileNames.contains(missingBreakpoint.fileName)) {
-                    finalDifference.add(missingBreakpoint);
-                  }
-                }
-              }
+  private static long millisBetween(long startNanos, long endNanos) {
+    return TimeUnit.NANOSECONDS.toMillis(Math.max(0, endNanos - startNanos));
+  }
 
-              @Override
-              public void received(Sentinel response) {
-              }
+  /**
+   * Returns whether the VM can map file URIs to package URIs, asking it only the first time.
+   */
+  @NotNull
+  private synchronized CompletableFuture<Boolean> getVmServiceMappingSupported() {
+    if (myVmServiceMappingSupported == null) {
+      final CompletableFuture<Boolean> supported = new CompletableFuture<>();
+      myVmServiceMappingSupported = supported;
+
+      final org.dartlang.vm.service.element.Version runtimeVersion = myVmService.getRuntimeVersion();
+      if (runtimeVersion != null) {
+        supported.complete(isVmServiceMappingSupported(runtimeVersion));
+      }
+      else {
+        myVmService.getVersion(new VersionConsumer() {
+          @Override
+          public void received(org.dartlang.vm.service.element.Version response) {
+            supported.complete(isVmServiceMappingSupported(response));
+          }
 
-              @Override
-              public void onError(RPCError error) {
-              }
-            });
+          @Override
+          public void onError(RPCError error) {
+            supported.complete(false);
           }
-        }
-      });
+        });
+      }
     }
+    return myVmServiceMappingSupported;
   }
 
   public void addBreakpoint(@NotNull String isolateId,
                             @Nullable XSourcePosition position,
                             @NotNull VmServiceConsumers.BreakpointsConsumer consumer) {
-    myVmService.getVersion(new VersionConsumer() {
-      @Override
-      public void received(org.dartlang.vm.service.element.Version response) {
-        if (isVmServiceMappingSupported(response)) {
-          addBreakpointWithVmService(isolateId, position, consumer);
-        }
-        else {
-          addBreakpointWithMapper(isolateId, position, consumer);
-        }
+    getVmServiceMappingSupported().thenAccept((supported) -> {
+      if (supported) {
+        addBreakpointWithVmService(isolateId, position, consumer);
       }
-
-      @Override
-      public void onError(RPCError error) {
+      else {
         addBreakpointWithMapper(isolateId, position, consumer);
       }
     });
@@ -512,9 +633,6 @@ public class VmServiceWrapper implements Disposable {
       int line = position.getLine() + 1;
 
       Collection<String> scriptUris = myDebugProcess.getUrisForFile(position.getFile());
-      CanonicalBreakpoint canonicalBreakpoint =
-        new CanonicalBreakpoint(position.getFile().getName(), position.getFile().getCanonicalPath(), line);
-      canonicalBreakpoints.add(canonicalBreakpoint);
       List<Breakpoint> breakpointResponses = new ArrayList<>();
       List<RPCError> errorResponses = new ArrayList<>();
 
@@ -523,7 +641,6 @@ public class VmServiceWrapper implements Disposable {
           @Override
           public void received(Breakpoint response) {
             breakpointResponses.add(response);
-            breakpointNumbersToCanonicalMap.put(response.getBreakpointNumber(), canonicalBreakpoint);
 
             checkDone();
           }
@@ -565,12 +682,6 @@ public class VmServiceWrapper implements Disposable {
       if (FlutterSettings.getInstance().isFilePathLoggingEnabled()) LOG.info("Computed resolvedUri: " + resolvedUri);
       List<String> resolvedUriList = List.of(percentEscapeUri(resolvedUri));
 
-      CanonicalBreakpoint canonicalBreakpoint =
-        new CanonicalBreakpoint(position.getFile().getName(), position.getFile().getCanonicalPath(), line);
-      canonicalBreakpoints.add(canonicalBreakpoint);
-      List<Breakpoint> breakpointResponses = new ArrayList<>();
-      List<RPCError> errorResponses = new ArrayList<>();
-
       myVmService.lookupPackageUris(isolateId, resolvedUriList, new UriListConsumer() {
         @Override
         public void received(UriList response) {
@@ -585,38 +696,13 @@ public class VmServiceWrapper implements Disposable {
             LOG.info("Uri was not found");
             JsonObject error = new JsonObject();
             error.addProperty("error", "Breakpoint could not be mapped to package URI");
-            errorResponses.add(new RPCError(error));
-            consumer.received(breakpointResponses, errorResponses);
+            consumer.received(List.of(), List.of(new RPCError(error)));
             return;
           }
 
           String scriptUri = uris.get(0);
           LOG.info("in received of lookupPackageUris. scriptUri: " + scriptUri);
-          myVmService.addBreakpointWithScriptUri(isolateId, scriptUri, line, new AddBreakpointWithScriptUriConsumer() {
-            @Override
-            public void received(Breakpoint response) {
-              breakpointResponses.add(response);
-              breakpointNumbersToCanonicalMap.put(response.getBreakpointNumber(), canonicalBreakpoint);
-
-              checkDone();
-            }
-
-            @Override
-            public void received(Sentinel response) {
-              checkDone();
-            }
-
-            @Override
-            public void onError(RPCError error) {
-              errorResponses.add(error);
-
-              checkDone();
-            }
-
-            private void checkDone() {
-              consumer.received(breakpointResponses, errorResponses);
-            }
-          });
+          addBreakpointWithScriptUri(isolateId, scriptUri, line, consumer);
         }
 
         @Override
@@ -625,13 +711,34 @@ public class VmServiceWrapper implements Disposable {
           LOG.error(error.getMessage());
           LOG.error(Objects.toString(error.getRequest()));
           LOG.error(error.getDetails());
-          errorResponses.add(error);
-          consumer.received(breakpointResponses, errorResponses);
+          consumer.received(List.of(), List.of(error));
         }
       });
     });
   }
 
+  private void addBreakpointWithScriptUri(@NotNull String isolateId,
+                                          @NotNull String scriptUri,
+                                          int line,
+                                          @NotNull VmServiceConsumers.BreakpointsConsumer consumer) {
+    myVmService.addBreakpointWithScriptUri(isolateId, scriptUri, line, new AddBreakpointWithScriptUriConsumer() {
+      @Override
+      public void received(Breakpoint response) {
+        consumer.received(List.of(response), List.of());
+      }
+
+      @Override
+      public void received(Sentinel response) {
+        consumer.received(List.of(), List.of());
+      }
+
+      @Override
+      public void onError(RPCError error) {
+        consumer.received(List.of(), List.of(error));
+      }
+    });
+  }
+
   private String getResolvedUri(@NotNull XSourcePosition position) {
     XDebugSession session = myDebugProcess.getSession();
     VirtualFile file =
@@ -819,88 +926,173 @@ public class VmServiceWrapper implements Disposable {
                                  int firstFrameIndex,
                                  @NotNull XExecutionStack.XStackFrameContainer container,
                                  @Nullable InstanceRef exception) {
-    addRequest(() -> myVmService.getStack(isolateId, new GetStackConsumer() {
-      @Override
-      public void received(Stack vmStack) {
-        ApplicationManager.getApplication().executeOnPooledThread(() -> {
-          InstanceRef exceptionToAddToFrame = exception;
-
-          // Check for async causal frames; fall back to using regular sync frames.
-          ElementList<Frame> elementList = vmStack.getAsyncCausalFrames();
-          if (elementList == null) {
-            elementList = vmStack.getFrames();
-          }
+    // Ask for the first page only, so that it can be shown without waiting for the rest of a deep stack.
+    final StackFramesBuilder builder = new StackFramesBuilder(isolateId, firstFrameIndex, container, exception);
+    addRequest(() -> myVmService.getStack(isolateId, firstFrameIndex + STACK_FRAMES_PAGE_SIZE, builder.consumer(true)));
+  }
 
-          final List<Frame> vmFrames = Lists.newArrayList(elementList);
-          final List<XStackFrame> xStackFrames = new ArrayList<>(vmFrames.size());
+  /**
+   * Converts the frames of a stack and delivers them to the Frames view a page at a time.
+   * <p>
+   * The source position of each frame is looked up as the frame is created, which may need a request for its script, so
+   * frames are only created for the page about to be delivered.
+   */
+  private class StackFramesBuilder {
+    @NotNull private final String isolateId;
+    private final int firstFrameIndex;
+    @NotNull private final XExecutionStack.XStackFrameContainer container;
+
+    /**
+     * The exception to show in the next frame; it's shown in the frame where the debugger stopped and the frames in Dart
+     * SDK patch files above it.
+     */
+    @Nullable private InstanceRef exceptionToAddToFrame;
+
+    /**
+     * The number of VM frames converted so far.
+     */
+    private int converted;
+
+    StackFramesBuilder(@NotNull String isolateId,
+                       int firstFrameIndex,
+                       @NotNull XExecutionStack.XStackFrameContainer container,
+                       @Nullable InstanceRef exception) {
+      this.isolateId = isolateId;
+      this.firstFrameIndex = firstFrameIndex;
+      this.container = container;
+      this.exceptionToAddToFrame = exception;
+    }
 
-          for (final Frame vmFrame : vmFrames) {
-            if (vmFrame.getKind() == FrameKind.AsyncSuspensionMarker) {
-              // Render an asynchronous gap.
-              final XStackFrame markerFrame = new DartAsyncMarkerFrame();
-              xStackFrames.add(markerFrame);
+    /**
+     * @param firstPage whether this is the response to the request for the first page, which may have been truncated
+     */
+    @NotNull
+    GetStackConsumer consumer(boolean firstPage) {
+      return new GetStackConsumer() {
+        @Override
+        public void received(Stack vmStack) {
+          ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            // Check for async causal frames; fall back to using regular sync frames.
+            ElementList<Frame> vmFrames = vmStack.getAsyncCausalFrames();
+            if (vmFrames == null) {
+              vmFrames = vmStack.getFrames();
             }
-            else {
-              final DartVmServiceStackFrame stackFrame =
-                new DartVmServiceStackFrame(myDebugProcess, isolateId, vmFrame, vmFrames, exceptionToAddToFrame);
-              stackFrame.setIsDroppableFrame(vmFrame.getKind() == FrameKind.Regular);
-              xStackFrames.add(stackFrame);
-
-              if (!stackFrame.isInDartSdkPatchFile()) {
-                // The exception (if any) is added to the frame where debugger stops and to the upper frames.
-                exceptionToAddToFrame = null;
-              }
+
+            // Download the scripts of all the frames in parallel, rather than one at a time as each frame is created.
+            myDebugProcess.prefetchScripts(isolateId, vmFrames);
+
+            final boolean complete = !firstPage || !vmStack.getTruncated();
+            addFrames(vmFrames, complete);
+
+            if (!complete && !container.isObsolete()) {
+              // Fetch the whole stack for the rest of the frames; the ones already shown are skipped.
+              addRequest(() -> myVmService.getStack(isolateId, consumer(false)));
             }
+          });
+        }
+
+        @Override
+        public void onError(RPCError error) {
+          container.errorOccurred(error.getMessage());
+        }
+
+        @Override
+        public void received(Sentinel response) {
+          container.errorOccurred(response.getValueAsString());
+        }
+      };
+    }
+
+    /**
+     * Converts the frames that haven't been converted yet, delivering the ones at or after the first requested index.
+     *
+     * @param complete whether the given list contains every frame of the stack
+     */
+    private void addFrames(@NotNull ElementList<Frame> vmFrames, boolean complete) {
+      final int size = vmFrames.size();
+      do {
+        if (container.isObsolete()) return;
+
+        final int end = Math.max(converted, Math.min(converted + STACK_FRAMES_PAGE_SIZE, size));
+        final List<XStackFrame> page = new ArrayList<>(end - converted);
+        for (; converted < end; converted++) {
+          final XStackFrame frame = createFrame(vmFrames.get(converted), converted, complete && converted == size - 1);
+          if (converted >= firstFrameIndex) {
+            page.add(frame);
           }
-          container.addStackFrames(firstFrameIndex == 0 ? xStackFrames : xStackFrames.subList(firstFrameIndex, xStackFrames.size()), true);
-        });
+        }
+
+        final boolean last = complete && converted == size;
+        if (!page.isEmpty() || last) {
+          container.addStackFrames(page, last);
+        }
       }
+      while (converted < size);
+    }
 
-      @Override
-      public void onError(RPCError error) {
-        container.errorOccurred(error.getMessage());
+    @NotNull
+    private XStackFrame createFrame(@NotNull Frame vmFrame, int frameIndex, boolean isLastFrame) {
+      if (vmFrame.getKind() == FrameKind.AsyncSuspensionMarker) {
+        // Render an asynchronous gap.
+        return new DartAsyncMarkerFrame();
       }
 
-      @Override
-      public void received(Sentinel response) {
-        container.errorOccurred(response.getValueAsString());
+      final DartVmServiceStackFrame stackFrame =
+        new DartVmServiceStackFrame(myDebugProcess, isolateId, vmFrame, frameIndex, isLastFrame, exceptionToAddToFrame);
+      stackFrame.setIsDroppableFrame(vmFrame.getKind() == FrameKind.Regular);
+
+      if (!stackFrame.isInDartSdkPatchFile()) {
+        // The exception (if any) is added to the frame where debugger stops and to the upper frames.
+        exceptionToAddToFrame = null;
       }
-    }));
+      return stackFrame;
+    }
   }
 
-  @Nullable
-  public Script getScriptSync(@NotNull String isolateId, @NotNull String scriptId) {
-    assertSyncRequestAllowed();
-
-    final Semaphore semaphore = new Semaphore();
-    semaphore.down();
+  /**
+   * Downloads a script. Concurrent requests for the same script share a single request to the VM.
+   * <p>
+   * The result is null if the script isn't available, or if the VM doesn't answer within {@link #RESPONSE_WAIT_TIMEOUT}.
+   */
+  @NotNull
+  public CompletableFuture<Script> getScript(@NotNull String isolateId, @NotNull String scriptId) {
+    final ScriptKey key = new ScriptKey(isolateId, scriptId);
+    final CompletableFuture<Script> pending = myScriptRequests.get(key);
+    if (pending != null) {
+      return pending;
+    }
 
-    final Ref<Script> resultRef = Ref.create();
+    final CompletableFuture<Script> future = new CompletableFuture<>();
+    final CompletableFuture<Script> existing = myScriptRequests.putIfAbsent(key, future);
+    if (existing != null) {
+      return existing;
+    }
+    future.completeOnTimeout(null, RESPONSE_WAIT_TIMEOUT, TimeUnit.MILLISECONDS);
+    future.whenComplete((script, error) -> myScriptRequests.remove(key, future));
 
     addRequest(() -> myVmService.getObject(isolateId, scriptId, new GetObjectConsumer() {
       @Override
       public void received(Obj script) {
-        resultRef.set((Script)script);
-        semaphore.up();
+        future.complete(script instanceof Script ? (Script)script : null);
       }
 
       @Override
       public void received(Sentinel response) {
-        semaphore.up();
+        future.complete(null);
       }
 
       @Override
       public void onError(RPCError error) {
-        semaphore.up();
+        future.complete(null);
       }
     }));
-
-    semaphore.waitFor(RESPONSE_WAIT_TIMEOUT);
-    return resultRef.get();
+    return future;
   }
 
   public void getObject(@NotNull String isolateId, @NotNull String objectId, @NotNull GetObjectConsumer consumer) {
-    addRequest(() -> myVmService.getObject(isolateId, objectId, consumer));
+    myObjectCache.getObject(isolateId, objectId, -1, -1,
+                            (sharedConsumer) -> addRequest(() -> myVmService.getObject(isolateId, objectId, sharedConsumer)),
+                            consumer);
   }
 
   public void getCollectionObject(@NotNull String isolateId,
@@ -908,13 +1100,17 @@ public class VmServiceWrapper implements Disposable {
                                   int offset,
                                   int count,
                                   @NotNull GetObjectConsumer consumer) {
-    addRequest(() -> myVmService.getObject(isolateId, objectId, offset, count, consumer));
+    myObjectCache.getObject(isolateId, objectId, offset, count,
+                            (sharedConsumer) -> addRequest(() -> myVmService.getObject(isolateId, objectId, offset, count, sharedConsumer)),
+                            consumer);
   }
 
   public void evaluateInFrame(@NotNull String isolateId,
                               @NotNull Frame vmFrame,
                               @NotNull String expression,
                               @NotNull XDebuggerEvaluator.XEvaluationCallback callback) {
+    // The expression may have side effects.
+    myObjectCache.evaluated(isolateId);
     addRequest(() -> myVmService.evaluateInFrame(isolateId, vmFrame.getIndex(), expression, new EvaluateInFrameConsumer() {
       @Override
       public void received(InstanceRef instanceRef) {
@@ -943,6 +1139,8 @@ public class VmServiceWrapper implements Disposable {
                                       @NotNull String targetId,
                                       @NotNull String expression,
                                       @NotNull EvaluateConsumer consumer) {
+    // The expression may have side effects.
+    myObjectCache.evaluated(isolateId);
     addRequest(() -> myVmService.evaluate(isolateId, targetId, expression, consumer));
   }
 
@@ -1027,18 +1225,6 @@ public class VmServiceWrapper implements Disposable {
   }
 }
 
-class CanonicalBreakpoint {
-  @NotNull final String fileName;
-  @Nullable final String path;
-  final int line;
-
-  CanonicalBreakpoint(@NotNull String name, @Nullable String path, int line) {
-    this.fileName = name;
-    this.path = path;
-    this.line = line;
-  }
-}
-
 class VmServiceVersion {
   // VM service protocol versions: https://github.com/dart-lang/sdk/blob/master/runtime/vm/service/service.md#revision-history.
   @NotNull private static Version URI_MAPPING_VERSION = new Version(VmService.versionMajor, VmService.versionMinor, 0);
@@ -31,7 +31,7 @@ public class DartVmServiceExecutionStack extends XExecutionStack {
     myDebugProcess = debugProcess;
     myIsolateId = isolateId;
     myException = exception;
-    myTopFrame = topFrame == null ? null : new DartVmServiceStackFrame(debugProcess, isolateId, topFrame, null, exception);
+    myTopFrame = topFrame == null ? null : new DartVmServiceStackFrame(debugProcess, isolateId, topFrame, 0, true, exception);
   }
 
   @NotNull
@@ -17,8 +17,6 @@ import org.dartlang.vm.service.element.*;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.List;
-
 public class DartVmServiceStackFrame extends XStackFrame {
 
   @NotNull private final DartVmServiceDebugProcess myDebugProcess;
@@ -26,18 +24,25 @@ public class DartVmServiceStackFrame extends XStackFrame {
   @NotNull private final Frame myVmFrame;
   @Nullable private final InstanceRef myException;
   @Nullable private final XSourcePosition mySourcePosition;
-  @Nullable private final List<Frame> myVmFrames;
+  private final int myFrameIndex;
+  private final boolean myIsLastFrame;
   private boolean myIsDroppableFrame;
 
+  /**
+   * @param frameIndex  the index of the frame in its stack
+   * @param isLastFrame whether this is known to be the bottom frame of the stack
+   */
   public DartVmServiceStackFrame(@NotNull final DartVmServiceDebugProcess debugProcess,
                                  @NotNull final String isolateId,
                                  @NotNull final Frame vmFrame,
-                                 @Nullable List<Frame> vmFrames,
+                                 int frameIndex,
+                                 boolean isLastFrame,
                                  @Nullable final InstanceRef exception) {
     myDebugProcess = debugProcess;
     myIsolateId = isolateId;
     myVmFrame = vmFrame;
-    myVmFrames = vmFrames;
+    myFrameIndex = frameIndex;
+    myIsLastFrame = isLastFrame;
     myException = exception;
     if (vmFrame.getLocation() == null) {
       mySourcePosition = null;
@@ -59,20 +64,13 @@ public class DartVmServiceStackFrame extends XStackFrame {
   }
 
   public int getFrameIndex() {
-    return myVmFrames == null ? 0 : myVmFrames.indexOf(myVmFrame);
+    return myFrameIndex;
   }
 
   public void setIsDroppableFrame(boolean value) {
     myIsDroppableFrame = value;
   }
 
-  private boolean isLastFrame() {
-    if (myVmFrames == null) {
-      return true;
-    }
-    return getFrameIndex() == (myVmFrames.size() - 1);
-  }
-
   @Override
   public void customizePresentation(@NotNull final ColoredTextContainer component) {
     final String unoptimizedPrefix = "[Unoptimized] ";
@@ -198,7 +196,7 @@ public class DartVmServiceStackFrame extends XStackFrame {
   }
 
   public boolean canDrop() {
-    return myIsDroppableFrame && !isLastFrame();
+    return myIsDroppableFrame && !myIsLastFrame;
   }
 
   public void dropFrame() {
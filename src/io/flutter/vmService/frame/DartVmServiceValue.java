@@ -1,7 +1,5 @@
 package io.flutter.vmService.frame;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonObject;
 import com.intellij.icons.AllIcons;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.util.text.StringUtil;
@@ -21,8 +19,6 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
-import java.nio.ByteBuffer;
-import java.text.MessageFormat;
 import java.util.Base64;
 
 // TODO: implement some combination of XValue.getEvaluationExpression() /
@@ -36,9 +32,11 @@ public class DartVmServiceValue extends XNamedValue {
     LayeredIcon.layeredIcon(() -> new Icon[]{AllIcons.Nodes.Field, AllIcons.Nodes.StaticMark});
   private static final LayeredIcon STATIC_FINAL_FIELD_ICON =
     LayeredIcon.layeredIcon(() -> new Icon[]{AllIcons.Nodes.Field, AllIcons.Nodes.StaticMark, AllIcons.Nodes.FinalMark});
-  private static final String JSON_STRING_TEMPLATE =
-    "'{'\"type\":\"@Instance\",\"class\":'{'\"type\":\"@Class\",\"fixedId\":\"true\",\"id\":\"classes/91\"," +
-    "\"name\":\"_OneByteString\"'}',\"kind\":\"String\",\"length\":\"{0}\",\"valueAsString\":\"{1}\"'}'";
+
+  /**
+   * Collections with more elements than this are shown as buckets of index ranges rather than page by page.
+   */
+  private static final int BUCKETING_THRESHOLD = 1000;
 
   @NotNull private final DartVmServiceDebugProcess myDebugProcess;
   @NotNull private final String myIsolateId;
@@ -355,7 +353,7 @@ public class DartVmServiceValue extends XNamedValue {
     }
 
     if ((isListKind(myInstanceRef.getKind()) || myInstanceRef.getKind() == InstanceKind.Map)) {
-      computeCollectionChildren(myInstanceRef, 0, node);
+      computeCollectionChildren(myInstanceRef, 0, myInstanceRef.getLength(), node);
     }
     else {
       myDebugProcess.getVmServiceWrapper().getObject(myIsolateId, myInstanceRef.getId(), new GetObjectConsumer() {
@@ -377,15 +375,44 @@ public class DartVmServiceValue extends XNamedValue {
     }
   }
 
-  private void computeCollectionChildren(@NotNull InstanceRef instanceRef, int offset, @NotNull final XCompositeNode node) {
-    final int count = Math.min(instanceRef.getLength() - offset, XCompositeNode.MAX_CHILDREN_TO_SHOW);
+  /**
+   * Adds the elements of the given collection in the range [start, end).
+   * <p>
+   * Large ranges are split into buckets of at most {@link XCompositeNode#MAX_CHILDREN_TO_SHOW} sub-ranges each, so
+   * elements are only fetched from the VM when the bucket holding them is expanded.
+   */
+  private void computeCollectionChildren(@NotNull InstanceRef instanceRef, int start, int end, @NotNull XCompositeNode node) {
+    if (end - start <= BUCKETING_THRESHOLD) {
+      computeCollectionPage(instanceRef, start, end, node);
+      return;
+    }
+
+    int bucketSize = XCompositeNode.MAX_CHILDREN_TO_SHOW;
+    while ((long)bucketSize * XCompositeNode.MAX_CHILDREN_TO_SHOW < end - start) {
+      bucketSize *= XCompositeNode.MAX_CHILDREN_TO_SHOW;
+    }
+
+    final XValueChildrenList childrenList = new XValueChildrenList();
+    for (int bucketStart = start; bucketStart < end; bucketStart += bucketSize) {
+      final int bucketEnd = (int)Math.min((long)bucketStart + bucketSize, end);
+      childrenList.add("[" + bucketStart + ".." + (bucketEnd - 1) + "]", new CollectionRangeValue(instanceRef, bucketStart, bucketEnd));
+    }
+    node.addChildren(childrenList, true);
+  }
+
+  /**
+   * Fetches and adds a page of the collection's elements, starting at offset, with a link to show the next page.
+   */
+  private void computeCollectionPage(@NotNull InstanceRef instanceRef, int offset, int end, @NotNull final XCompositeNode node) {
+    final int count = Math.min(end - offset, XCompositeNode.MAX_CHILDREN_TO_SHOW);
 
-    myDebugProcess.getVmServiceWrapper().getCollectionObject(myIsolateId, myInstanceRef.getId(), offset, count, new GetObjectConsumer() {
+    myDebugProcess.getVmServiceWrapper().getCollectionObject(myIsolateId, instanceRef.getId(), offset, count, new GetObjectConsumer() {
       @Override
       public void received(Obj instance) {
         InstanceKind kind = instanceRef.getKind();
         if (isListKind(kind)) {
-          addListChildren(offset, node, (Instance)instance);
+          // A list whose elements are read through toList() is paged from the copy.
+          if (!addListChildren(offset, end, node, (Instance)instance)) return;
         }
         else if (kind == InstanceKind.Map) {
           addMapChildren(offset, node, ((Instance)instance).getAssociations());
@@ -394,9 +421,8 @@ public class DartVmServiceValue extends XNamedValue {
           assert false : kind;
         }
 
-        if (offset + count < instanceRef.getLength()) {
-          node.tooManyChildren(instanceRef.getLength() - offset - count
-            , () -> computeCollectionChildren(instanceRef, offset + count, node));
+        if (offset + count < end) {
+          node.tooManyChildren(end - offset - count, () -> computeCollectionPage(instanceRef, offset + count, end, node));
         }
       }
 
@@ -412,7 +438,11 @@ public class DartVmServiceValue extends XNamedValue {
     });
   }
 
-  private void addListChildren(int offset, @NotNull XCompositeNode node, @NotNull Instance instance) {
+  /**
+   * Adds the elements of a page of a list, or pages through the result of the list's toList() method, up to end.
+   * Returns false in the latter case, which adds its own link to the next page.
+   */
+  private boolean addListChildren(int offset, int end, @NotNull XCompositeNode node, @NotNull Instance instance) {
     ElementList<InstanceRef> listElementsRef = instance.getElements();
     if (listElementsRef != null) {
       final XValueChildrenList childrenList = new XValueChildrenList(listElementsRef.size());
@@ -421,34 +451,35 @@ public class DartVmServiceValue extends XNamedValue {
         childrenList.add(new DartVmServiceValue(myDebugProcess, myIsolateId, String.valueOf(index++), listElement, null, null, false));
       }
       node.addChildren(childrenList, true);
-      return;
+      return true;
     }
 
     if (instance.getBytes() != null) { // true for typed data
       //noinspection ConstantConditions
       byte @NotNull [] bytes = Base64.getDecoder().decode(instance.getBytes());
+      // The elements share the decoded page, and are only formatted when they're displayed.
       TypedDataList data = getTypedDataList(bytes);
-      XValueChildrenList childrenList = new XValueChildrenList(data.size());
+      XValueChildrenList childrenList = new XValueChildrenList(data.size() + 1);
+      childrenList.add(new TypedDataPageValue(data, offset, isByteListKind(instance.getKind())));
       for (int i = 0; i < data.size(); i++) {
-        childrenList.add(
-          new DartVmServiceValue(myDebugProcess, myIsolateId, String.valueOf(i), instanceRefForString(data.getValue(i)), null, null,
-                                 false));
+        childrenList.add(new TypedDataElementValue(String.valueOf(offset + i), data, i));
       }
       node.addChildren(childrenList, true);
-      return;
+      return true;
     }
 
     if (instance.getKind() == InstanceKind.List) {
       node.addChildren(XValueChildrenList.EMPTY, true);
-      return;
+      return true;
     }
 
     // Show contents of special lists using toList() method
     myDebugProcess.getVmServiceWrapper().callToList(myIsolateId, instance.getId(), new VmServiceConsumers.InvokeConsumerWrapper() {
       @Override
       public void received(InstanceRef toListInstanceRef) {
-        if (toListInstanceRef.getKind() == InstanceKind.List) {
-          computeCollectionChildren(toListInstanceRef, offset, node);
+        final int toListEnd = Math.min(end, toListInstanceRef.getLength());
+        if (toListInstanceRef.getKind() == InstanceKind.List && offset < toListEnd) {
+          computeCollectionPage(toListInstanceRef, offset, toListEnd, node);
         }
         else {
           node.addChildren(XValueChildrenList.EMPTY, true);
@@ -460,17 +491,10 @@ public class DartVmServiceValue extends XNamedValue {
         node.addChildren(XValueChildrenList.EMPTY, true);
       }
     });
-  }
-
-  private InstanceRef instanceRefForString(@NotNull String value) {
-    String json = MessageFormat.format(JSON_STRING_TEMPLATE, value.length(), value);
-    JsonObject ref = new Gson().fromJson(json, JsonObject.class);
-    //noinspection ConstantConditions
-    return new InstanceRef(ref);
+    return false;
   }
 
   private TypedDataList getTypedDataList(byte @NotNull [] bytes) {
-    ByteBuffer buffer = ByteBuffer.wrap(bytes);
     //noinspection ConstantConditions
     return switch (myInstanceRef.getKind()) {
       case Uint8List, Uint8ClampedList -> new TypedDataList.Uint8List(bytes);
@@ -596,11 +620,101 @@ public class DartVmServiceValue extends XNamedValue {
            kind == InstanceKind.Float64x2List;
   }
 
+  private static boolean isByteListKind(@Nullable InstanceKind kind) {
+    return kind == InstanceKind.Uint8List || kind == InstanceKind.Uint8ClampedList || kind == InstanceKind.Int8List;
+  }
+
   @NotNull
   public InstanceRef getInstanceRef() {
     return myInstanceRef;
   }
 
+  /**
+   * A bucket of collection elements, shown as e.g. <code>[0..9999]</code>.
+   */
+  private class CollectionRangeValue extends XValue {
+    @NotNull private final InstanceRef myCollectionRef;
+    private final int myStart;
+    private final int myEnd;
+
+    CollectionRangeValue(@NotNull InstanceRef collectionRef, int start, int end) {
+      myCollectionRef = collectionRef;
+      myStart = start;
+      myEnd = end;
+    }
+
+    @Override
+    public void computePresentation(@NotNull XValueNode node, @NotNull XValuePlace place) {
+      node.setPresentation(AllIcons.Debugger.Db_array, null, "", true);
+    }
+
+    @Override
+    public void computeChildren(@NotNull XCompositeNode node) {
+      computeCollectionChildren(myCollectionRef, myStart, myEnd, node);
+    }
+  }
+
+  /**
+   * Shows a page of typed data as text: a hex dump for byte lists, or the values separated by commas for other lists.
+   */
+  private static class TypedDataPageValue extends XNamedValue {
+    private static final int PREVIEW_VALUES = 16;
+
+    @NotNull private final TypedDataList myData;
+    private final int myOffset;
+    private final boolean myIsByteList;
+
+    TypedDataPageValue(@NotNull TypedDataList data, int offset, boolean isByteList) {
+      super(isByteList ? "[hex dump]" : "[values]");
+      myData = data;
+      myOffset = offset;
+      myIsByteList = isByteList;
+    }
+
+    @Override
+    public void computePresentation(@NotNull XValueNode node, @NotNull XValuePlace place) {
+      final StringBuilder preview = new StringBuilder();
+      myData.format(0, Math.min(PREVIEW_VALUES, myData.size()), ", ", preview);
+      if (myData.size() > PREVIEW_VALUES) {
+        preview.append(", ...");
+      }
+      node.setPresentation(AllIcons.Debugger.Db_array, null, preview.toString(), false);
+
+      node.setFullValueEvaluator(new XFullValueEvaluator(myIsByteList ? "View hex dump" : "View") {
+        @Override
+        public void startEvaluation(@NotNull XFullValueEvaluationCallback callback) {
+          final StringBuilder out = new StringBuilder(myIsByteList ? myData.getByteLength() * 5 : myData.size() * 8);
+          if (myIsByteList) {
+            myData.appendHexDump(myOffset, out);
+          }
+          else {
+            myData.format(0, myData.size(), ", ", out);
+          }
+          callback.evaluated(out.toString());
+        }
+      });
+    }
+  }
+
+  /**
+   * An element of typed data, formatted from the shared page of data only when it's displayed.
+   */
+  private static class TypedDataElementValue extends XNamedValue {
+    @NotNull private final TypedDataList myData;
+    private final int myIndex;
+
+    TypedDataElementValue(@NotNull String name, @NotNull TypedDataList data, int index) {
+      super(name);
+      myData = data;
+      myIndex = index;
+    }
+
+    @Override
+    public void computePresentation(@NotNull XValueNode node, @NotNull XValuePlace place) {
+      node.setPresentation(AllIcons.Debugger.Db_primitive, new XNumericValuePresentation(myData.getValue(myIndex)), false);
+    }
+  }
+
   public static class LocalVarSourceLocation {
     @NotNull private final ScriptRef myScriptRef;
     private final int myTokenPos;
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2025 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.logging;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AppWorkQueueTest {
+  @Test
+  public void runsTasksInOrder() throws Exception {
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      final AppWorkQueue queue = new AppWorkQueue(executor, 100);
+      final List<Integer> ran = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+        final int task = i;
+        queue.add(() -> ran.add(task));
+      }
+      queue.add(() -> {
+        throw new IllegalStateException("failed");
+      });
+
+      queue.whenIdle().get();
+      assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), ran);
+      assertEquals(11, queue.getCompletedCount());
+      assertEquals(0, queue.getPendingCount());
+    }
+    finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void dropsTasksWhenFull() {
+    final List<Runnable> waiting = new ArrayList<>();
+    final AppWorkQueue queue = new AppWorkQueue(waiting::add, 2);
+
+    assertTrue(queue.add(() -> {}));
+    assertTrue(queue.add(() -> {}));
+    assertFalse(queue.add(() -> {}));
+    assertEquals(1, queue.getDroppedCount());
+    assertEquals(2, queue.getPendingCount());
+
+    final CompletableFuture<Void> idle = queue.whenIdle();
+    assertFalse(idle.isDone());
+    for (Runnable task : List.copyOf(waiting)) {
+      task.run();
+    }
+    assertTrue(idle.isDone());
+    assertEquals(0, queue.getPendingCount());
+    assertEquals(2, queue.getMaxPendingCount());
+  }
+
+  @Test
+  public void runsControlTasksWhenFull() {
+    final List<Runnable> waiting = new ArrayList<>();
+    final AppWorkQueue queue = new AppWorkQueue(waiting::add, 1);
+    final List<String> ran = new ArrayList<>();
+
+    assertTrue(queue.add(() -> ran.add("error")));
+    assertFalse(queue.add(() -> ran.add("dropped")));
+    queue.addControl(() -> ran.add("reload"));
+    assertEquals(2, queue.getPendingCount());
+
+    for (Runnable task : List.copyOf(waiting)) {
+      task.run();
+    }
+    assertEquals(List.of("error", "reload"), ran);
+    assertEquals(1, queue.getDroppedCount());
+    assertEquals(0, queue.getPendingCount());
+  }
+}
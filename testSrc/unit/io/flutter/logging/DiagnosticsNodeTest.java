@@ -0,0 +1,82 @@
+/*
+ * Copyright 2025 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.logging;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.dartlang.vm.service.internal.JsonScanner;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DiagnosticsNodeTest {
+  @Test
+  public void readsTextLikeParsedJson() throws IOException {
+    final String event = Files.readString(Path.of("testSrc/unit/io/flutter/logging/flutter_error.json"));
+    final int start = JsonScanner.findMember(event, 0, "extensionData");
+    final String text = event.substring(start, JsonScanner.skipValue(event, start));
+
+    final DiagnosticsNode parsed = new DiagnosticsNode(JsonParser.parseString(text).getAsJsonObject(), false, null);
+    final DiagnosticsNode lazy = DiagnosticsNode.fromJsonText(text, false);
+
+    assertEquals(describe(parsed), describe(lazy));
+    assertTrue(lazy.identicalDisplay(parsed));
+  }
+
+  @Test
+  public void decodesOnlyWhatIsAccessed() {
+    final DiagnosticsNode node = DiagnosticsNode.fromJsonText(
+      "{\"description\": \"root\", \"properties\": [{\"description\": \"summary\", \"children\": [{\"description\": ?}]}]}",
+      false);
+
+    assertEquals("root", node.getDescription());
+    assertTrue(node.hasInlineProperties());
+    final DiagnosticsNode property = node.getInlineProperties().get(0);
+    assertTrue(property.isProperty());
+    assertEquals("summary", property.getDescription());
+    assertTrue(property.childrenReady());
+    assertEquals(1, property.getChildren().getNow(null).size());
+  }
+
+  @Test
+  public void decodesEscapesAndOtherValues() {
+    final DiagnosticsNode node = DiagnosticsNode.fromJsonText(
+      "{\"description\":\"a \\\"quoted\\\" caf\\u00e9\\n\",\"showName\":false,\"level\":\"hint\",\"values\":[\"x\"],\"properties\":[]}",
+      false);
+
+    assertEquals("a \"quoted\" café\n", node.getDescription());
+    assertFalse(node.getShowName());
+    assertEquals(DiagnosticLevel.hint, node.getLevel());
+    assertEquals(List.of("x"), node.getValues());
+    assertFalse(node.hasInlineProperties());
+    assertFalse(node.childrenReady());
+    assertFalse(node.identicalDisplay(new DiagnosticsNode(new JsonObject(), false, null)));
+  }
+
+  private static List<String> describe(DiagnosticsNode node) {
+    final List<String> lines = new ArrayList<>();
+    describe(node, "", lines);
+    return lines;
+  }
+
+  private static void describe(DiagnosticsNode node, String indent, List<String> lines) {
+    lines.add(indent + node + " [" + node.getType() + ", " + node.getLevel() + ", " + node.getStyle() + "]");
+    for (DiagnosticsNode property : node.getInlineProperties()) {
+      describe(property, indent + "  ", lines);
+    }
+    for (DiagnosticsNode child : node.getChildren().getNow(null)) {
+      describe(child, indent + "| ", lines);
+    }
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2025 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.logging;
+
+import com.google.gson.JsonParser;
+import io.flutter.logging.ErrorStormTracker.Fingerprint;
+import io.flutter.logging.ErrorStormTracker.Repeat;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ErrorStormTrackerTest {
+  private final ErrorStormTracker tracker = new ErrorStormTracker(2);
+
+  private static final Fingerprint OVERFLOW = new Fingerprint("A RenderFlex overflowed by # pixels", "Row file:///lib/main.dart:10:5", 42);
+
+  @Test
+  public void collapsesRepeatsWithinWindow() {
+    assertTrue(tracker.record(OVERFLOW, "overflowed by 1", 0));
+    assertFalse(tracker.record(OVERFLOW, "overflowed by 2", 100));
+    assertFalse(tracker.record(OVERFLOW, "overflowed by 3", 1200));
+
+    assertEquals(List.of(new Repeat(OVERFLOW, "overflowed by 3", 3)), tracker.takeRepeats(1300));
+    assertEquals(List.of(), tracker.takeRepeats(1400));
+
+    // Printed again once the window has passed without it.
+    assertTrue(tracker.record(OVERFLOW, "overflowed by 4", 1200 + ErrorStormTracker.WINDOW_MILLIS));
+    assertEquals(4, tracker.getTopErrors(1).get(0).total());
+  }
+
+  @Test
+  public void backsOffReportsDuringLongStorm() {
+    assertTrue(tracker.record(OVERFLOW, "overflowed", 0));
+    assertEquals(-1, tracker.getNextReportDelay(0));
+
+    // One repeat per second for ten minutes.
+    int reports = 0;
+    for (long now = 1000; now <= 600_000; now += 1000) {
+      assertFalse(tracker.record(OVERFLOW, "overflowed", now));
+      if (!tracker.takeRepeats(now).isEmpty()) {
+        reports++;
+      }
+    }
+    assertTrue("reported " + reports + " times", reports <= 16);
+
+    // The final count is reported when it's due, and not again until it changes.
+    final long due = 600_000 + tracker.getNextReportDelay(600_000);
+    assertEquals(List.of(new Repeat(OVERFLOW, "overflowed", 601)), tracker.takeRepeats(due));
+    assertEquals(-1, tracker.getNextReportDelay(due));
+    assertEquals(List.of(), tracker.takeRepeats(due + ErrorStormTracker.MAX_REPORT_INTERVAL_MILLIS));
+  }
+
+  @Test
+  public void matchesShortRenderingToFullOne() {
+    assertTrue(tracker.record(OVERFLOW, "full", 0));
+    assertFalse(tracker.record(new Fingerprint(OVERFLOW.summary(), OVERFLOW.creatorLocation(), 0), "short", 10));
+    assertTrue(tracker.record(new Fingerprint(OVERFLOW.summary(), "Column file:///lib/main.dart:20:5", 0), "other", 20));
+  }
+
+  @Test
+  public void keepsMostFrequentErrors() {
+    final Fingerprint rare = new Fingerprint("rare", null, 1);
+    final Fingerprint other = new Fingerprint("other", null, 2);
+    tracker.record(OVERFLOW, "overflow", 0);
+    tracker.record(OVERFLOW, "overflow", 1);
+    tracker.record(rare, "rare", 2);
+    tracker.record(other, "other", 3);
+
+    final List<ErrorStormTracker.ErrorCount> top = tracker.getTopErrors(5);
+    assertEquals(2, top.size());
+    assertEquals(OVERFLOW, top.get(0).fingerprint());
+    assertEquals(other, top.get(1).fingerprint());
+  }
+
+  @Test
+  public void fingerprintsRecordedError() throws IOException {
+    final String event = Files.readString(Path.of("testSrc/unit/io/flutter/logging/flutter_error.json"));
+    final DiagnosticsNode error = new DiagnosticsNode(
+      JsonParser.parseString(event).getAsJsonObject().getAsJsonObject("extensionData"), false, null);
+
+    final Fingerprint fingerprint = Fingerprint.of(error);
+    assertEquals("Assertion failed", fingerprint.summary());
+    assertEquals("PlanetWidget file:///Users/devoncarew/projects/devoncarew/planets/lib/main.dart:116:22",
+                 fingerprint.creatorLocation());
+    assertNotEquals(0, fingerprint.renderedTextHash());
+    assertEquals("Assertion failed", ErrorStormTracker.getTitle(error));
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2025 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.logging;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class FlutterLogStoreTest {
+  @Test
+  public void readsBackRecordsInOrder() {
+    final FlutterLogStore store = new FlutterLogStore(10, 1024);
+    store.add(100, FlutterLogStore.INFO, "stdout", null, "hello");
+    store.add(200, FlutterLogStore.SEVERE, "app", "isolates/1", "wörld");
+
+    final List<FlutterLogStore.Entry> entries = store.query(FlutterLogStore.Filter.ALL, 0, 10);
+    assertEquals(2, entries.size());
+    assertEquals("hello", entries.get(0).message());
+    assertNull(entries.get(0).isolateId());
+    assertEquals(new FlutterLogStore.Entry(1, 200, FlutterLogStore.SEVERE, "app", "isolates/1", "wörld"), entries.get(1));
+  }
+
+  @Test
+  public void storesEmptyMessages() {
+    final FlutterLogStore store = new FlutterLogStore(10, 1024);
+    store.add(100, FlutterLogStore.INFO, "stdout", null, "");
+    store.add(200, FlutterLogStore.INFO, "stdout", null, "hello");
+    store.add(300, FlutterLogStore.INFO, "stdout", null, "");
+
+    assertEquals(List.of("", "hello", ""), messages(store.query(FlutterLogStore.Filter.ALL, 0, 10)));
+  }
+
+  @Test
+  public void overwritesOldestRecordsWhenFull() {
+    final FlutterLogStore store = new FlutterLogStore(3, 1024);
+    for (int i = 0; i < 5; i++) {
+      store.add(i, FlutterLogStore.INFO, "stdout", null, "line " + i);
+    }
+
+    assertEquals(3, store.size());
+    assertEquals(2, store.getFirstSequence());
+    assertEquals(List.of("line 2", "line 3", "line 4"), messages(store.query(FlutterLogStore.Filter.ALL, 0, 10)));
+  }
+
+  @Test
+  public void overwritesOldestRecordsWhenOutOfBytes() {
+    final FlutterLogStore store = new FlutterLogStore(100, 16);
+    store.add(0, FlutterLogStore.INFO, "stdout", null, "0123456789");
+    store.add(1, FlutterLogStore.INFO, "stdout", null, "abcdefghij");
+    store.add(2, FlutterLogStore.INFO, "stdout", null, "ABCDEF");
+
+    // The last two messages wrap around the end of the buffer.
+    assertEquals(List.of("abcdefghij", "ABCDEF"), messages(store.query(FlutterLogStore.Filter.ALL, 0, 10)));
+  }
+
+  @Test
+  public void growsUpToItsBudgets() {
+    final FlutterLogStore store = new FlutterLogStore(3000, 200_000);
+    final String padding = "x".repeat(96);
+    for (int i = 0; i < 4000; i++) {
+      store.add(i, FlutterLogStore.INFO, "stdout", null, String.format("%04d", i) + padding);
+    }
+
+    // The byte budget runs out first, at 2000 records of 100 bytes.
+    final List<String> kept = messages(store.query(FlutterLogStore.Filter.ALL, 0, 4000));
+    assertEquals(2000, kept.size());
+    assertEquals("2000" + padding, kept.get(0));
+    assertEquals("3999" + padding, kept.get(kept.size() - 1));
+  }
+
+  @Test
+  public void filtersRecords() {
+    final FlutterLogStore store = new FlutterLogStore(10, 1024);
+    store.add(100, FlutterLogStore.INFO, "stdout", null, "Started");
+    store.add(200, FlutterLogStore.SEVERE, "network", "isolates/1", "Request failed");
+    store.add(300, FlutterLogStore.INFO, "network", "isolates/1", "Request sent");
+    store.add(400, FlutterLogStore.SEVERE, "stdout", null, "Exception: failed");
+
+    final FlutterLogStore.Filter all = FlutterLogStore.Filter.ALL;
+    assertEquals(List.of("Request failed", "Exception: failed"),
+                 messages(store.query(all.withMinLevel(FlutterLogStore.SEVERE), 0, 10)));
+    assertEquals(List.of("Request failed", "Request sent"), messages(store.query(all.withLoggerName("network"), 0, 10)));
+    assertEquals(List.of(), messages(store.query(all.withLoggerName("unknown"), 0, 10)));
+    assertEquals(List.of("Request failed", "Exception: failed"), messages(store.query(all.withSubstring("FAILED"), 0, 10)));
+    assertEquals(List.of("Request failed", "Request sent"), messages(store.query(all.withTimeRange(150, 400), 0, 10)));
+    assertEquals(List.of("Request sent"), messages(store.query(all, 2, 1)));
+  }
+
+  private static List<String> messages(List<FlutterLogStore.Entry> entries) {
+    return entries.stream().map(FlutterLogStore.Entry::message).toList();
+  }
+}
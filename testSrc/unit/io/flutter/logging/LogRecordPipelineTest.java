@@ -0,0 +1,86 @@
+/*
+ * Copyright 2025 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.logging;
+
+import com.intellij.execution.ui.ConsoleViewContentType;
+import io.flutter.logging.LogRecordPipeline.Rendered;
+import io.flutter.logging.LogRecordPipeline.Segment;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LogRecordPipelineTest {
+  private final List<String> printed = new ArrayList<>();
+
+  @Test
+  public void printsRecordsInOrder() {
+    final LogRecordPipeline pipeline = new LogRecordPipeline((segment) -> printed.add(segment.text()));
+    final CompletableFuture<Rendered> first = new CompletableFuture<>();
+
+    pipeline.addRecord(() -> first);
+    pipeline.addRecord(() -> rendered("second"));
+    assertEquals(List.of(), printed);
+    assertEquals(2, pipeline.getPendingCount());
+
+    first.complete(new Rendered(List.of(segment("first")), null));
+    assertEquals(List.of("first", "second"), printed);
+    assertEquals(0, pipeline.getPendingCount());
+  }
+
+  @Test
+  public void suppressesRecordsWhenFull() {
+    final LogRecordPipeline pipeline = new LogRecordPipeline((segment) -> printed.add(segment.text()), 1);
+    final CompletableFuture<Rendered> first = new CompletableFuture<>();
+
+    assertTrue(pipeline.addRecord(() -> first));
+    assertFalse(pipeline.addRecord(() -> rendered("dropped")));
+    assertFalse(pipeline.addRecord(() -> rendered("dropped")));
+
+    first.complete(new Rendered(List.of(segment("first")), null));
+    assertTrue(pipeline.addRecord(() -> rendered("last")));
+    assertEquals(List.of("first", "... 2 log records suppressed\n", "last"), printed);
+  }
+
+  @Test
+  public void skipsRecordsThatFailToRender() {
+    final LogRecordPipeline pipeline = new LogRecordPipeline((segment) -> printed.add(segment.text()));
+
+    pipeline.addRecord(() -> CompletableFuture.failedFuture(new IllegalStateException("expected")));
+    pipeline.addRecord(() -> {
+      throw new IllegalStateException("expected");
+    });
+    pipeline.addRecord(() -> rendered("after"));
+    assertEquals(List.of("after"), printed);
+  }
+
+  @Test
+  public void runsActionsInOrderAfterPrinting() {
+    final LogRecordPipeline pipeline = new LogRecordPipeline((segment) -> printed.add(segment.text()));
+    final CompletableFuture<Rendered> first = new CompletableFuture<>();
+
+    pipeline.addRecord(() -> first);
+    pipeline.addRecord(() -> CompletableFuture.completedFuture(
+      new Rendered(List.of(segment("second")), () -> printed.add("stored second"))));
+    assertEquals(List.of(), printed);
+
+    first.complete(new Rendered(List.of(segment("first")), () -> printed.add("stored first")));
+    assertEquals(List.of("first", "stored first", "second", "stored second"), printed);
+  }
+
+  private static CompletableFuture<Rendered> rendered(String text) {
+    return CompletableFuture.completedFuture(new Rendered(List.of(segment(text)), null));
+  }
+
+  private static Segment segment(String text) {
+    return new Segment(text, ConsoleViewContentType.NORMAL_OUTPUT);
+  }
+}
@@ -22,7 +22,6 @@ import org.dartlang.vm.service.element.LibraryRef;
 import org.dartlang.vm.service.element.Script;
 import org.dartlang.vm.service.element.ScriptRef;
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.Nullable;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -30,6 +29,7 @@ import org.junit.Test;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
@@ -130,10 +130,10 @@ public class FlutterPositionMapperTest {
       scripts.put(isolateId + "-" + scriptId, new Script(elt));
     }
 
-    @Nullable
+    @NotNull
     @Override
-    public Script downloadScript(@NotNull String isolateId, @NotNull String scriptId) {
-      return scripts.get(isolateId + "-" + scriptId);
+    public CompletableFuture<Script> getScript(@NotNull String isolateId, @NotNull String scriptId) {
+      return CompletableFuture.completedFuture(scripts.get(isolateId + "-" + scriptId));
     }
   }
 
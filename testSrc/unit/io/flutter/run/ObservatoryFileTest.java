@@ -0,0 +1,110 @@
+/*
+ * Copyright 2025 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.run;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import io.flutter.vmService.DartVmServiceDebugProcess;
+import org.dartlang.vm.service.element.Script;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ObservatoryFileTest {
+  private final FakeScriptProvider scripts = new FakeScriptProvider();
+  private final ScriptSourceCache snapshots = new ScriptSourceCache();
+
+  @Test
+  public void sharesDownloadsInProgress() {
+    final ObservatoryFile.Cache cache = new ObservatoryFile.Cache("isolate", scripts, snapshots);
+
+    final CompletableFuture<ObservatoryFile> first = cache.download("1", false);
+    final CompletableFuture<ObservatoryFile> second = cache.download("1", false);
+    assertFalse(first.isDone());
+    assertEquals(1, scripts.requests);
+
+    scripts.complete("isolate", "1", makeScript("lib/main.dart", "main() {}"));
+    assertNotNull(first.join());
+    assertSame(first.join(), second.join());
+    assertSame(first.join(), cache.download("1", false).join());
+    assertEquals(1, scripts.requests);
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  public void downloadsAgainForSnapshot() {
+    final ObservatoryFile.Cache cache = new ObservatoryFile.Cache("isolate", scripts, snapshots);
+
+    final CompletableFuture<ObservatoryFile> withoutSnapshot = cache.download("1", false);
+    final CompletableFuture<ObservatoryFile> withSnapshot = cache.download("1", true);
+    assertEquals(2, scripts.requests);
+
+    scripts.complete("isolate", "1", makeScript("lib/main.dart", "main() {}"));
+    assertNotNull(withoutSnapshot.join());
+    assertNotNull(withSnapshot.join());
+    // The version with a snapshot is kept, whichever download finishes last.
+    assertSame(withSnapshot.join(), cache.download("1", false).join());
+  }
+
+  @Test
+  public void returnsNullForMissingScripts() {
+    final ObservatoryFile.Cache cache = new ObservatoryFile.Cache("isolate", scripts, snapshots);
+
+    final CompletableFuture<ObservatoryFile> file = cache.download("1", true);
+    scripts.complete("isolate", "1", null);
+    assertNull(file.join());
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void sharesSnapshotsBetweenIsolates() {
+    final ObservatoryFile.Cache first = new ObservatoryFile.Cache("first", scripts, snapshots);
+    final ObservatoryFile.Cache second = new ObservatoryFile.Cache("second", scripts, snapshots);
+
+    final CompletableFuture<ObservatoryFile> firstFile = first.download("1", true);
+    final CompletableFuture<ObservatoryFile> secondFile = second.download("2", true);
+    scripts.complete("first", "1", makeScript("lib/main.dart", "main() {}"));
+    scripts.complete("second", "2", makeScript("lib/main.dart", "main() {}"));
+
+    assertNotNull(firstFile.join());
+    assertNotNull(secondFile.join());
+    assertEquals(1, snapshots.size());
+  }
+
+  @NotNull
+  private static Script makeScript(String uri, String source) {
+    final JsonObject elt = new JsonObject();
+    elt.addProperty("uri", uri);
+    elt.addProperty("source", source);
+    elt.add("tokenPosTable", new JsonArray());
+    return new Script(elt);
+  }
+
+  private static final class FakeScriptProvider implements DartVmServiceDebugProcess.ScriptProvider {
+    final Map<String, CompletableFuture<Script>> pending = new HashMap<>();
+    int requests;
+
+    void complete(String isolateId, String scriptId, Script script) {
+      pending.get(isolateId + "-" + scriptId).complete(script);
+    }
+
+    @NotNull
+    @Override
+    public CompletableFuture<Script> getScript(@NotNull String isolateId, @NotNull String scriptId) {
+      requests++;
+      return pending.computeIfAbsent(isolateId + "-" + scriptId, (key) -> new CompletableFuture<>());
+    }
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2025 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.run;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.testFramework.LightVirtualFile;
+import org.junit.Test;
+
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class RemoteUriIndexTest {
+  private final RemoteUriIndex index = new RemoteUriIndex();
+
+  @Test
+  public void mapsUrisBothWays() {
+    final VirtualFile main = new LightVirtualFile("main.dart", null, "");
+    index.put("file:///remote/lib/main.dart", main);
+    index.put("package:app/main.dart", main);
+
+    assertEquals(Optional.of(main), index.get("package:app/main.dart"));
+    assertEquals(Set.of("file:///remote/lib/main.dart", "package:app/main.dart"), index.getRemoteUris(main));
+  }
+
+  @Test
+  public void remembersUnresolvedUrisUntilForgotten() {
+    assertNull(index.get("dart:core"));
+    index.put("dart:core", null);
+    assertEquals(Optional.empty(), index.get("dart:core"));
+
+    index.forgetUnresolved();
+    assertNull(index.get("dart:core"));
+    assertEquals(0, index.size());
+  }
+
+  @Test
+  public void movesUriToNewFile() {
+    final VirtualFile before = new LightVirtualFile("a.dart", null, "");
+    final VirtualFile after = new LightVirtualFile("b.dart", null, "");
+    index.put("package:app/a.dart", before);
+    index.put("package:app/a.dart", after);
+
+    assertEquals(Set.of(), index.getRemoteUris(before));
+    assertEquals(Set.of("package:app/a.dart"), index.getRemoteUris(after));
+    assertEquals(0.0, index.getHitRate(), 0.0);
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2025 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.run;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TokenPositionTableTest {
+  @Test
+  public void mapsTokensToZeroBasedLinesAndColumns() {
+    final TokenPositionTable table = TokenPositionTable.create(List.of(
+      List.of(1, 10, 1, 12, 5),
+      List.of(3, 20, 7)
+    ));
+
+    assertEquals(3, table.size());
+    assertPosition(table, 10, 0, 0);
+    assertPosition(table, 12, 0, 4);
+    assertPosition(table, 20, 2, 6);
+  }
+
+  @Test
+  public void returnsNegativeIndexForUnknownTokens() {
+    final TokenPositionTable table = TokenPositionTable.create(List.of(List.of(1, 10, 1)));
+    assertTrue(table.indexOf(11) < 0);
+    assertTrue(table.indexOf(0) < 0);
+  }
+
+  @Test
+  public void sortsTokensWrittenOutOfOrder() {
+    final TokenPositionTable table = TokenPositionTable.create(List.of(
+      List.of(5, 50, 2),
+      List.of(2, 20, 3, 10, 1),
+      List.of(6, 20, 9)
+    ));
+
+    assertEquals(3, table.size());
+    assertPosition(table, 10, 1, 0);
+    assertPosition(table, 50, 4, 1);
+    // As with a map, the last entry for a token wins.
+    assertPosition(table, 20, 5, 8);
+  }
+
+  @Test
+  public void ignoresEmptyAndTruncatedLines() {
+    final TokenPositionTable table = TokenPositionTable.create(List.of(
+      List.of(),
+      List.of(4, 40, 2, 41)
+    ));
+
+    assertEquals(1, table.size());
+    assertPosition(table, 40, 3, 1);
+  }
+
+  private static void assertPosition(TokenPositionTable table, int tokenPos, int line, int column) {
+    final int index = table.indexOf(tokenPos);
+    assertTrue("missing token " + tokenPos, index >= 0);
+    assertEquals(line, table.getLine(index));
+    assertEquals(column, table.getColumn(index));
+  }
+}
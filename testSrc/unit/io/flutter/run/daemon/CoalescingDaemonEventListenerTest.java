@@ -0,0 +1,115 @@
+/*
+ * Copyright 2025 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.run.daemon;
+
+import com.google.gson.Gson;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static io.flutter.testing.JsonTesting.curly;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Verifies that bursts of log and progress events are coalesced before reaching the UI.
+ */
+public class CoalescingDaemonEventListenerTest {
+  private List<String> log;
+  private List<Runnable> scheduled;
+  private CoalescingDaemonEventListener listener;
+
+  @Before
+  public void setUp() {
+    log = new ArrayList<>();
+    scheduled = new ArrayList<>();
+    listener = new CoalescingDaemonEventListener(new DaemonEvent.Listener() {
+      @Override
+      public void onAppLog(DaemonEvent.AppLog event) {
+        log.add("log" + (event.error ? " (error)" : "") + ": " + event.log);
+      }
+
+      @Override
+      public void onAppProgressStarting(DaemonEvent.AppProgress event) {
+        log.add("progress starting: " + event.id);
+      }
+
+      @Override
+      public void onAppProgressFinished(DaemonEvent.AppProgress event) {
+        log.add("progress finished: " + event.id);
+      }
+
+      @Override
+      public void onAppStarted(DaemonEvent.AppStarted event) {
+        log.add("started");
+      }
+    }, scheduled::add);
+  }
+
+  @Test
+  public void joinsLogLinesIntoOneAppend() {
+    listener.onAppLog(appLog("a", false));
+    listener.onAppLog(appLog("b", false));
+    listener.onAppLog(appLog("c", true));
+    checkLog();
+
+    assertEquals(1, scheduled.size());
+    scheduled.remove(0).run();
+    checkLog("log: a\nb", "log (error): c");
+  }
+
+  @Test
+  public void flushesBeforeOtherEvents() {
+    listener.onAppLog(appLog("a", false));
+    listener.onAppStarted(new DaemonEvent.AppStarted());
+    checkLog("log: a", "started");
+
+    // The scheduled flush finds nothing left to deliver.
+    scheduled.remove(0).run();
+    checkLog();
+  }
+
+  @Test
+  public void dropsSupersededProgress() {
+    listener.onAppProgressStarting(progress("1", "hot.reload", false));
+    listener.onAppProgressFinished(progress("1", "hot.reload", true));
+    listener.onAppProgressStarting(progress("2", "hot.reload", false));
+    listener.onAppProgressStarting(progress("3", "other", false));
+    scheduled.remove(0).run();
+    checkLog("progress starting: 2", "progress starting: 3");
+  }
+
+  @Test
+  public void elidesLinesBeyondQueueLimit() {
+    for (int i = 0; i < CoalescingDaemonEventListener.MAX_QUEUED_LOG_LINES + 5; i++) {
+      listener.onAppLog(appLog("x", false));
+    }
+    scheduled.remove(0).run();
+    assertEquals(2, log.size());
+    assertEquals("log: ... 5 lines elided ...", log.get(1));
+  }
+
+  private static DaemonEvent.AppLog appLog(String text, boolean error) {
+    final DaemonEvent.AppLog event = new DaemonEvent.AppLog();
+    event.log = text;
+    event.error = error;
+    return event;
+  }
+
+  private static DaemonEvent.AppProgress progress(String id, String progressId, boolean finished) {
+    return GSON.fromJson(curly("id:\"" + id + "\"", "progressId:\"" + progressId + "\"", "finished:" + finished),
+                         DaemonEvent.AppProgress.class);
+  }
+
+  private void checkLog(String... expectedEntries) {
+    assertEquals("log entries are different", Arrays.asList(expectedEntries), log);
+    log.clear();
+  }
+
+  private static final Gson GSON = new Gson();
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2025 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.run.daemon;
+
+import com.intellij.execution.process.ProcessHandler;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Verifies that queued commands are written to the daemon process in batches.
+ */
+public class DaemonCommandWriterTest {
+  private ByteArrayOutputStream stdin;
+  private List<Runnable> tasks;
+  private DaemonCommandWriter writer;
+
+  @Before
+  public void setUp() {
+    stdin = new ByteArrayOutputStream();
+    tasks = new ArrayList<>();
+    writer = new DaemonCommandWriter(new FakeProcessHandler(stdin), tasks::add);
+  }
+
+  @Test
+  public void writesQueuedCommandsInOneBatch() {
+    final List<String> written = new ArrayList<>();
+    writer.send("{\"id\":0}", () -> written.add("0"));
+    writer.send("{\"id\":1}", () -> written.add("1"));
+
+    // Only one drain task is scheduled for both commands, and nothing is written until it runs.
+    assertEquals(1, tasks.size());
+    assertEquals("", stdin.toString(StandardCharsets.UTF_8));
+
+    tasks.remove(0).run();
+    assertEquals("[{\"id\":0}]\n[{\"id\":1}]\n", stdin.toString(StandardCharsets.UTF_8));
+    assertEquals(List.of("0", "1"), written);
+  }
+
+  @Test
+  public void schedulesNewBatchAfterDrain() {
+    writer.send("{\"id\":0}", () -> {});
+    tasks.remove(0).run();
+
+    writer.send("{\"id\":1}", () -> {});
+    assertEquals(1, tasks.size());
+    tasks.remove(0).run();
+    assertEquals("[{\"id\":0}]\n[{\"id\":1}]\n", stdin.toString(StandardCharsets.UTF_8));
+  }
+
+  private static class FakeProcessHandler extends ProcessHandler {
+    private final OutputStream input;
+
+    FakeProcessHandler(OutputStream input) {
+      this.input = input;
+    }
+
+    @Override
+    protected void destroyProcessImpl() {
+    }
+
+    @Override
+    protected void detachProcessImpl() {
+    }
+
+    @Override
+    public boolean detachIsDefault() {
+      return false;
+    }
+
+    @Override
+    public OutputStream getProcessInput() {
+      return input;
+    }
+  }
+}
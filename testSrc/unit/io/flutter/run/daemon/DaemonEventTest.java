@@ -8,9 +8,12 @@ package io.flutter.run.daemon;
 import com.google.common.base.Joiner;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -169,6 +172,35 @@ public class DaemonEventTest {
     checkLog("AppStopped: 42, foobar");
   }
 
+  // streamed decoding
+
+  @Test
+  public void canReadLogMessage() throws Exception {
+    read("daemon.logMessage", curly("level:\"spam\"", "message:\"Make money fast\"", "stackTrace:\"Las Vegas\"", "extra:[1,2]"));
+    checkLog("DaemonLogMessage: spam, Make money fast, Las Vegas");
+  }
+
+  @Test
+  public void canReadAppLog() throws Exception {
+    read("app.log", curly("appId:42", "log:\"Oh no!\"", "error:true"));
+    checkLog("AppLog: 42, Oh no!, true");
+  }
+
+  @Test
+  public void canReadProgress() throws Exception {
+    read("app.progress", curly("appId:42", "id:opaque", "progressId:very.hot", "message:\"Please wait\""));
+    read("app.progress", curly("appId:42", "id:opaque", "progressId:very.hot", "message:\"All done!\"", "finished:true"));
+    checkLog("AppProgress: starting, 42, opaque, very.hot, Please wait",
+             "AppProgress: finished, 42, opaque, very.hot, All done!");
+  }
+
+  @Test
+  public void canReadRareEvent() throws Exception {
+    read("app.stop", curly("appId:42", "error:\"foobar\""));
+    read("unknown.message", curly("appId:42"));
+    checkLog("AppStopped: 42, foobar");
+  }
+
   // device domain
 
   @Test
@@ -189,6 +221,15 @@ public class DaemonEventTest {
                     JsonObject.class), listener);
   }
 
+  private void read(String eventName, String params) throws IOException {
+    final JsonReader reader = new JsonReader(new StringReader(params));
+    reader.setLenient(true);
+    final DaemonEvent event = DaemonEvent.read(eventName, reader);
+    if (event != null) {
+      event.accept(listener);
+    }
+  }
+
   private void logEvent(DaemonEvent event, Object... items) {
     log.add(event.getClass().getSimpleName() + ": " + Joiner.on(", ").join(items));
   }
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2025 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.run.daemon;
+
+import com.google.gson.JsonObject;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Verifies that daemon messages are framed correctly out of arbitrarily chunked process output.
+ */
+public class DaemonMessageDecoderTest {
+  private List<String> messages;
+  private DaemonMessageDecoder decoder;
+
+  @Before
+  public void setUp() {
+    messages = new ArrayList<>();
+    decoder = new DaemonMessageDecoder(new DaemonMessageDecoder.Handler() {
+      @Override
+      public void onEvent(@NotNull DaemonEvent event) {
+        messages.add(event.getClass().getSimpleName() + ": " + event);
+      }
+
+      @Override
+      public void onResponse(@NotNull JsonObject response) {
+        messages.add(response.toString());
+      }
+    });
+  }
+
+  @Test
+  public void skipsRegularText() {
+    decoder.append("hello\n");
+    decoder.append("[not json]\n");
+    decoder.append("[{\"id\":1}]\n");
+    decoder.append("bye\n");
+    assertEquals(List.of("{\"id\":1}"), messages);
+  }
+
+  @Test
+  public void framesMessagesSplitAcrossChunks() {
+    decoder.append("[{\"event\":\"app.log\",");
+    assertEquals(List.of(), messages);
+    decoder.append("\"params\":{\"log\":\"a\"}}");
+    assertEquals(List.of(), messages);
+    decoder.append("]\r\n[{\"id\":2}]");
+    assertEquals(List.of("AppLog: {\"log\":\"a\",\"error\":false}", "{\"id\":2}"), messages);
+  }
+
+  @Test
+  public void ignoresBracketsInStrings() {
+    decoder.append("[{\"event\":\"app.log\",\"params\":{\"log\":\"}]\\\"}]{[\"}}]\n");
+    assertEquals(List.of("AppLog: {\"log\":\"}]\\\"}]{[\",\"error\":false}"), messages);
+  }
+
+  @Test
+  public void handlesTextDirectlyAfterMessage() {
+    decoder.append("[{\"event\":\"app.progress\",\"params\":{\"id\":\"12\"}}]Performing hot restart...");
+    decoder.append("[{\"id\":3}]\n");
+    assertEquals(List.of("AppProgress: {\"id\":\"12\"}", "{\"id\":3}"), messages);
+  }
+
+  @Test
+  public void decodesEventsInAnyFieldOrder() {
+    decoder.append("[{\"params\":{\"level\":\"info\",\"message\":\"hi\"},\"event\":\"daemon.logMessage\"}]\n");
+    decoder.append("[{\"event\":\"daemon.logMessage\",\"params\":{\"level\":\"info\",\"message\":\"hi\"}}]\n");
+    assertEquals(List.of("DaemonLogMessage: {\"level\":\"info\",\"message\":\"hi\"}",
+                         "DaemonLogMessage: {\"level\":\"info\",\"message\":\"hi\"}"), messages);
+  }
+
+  @Test
+  public void decodesRareEventsWithGson() {
+    decoder.append("[{\"event\":\"app.started\",\"params\":{\"appId\":\"x\"}}]\n");
+    decoder.append("[{\"event\":\"unknown.event\",\"params\":{\"appId\":\"x\"}}]\n");
+    assertEquals(List.of("AppStarted: {\"appId\":\"x\"}"), messages);
+  }
+
+  @Test
+  public void dropsInvalidMessages() {
+    decoder.append("[{}]\n");
+    decoder.append("[{\"id\":\"abc\"}]\n");
+    decoder.append("[{\"event\":\"app.log\"}]\n");
+    decoder.append("[{\"event\":\"app.log\",\"params\":{\"log\":{}}}]\n");
+    decoder.append("[{\"id\":4\n");
+    decoder.append("[{\"id\":5}]\n");
+    assertEquals(List.of("{\"id\":5}"), messages);
+  }
+
+  @Test
+  public void growsBufferForLargeMessages() {
+    final String log = "x".repeat(100_000);
+    decoder.append("[{\"event\":\"app.log\",\"params\":{\"log\":\"" + log + "\"}}]\n");
+    decoder.append("[{\"id\":6}]\n");
+    assertEquals(2, messages.size());
+    assertEquals("{\"id\":6}", messages.get(1));
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2025 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.run.test;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TestDurationStoreTest {
+  private static Path createLogFile() throws IOException {
+    return Files.createTempDirectory("durations").resolve("test-durations.log");
+  }
+
+  @Test
+  public void computesPercentilesOfRecentRuns() throws IOException {
+    final TestDurationStore store = new TestDurationStore(createLogFile());
+    assertNull(store.getStats("/app/test/a_test.dart", "adds"));
+
+    // Only the last MAX_RUNS durations count, so the first 1000 ms run is dropped.
+    store.record("/app/test/a_test.dart", "adds", 1000);
+    for (int i = 1; i <= TestDurationStore.MAX_RUNS; i++) {
+      store.record("/app/test/a_test.dart", "adds", i * 10);
+    }
+
+    final TestDurationStore.Stats stats = store.getStats("/app/test/a_test.dart", "adds");
+    assertNotNull(stats);
+    assertEquals(TestDurationStore.MAX_RUNS, stats.runs());
+    assertEquals(100, stats.p50());
+    assertEquals(190, stats.p95());
+  }
+
+  @Test
+  public void reloadsFlushedDurations() throws IOException {
+    final Path file = createLogFile();
+    final TestDurationStore store = new TestDurationStore(file);
+    store.record("/app/test/a_test.dart", "adds\tin a \"group\"", 30);
+    store.record("/app/test/a_test.dart", "subtracts", 50);
+    store.record("/app/test/b_test.dart", "multiplies", 70);
+    store.flush();
+
+    final TestDurationStore reloaded = new TestDurationStore(file);
+    assertEquals(new TestDurationStore.Stats(1, 30, 30), reloaded.getStats("/app/test/a_test.dart", "adds\tin a \"group\""));
+    assertEquals(80, reloaded.getExpectedMillis("/app/test/a_test.dart"));
+    assertEquals(70, reloaded.getExpectedMillis("/app/test/b_test.dart"));
+    assertEquals(-1, reloaded.getExpectedMillis("/app/test/c_test.dart"));
+  }
+
+  @Test
+  public void compactsTheLog() throws IOException {
+    final Path file = createLogFile();
+    final TestDurationStore store = new TestDurationStore(file);
+    for (int i = 0; i < 2000; i++) {
+      store.record("/app/test/a_test.dart", "adds", i);
+    }
+    store.flush();
+
+    assertEquals(TestDurationStore.MAX_RUNS, Files.readAllLines(file).size());
+    final TestDurationStore.Stats stats = new TestDurationStore(file).getStats("/app/test/a_test.dart", "adds");
+    assertNotNull(stats);
+    assertEquals(1989, stats.p50());
+  }
+
+  @Test
+  public void ordersAndShardsSuitesByExpectedTime() throws IOException {
+    final TestDurationStore store = new TestDurationStore(createLogFile());
+    store.record("/app/test/a_test.dart", "a", 100);
+    store.record("/app/test/b_test.dart", "b", 400);
+    store.record("/app/test/c_test.dart", "c", 300);
+    store.record("/app/test/d_test.dart", "d", 200);
+
+    final List<String> paths =
+      List.of("/app/test/a_test.dart", "/app/test/b_test.dart", "/app/test/c_test.dart", "/app/test/d_test.dart",
+              "/app/test/new_test.dart");
+    assertEquals(List.of("/app/test/b_test.dart", "/app/test/c_test.dart", "/app/test/d_test.dart", "/app/test/a_test.dart",
+                         "/app/test/new_test.dart"),
+                 store.sortSlowestFirst(paths));
+
+    // The new suite is expected to take the average, 250 ms.
+    assertEquals(List.of(List.of("/app/test/b_test.dart", "/app/test/d_test.dart"),
+                         List.of("/app/test/c_test.dart", "/app/test/new_test.dart", "/app/test/a_test.dart")),
+                 store.planShards(paths, 2));
+    assertEquals(2, store.planShards(paths.subList(0, 2), 4).size());
+  }
+
+  @Test
+  public void describesSlowRuns() {
+    final TestDurationStore.Stats usual = new TestDurationStore.Stats(10, 200, 300);
+    assertNull(TestDurationStore.describeSlowRun(null, 1000));
+    assertNull(TestDurationStore.describeSlowRun(new TestDurationStore.Stats(2, 200, 300), 1000));
+    assertNull(TestDurationStore.describeSlowRun(usual, 350));
+    assertNull(TestDurationStore.describeSlowRun(new TestDurationStore.Stats(10, 10, 15), 90));
+    assertEquals("Slower than usual: took 1000 ms; p50 200 ms, p95 300 ms over the last 10 runs\n",
+                 TestDurationStore.describeSlowRun(usual, 1000));
+  }
+}
@@ -9,6 +9,8 @@ import io.flutter.run.test.TestFields.Scope;
 import org.jdom.Element;
 import org.junit.Test;
 
+import java.util.Collections;
+
 import static org.junit.Assert.*;
 
 /**
@@ -98,6 +100,38 @@ public class TestFieldsTest {
     assertEquals("test/dir", after.getTestDir());
   }
 
+  @Test
+  public void roundTripShouldPreserveShardCount() {
+    final Element elt = new Element("test");
+    final TestFields before = TestFields.forDir("test/dir");
+    before.setShardCount(8);
+    before.writeTo(elt);
+
+    final TestFields after = TestFields.readFrom(elt);
+    assertEquals(Scope.DIRECTORY, after.getScope());
+    assertEquals(8, after.getShardCount());
+    assertEquals(1, TestFields.forDir("test/dir").getShardCount());
+  }
+
+  @Test
+  public void roundTripShouldPreserveAffectedOnly() {
+    final Element elt = new Element("test");
+    final TestFields before = TestFields.forDir("test/dir");
+    before.setAffectedOnly(true);
+    before.writeTo(elt);
+
+    final TestFields after = TestFields.readFrom(elt);
+    assertTrue(after.isAffectedOnly());
+    assertFalse(TestFields.forDir("test/dir").isAffectedOnly());
+  }
+
+  @Test
+  public void shouldOnlyListFilesThatFitOnCommandLine() {
+    final String path = "/app/test/" + "a".repeat(90) + "_test.dart";
+    assertTrue(TestFields.fitsCommandLine(Collections.nCopies(10, path)));
+    assertFalse(TestFields.fitsCommandLine(Collections.nCopies(TestFields.MAX_TARGET_CHARS / path.length(), path)));
+  }
+
   private void addOption(Element elt, String name, String value) {
     final Element child = new Element("option");
     child.setAttribute("name", name);
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2025 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.run.test;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestImpactIndexTest {
+  private static boolean isTest(String path) {
+    return path.startsWith("/app/test/") && path.endsWith("_test.dart");
+  }
+
+  @Test
+  public void findsDirectiveUris() {
+    final String source = """
+      library app;
+
+      import 'dart:async';
+      import "package:app/src/model.dart" as model show Model;
+      export 'src/view.dart';
+      import 'src/io_stub.dart'
+          if (dart.library.io) 'src/io.dart';
+      part 'app.g.dart';
+      part of 'other.dart';
+      // import 'commented.dart' isn't at the start of a line
+      """;
+    assertEquals(List.of("package:app/src/model.dart", "src/view.dart", "src/io_stub.dart", "src/io.dart", "app.g.dart"),
+                 TestImpactIndex.findDirectiveUris(source));
+  }
+
+  @Test
+  public void findsTestsDependingOnChangedFiles() {
+    final TestImpactIndex index = new TestImpactIndex();
+    index.update("/app/lib/model.dart", List.of());
+    index.update("/app/lib/view.dart", List.of("/app/lib/model.dart"));
+    index.update("/app/lib/other.dart", List.of());
+    index.update("/app/test/view_test.dart", List.of("/app/lib/view.dart"));
+    index.update("/app/test/model_test.dart", List.of("/app/lib/model.dart"));
+    index.update("/app/test/other_test.dart", List.of("/app/lib/other.dart"));
+
+    assertEquals(Set.of("/app/test/model_test.dart", "/app/test/view_test.dart"),
+                 index.findAffectedTests(List.of("/app/lib/model.dart"), TestImpactIndexTest::isTest));
+    assertEquals(Set.of("/app/test/other_test.dart"),
+                 index.findAffectedTests(List.of("/app/test/other_test.dart"), TestImpactIndexTest::isTest));
+
+    // The view no longer uses the model.
+    index.update("/app/lib/view.dart", List.of("/app/lib/other.dart"));
+    assertEquals(Set.of("/app/test/model_test.dart"),
+                 index.findAffectedTests(List.of("/app/lib/model.dart"), TestImpactIndexTest::isTest));
+
+    index.remove("/app/test/model_test.dart");
+    assertEquals(Set.of(), index.findAffectedTests(List.of("/app/lib/model.dart"), TestImpactIndexTest::isTest));
+  }
+}
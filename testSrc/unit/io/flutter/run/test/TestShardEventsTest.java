@@ -0,0 +1,74 @@
+/*
+ * Copyright 2025 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.run.test;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestShardEventsTest {
+  private final TestShardEvents events = new TestShardEvents(4, false);
+
+  @Test
+  public void remapsIdsPerShard() {
+    final String group =
+      "{\"group\":{\"id\":2,\"suiteID\":0,\"parentID\":null,\"name\":\"\",\"testCount\":3},\"type\":\"group\",\"time\":5}\n";
+    assertEquals(
+      "{\"group\":{\"id\":10,\"suiteID\":2,\"parentID\":null,\"name\":\"\",\"testCount\":3},\"type\":\"group\",\"time\":5}\n",
+      events.remapIds(group, 2));
+
+    final String testStart = "{\"test\":{\"id\":3,\"name\":\"a\",\"suiteID\":0,\"groupIDs\":[2,1],\"line\":7},\"type\":\"testStart\"}\n";
+    assertEquals("{\"test\":{\"id\":13,\"name\":\"a\",\"suiteID\":1,\"groupIDs\":[9,5],\"line\":7},\"type\":\"testStart\"}\n",
+                 events.remapIds(testStart, 1));
+  }
+
+  @Test
+  public void leavesTextAndOtherLinesAlone() {
+    final String print = "{\"testID\":3,\"message\":\"{\\\"id\\\":1}\",\"type\":\"print\"}\n";
+    assertEquals("{\"testID\":15,\"message\":\"{\\\"id\\\":1}\",\"type\":\"print\"}\n", events.remapIds(print, 3));
+
+    final String array = "[{\"event\":\"test.startedProcess\",\"params\":{\"vmServiceUri\":\"http://127.0.0.1:1/\",\"id\":1}}]\n";
+    assertEquals(array, events.remapIds(array, 3));
+  }
+
+  @Test
+  public void mergesSuitesAndGroupsAcrossShards() {
+    final TestShardEvents shared = new TestShardEvents(2, true);
+    final String suite = "{\"suite\":{\"id\":0,\"platform\":\"vm\",\"path\":\"/app/test/a_test.dart\"},\"type\":\"suite\",\"time\":0}\n";
+    final String root = "{\"group\":{\"id\":2,\"suiteID\":0,\"parentID\":null,\"name\":\"\",\"testCount\":2},\"type\":\"group\"}\n";
+    final String math = "{\"group\":{\"id\":3,\"suiteID\":0,\"parentID\":2,\"name\":\"math\",\"testCount\":2},\"type\":\"group\"}\n";
+
+    assertEquals(suite, shared.remapIds(suite, 0));
+    assertEquals("{\"group\":{\"id\":4,\"suiteID\":0,\"parentID\":null,\"name\":\"\",\"testCount\":0},\"type\":\"group\"}\n",
+                 shared.remapIds(root, 0));
+    assertEquals("{\"group\":{\"id\":6,\"suiteID\":0,\"parentID\":4,\"name\":\"math\",\"testCount\":0},\"type\":\"group\"}\n",
+                 shared.remapIds(math, 0));
+
+    // The second shard reports the same suite and groups, with other ids; its tests join the first shard's groups.
+    assertNull(shared.remapIds(suite.replace("\"id\":0", "\"id\":1"), 1));
+    assertNull(shared.remapIds(root.replace("\"id\":2", "\"id\":3").replace("\"suiteID\":0", "\"suiteID\":1"), 1));
+    assertNull(shared.remapIds(math.replace("\"id\":3", "\"id\":5").replace("\"suiteID\":0", "\"suiteID\":1")
+                                 .replace("\"parentID\":2", "\"parentID\":3"), 1));
+    assertEquals("{\"test\":{\"id\":13,\"name\":\"math adds\",\"suiteID\":0,\"groupIDs\":[4,6]},\"type\":\"testStart\"}\n",
+                 shared.remapIds("{\"test\":{\"id\":6,\"name\":\"math adds\",\"suiteID\":1,\"groupIDs\":[3,5]},\"type\":\"testStart\"}\n", 1));
+
+    // Groups with the same name in the same parent stay apart.
+    final String other = "{\"group\":{\"id\":7,\"suiteID\":0,\"parentID\":2,\"name\":\"math\",\"testCount\":1},\"type\":\"group\"}\n";
+    assertEquals("{\"group\":{\"id\":14,\"suiteID\":0,\"parentID\":4,\"name\":\"math\",\"testCount\":0},\"type\":\"group\"}\n",
+                 shared.remapIds(other, 0));
+  }
+
+  @Test
+  public void recognizesRunEvents() {
+    assertTrue(TestShardEvents.isRunEvent("{\"protocolVersion\":\"0.1.1\",\"pid\":7,\"type\":\"start\",\"time\":0}\n"));
+    assertTrue(TestShardEvents.isRunEvent("{\"success\":true,\"type\":\"done\",\"time\":42}\n"));
+    assertFalse(TestShardEvents.isRunEvent("{\"testID\":1,\"result\":\"success\",\"type\":\"testDone\",\"time\":3}\n"));
+    assertFalse(TestShardEvents.isRunEvent("{\"testID\":1,\"message\":\"\\\"type\\\":\\\"done\\\"\",\"type\":\"print\"}\n"));
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2025 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.test;
+
+import com.intellij.execution.executors.DefaultRunExecutor;
+import com.intellij.execution.process.ProcessOutputTypes;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.jetbrains.lang.dart.util.DartUrlResolverImpl;
+import io.flutter.run.test.FlutterTestConfigType;
+import io.flutter.run.test.FlutterTestConsoleProperties;
+import io.flutter.run.test.TestConfig;
+import io.flutter.testing.ProjectFixture;
+import io.flutter.testing.TestDir;
+import io.flutter.testing.Testing;
+import io.flutter.utils.OpenApiUtils;
+import jetbrains.buildServer.messages.serviceMessages.DefaultServiceMessageVisitor;
+import jetbrains.buildServer.messages.serviceMessages.TestSuiteFinished;
+import jetbrains.buildServer.messages.serviceMessages.TestSuiteStarted;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class DartTestEventsConverterZTest {
+  @Rule
+  public ProjectFixture fixture = Testing.makeEmptyProject();
+
+  @Rule
+  public TestDir tmp = new TestDir();
+
+  private final List<String> visibleTests = new ArrayList<>();
+  private final List<String> suiteEvents = new ArrayList<>();
+
+  private final DefaultServiceMessageVisitor visitor = new DefaultServiceMessageVisitor() {
+    @Override
+    public void visitTestSuiteStarted(@NotNull TestSuiteStarted suiteStarted) {
+      suiteEvents.add("started " + suiteStarted.getSuiteName());
+    }
+
+    @Override
+    public void visitTestSuiteFinished(@NotNull TestSuiteFinished suiteFinished) {
+      suiteEvents.add("finished " + suiteFinished.getSuiteName());
+    }
+  };
+
+  @Test
+  public void hidesTearDownAllThatStartsAfterItsGroupIsDone() throws Exception {
+    final DartTestEventsConverterZ converter = createConverter();
+    for (String line : Files.readAllLines(Path.of("testSrc/unit/io/flutter/test/set_up_all_events.json"))) {
+      converter.processServiceMessages(line, ProcessOutputTypes.STDOUT, visitor);
+    }
+
+    assertEquals(List.of("adds", "subtracts"), visibleTests);
+    assertEquals(List.of("started math_test.dart", "started math", "finished math", "finished math_test.dart"), suiteEvents);
+  }
+
+  @NotNull
+  private DartTestEventsConverterZ createConverter() throws Exception {
+    final VirtualFile contextFile = tmp.writeFile("app/test/math_test.dart", "");
+    final TestConfig config = (TestConfig)FlutterTestConfigType.getInstance().getConfigurationFactories()[0]
+      .createTemplateConfiguration(fixture.getProject());
+    final FlutterTestConsoleProperties properties =
+      new FlutterTestConsoleProperties(config, DefaultRunExecutor.getRunExecutorInstance());
+
+    final DartTestEventsConverterZ[] converter = new DartTestEventsConverterZ[1];
+    OpenApiUtils.safeRunReadAction(() -> {
+      converter[0] = new DartTestEventsConverterZ("FlutterTestRunner", properties,
+                                                  new DartUrlResolverImpl(fixture.getProject(), contextFile)) {
+        @Override
+        protected void preprocessTestStart(@NotNull DartTestEventsConverterZ.Test test) {
+          visibleTests.add(test.getBaseName());
+        }
+      };
+    });
+    return converter[0];
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2025 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ByteRingBufferTest {
+  @Test
+  public void keepsTextUnderCapacity() {
+    final ByteRingBuffer buffer = new ByteRingBuffer(16);
+    assertTrue(buffer.isEmpty());
+    buffer.append("abc");
+    buffer.append("def\n");
+    assertEquals("abcdef\n", buffer.toString());
+    assertEquals(7, buffer.size());
+  }
+
+  @Test
+  public void keepsMostRecentBytes() {
+    final ByteRingBuffer buffer = new ByteRingBuffer(8);
+    buffer.append("12345");
+    buffer.append("67890");
+    assertEquals("34567890", buffer.toString());
+    buffer.append("ab");
+    assertEquals("567890ab", buffer.toString());
+  }
+
+  @Test
+  public void keepsTailOfLargeChunk() {
+    final ByteRingBuffer buffer = new ByteRingBuffer(4);
+    buffer.append("x");
+    buffer.append("abcdefgh");
+    assertEquals("efgh", buffer.toString());
+    assertEquals(4, buffer.size());
+  }
+
+  @Test
+  public void skipsTruncatedCharacter() {
+    final ByteRingBuffer buffer = new ByteRingBuffer(4);
+    // "é" is two bytes in UTF-8; only its second byte fits.
+    buffer.append("é123");
+    assertEquals("123", buffer.toString());
+  }
+
+  @Test
+  public void canClear() {
+    final ByteRingBuffer buffer = new ByteRingBuffer(4);
+    buffer.append("abc");
+    buffer.clear();
+    assertTrue(buffer.isEmpty());
+    assertEquals("", buffer.toString());
+  }
+}
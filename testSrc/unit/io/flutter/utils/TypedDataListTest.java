@@ -7,6 +7,8 @@ package io.flutter.utils;
 
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
+
 import static io.flutter.utils.TypedDataList.*;
 import static org.junit.Assert.assertEquals;
 
@@ -110,4 +112,37 @@ public class TypedDataListTest {
     Float64List list = new Float64List(bytes);
     assertEquals("1.0", list.getValue(0));
   }
+
+  @Test
+  public void testViewOfBufferSlice() {
+    ByteBuffer buffer = ByteBuffer.wrap(signedBytes);
+    buffer.position(4);
+    Int16List list = new Int16List(buffer);
+    assertEquals(6, list.size());
+    assertEquals("-765", list.getValue(0));
+    assertEquals(12, list.getByteLength());
+  }
+
+  @Test
+  public void testFormat() {
+    StringBuilder out = new StringBuilder();
+    new Uint8List(signedBytes).format(0, 4, ", ", out);
+    assertEquals("0x1, 0xff, 0x2, 0xfe", out.toString());
+
+    out.setLength(0);
+    new Int8List(signedBytes).format(2, 3, ", ", out);
+    assertEquals("2", out.toString());
+  }
+
+  @Test
+  public void testHexDump() {
+    byte[] bytes = new byte[20];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte)(0x3c + i);
+    }
+    StringBuilder out = new StringBuilder();
+    new Uint8List(bytes).appendHexDump(0x100, out);
+    assertEquals("00000100  3c 3d 3e 3f 40 41 42 43  44 45 46 47 48 49 4a 4b  |<=>?@ABCDEFGHIJK|\n" +
+                 "00000110  4c 4d 4e 4f                                       |LMNO|", out.toString());
+  }
 }
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2025 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.vmService;
+
+import com.google.gson.JsonObject;
+import org.dartlang.vm.service.consumer.GetObjectConsumer;
+import org.dartlang.vm.service.element.Instance;
+import org.dartlang.vm.service.element.Obj;
+import org.dartlang.vm.service.element.RPCError;
+import org.dartlang.vm.service.element.Sentinel;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class ObjectRequestCacheTest {
+  private ObjectRequestCache cache;
+  private List<GetObjectConsumer> sent;
+  private List<String> received;
+
+  @Before
+  public void setUp() {
+    cache = new ObjectRequestCache();
+    sent = new ArrayList<>();
+    received = new ArrayList<>();
+    cache.isolatePaused("isolates/1");
+    cache.isolatePaused("isolates/2");
+  }
+
+  @Test
+  public void sharesConcurrentRequests() {
+    getObject("isolates/1", "objects/1", "a");
+    getObject("isolates/1", "objects/1", "b");
+    assertEquals(1, sent.size());
+
+    sent.get(0).received(instance("objects/1"));
+    assertEquals(List.of("a: objects/1", "b: objects/1"), received);
+  }
+
+  @Test
+  public void cachesResponsesUntilInvalidated() {
+    getObject("isolates/1", "objects/1", "a");
+    sent.get(0).received(instance("objects/1"));
+    getObject("isolates/1", "objects/1", "b");
+    assertEquals(1, sent.size());
+
+    cache.invalidate("isolates/1");
+    getObject("isolates/1", "objects/1", "c");
+    assertEquals(2, sent.size());
+    assertEquals(List.of("a: objects/1", "b: objects/1"), received);
+  }
+
+  @Test
+  public void invalidatesOnlyTheGivenIsolate() {
+    getObject("isolates/1", "objects/1", "a");
+    getObject("isolates/2", "objects/1", "b");
+    sent.get(0).received(instance("objects/1"));
+    sent.get(1).received(instance("objects/1"));
+
+    cache.invalidate("isolates/2");
+    getObject("isolates/1", "objects/1", "c");
+    getObject("isolates/2", "objects/1", "d");
+    assertEquals(3, sent.size());
+  }
+
+  @Test
+  public void doesNotCacheWhileRunning() {
+    cache.invalidate("isolates/1");
+    getObject("isolates/1", "objects/1", "a");
+    getObject("isolates/1", "objects/1", "b");
+    assertEquals(2, sent.size());
+
+    sent.get(0).received(instance("objects/1"));
+    getObject("isolates/1", "objects/1", "c");
+    assertEquals(3, sent.size());
+    assertEquals(List.of("a: objects/1"), received);
+
+    cache.isolatePaused("isolates/1");
+    getObject("isolates/1", "objects/1", "d");
+    assertEquals(4, sent.size());
+  }
+
+  @Test
+  public void evaluationKeepsProgramStructure() {
+    getObject("isolates/1", "objects/1", "a");
+    getObject("isolates/1", "scripts/1", "b");
+    sent.get(0).received(instance("objects/1"));
+    sent.get(1).received(object("Script", "scripts/1"));
+
+    cache.evaluated("isolates/1");
+    getObject("isolates/1", "objects/1", "c");
+    getObject("isolates/1", "scripts/1", "d");
+    assertEquals(3, sent.size());
+    assertEquals(List.of("a: objects/1", "b: scripts/1", "d: scripts/1"), received);
+  }
+
+  @Test
+  public void distinguishesCollectionRanges() {
+    cache.getObject("isolates/1", "objects/1", 0, 100, sent::add, consumer("a"));
+    cache.getObject("isolates/1", "objects/1", 100, 100, sent::add, consumer("b"));
+    assertEquals(2, sent.size());
+  }
+
+  @Test
+  public void doesNotCacheResponsesForRequestsSentBeforeInvalidation() {
+    getObject("isolates/1", "objects/1", "a");
+    // E.g. the isolate resumed and paused again.
+    cache.isolatePaused("isolates/1");
+    getObject("isolates/1", "objects/1", "b");
+    assertEquals(2, sent.size());
+
+    sent.get(0).received(instance("objects/1"));
+    assertEquals(List.of("a: objects/1"), received);
+
+    getObject("isolates/1", "objects/1", "c");
+    assertEquals(2, sent.size());
+    sent.get(1).received(instance("objects/1"));
+    assertEquals(List.of("a: objects/1", "b: objects/1", "c: objects/1"), received);
+  }
+
+  @Test
+  public void doesNotCacheErrors() {
+    getObject("isolates/1", "objects/1", "a");
+    getObject("isolates/1", "objects/1", "b");
+    final JsonObject error = new JsonObject();
+    error.addProperty("code", 100);
+    error.addProperty("message", "failed");
+    sent.get(0).onError(new RPCError(error));
+    assertEquals(List.of("a: error", "b: error"), received);
+
+    getObject("isolates/1", "objects/1", "c");
+    assertEquals(2, sent.size());
+  }
+
+  private void getObject(@NotNull String isolateId, @NotNull String objectId, @NotNull String name) {
+    cache.getObject(isolateId, objectId, -1, -1, sent::add, consumer(name));
+  }
+
+  @NotNull
+  private GetObjectConsumer consumer(@NotNull String name) {
+    return new GetObjectConsumer() {
+      @Override
+      public void received(Obj response) {
+        received.add(name + ": " + response.getId());
+      }
+
+      @Override
+      public void received(Sentinel response) {
+        received.add(name + ": sentinel");
+      }
+
+      @Override
+      public void onError(RPCError error) {
+        received.add(name + ": error");
+      }
+    };
+  }
+
+  @NotNull
+  private static Instance instance(@NotNull String id) {
+    final JsonObject json = new JsonObject();
+    json.addProperty("type", "Instance");
+    json.addProperty("id", id);
+    return new Instance(json);
+  }
+
+  @NotNull
+  private static Obj object(@NotNull String type, @NotNull String id) {
+    final JsonObject json = new JsonObject();
+    json.addProperty("type", type);
+    json.addProperty("id", id);
+    return new Obj(json);
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2015, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service;
+
+import org.dartlang.vm.service.logging.Logging;
+
+import java.net.http.WebSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Forwards messages received on a {@link java.net.http.WebSocket} to a {@link VmService}.
+ * <p>
+ * A message may arrive in several fragments. The fragments are kept, rather than copied, until the whole message has
+ * been received and processed; the {@link CompletionStage} returned for each fragment tells the socket when it may
+ * reuse the fragment's buffer.
+ */
+class HttpClientWebSocketListener implements WebSocket.Listener {
+  /**
+   * The number of characters of each message to include in the log.
+   */
+  private static final int MAX_LOGGED_LENGTH = 300;
+
+  private final String url;
+  private final VmServiceBase vmService;
+
+  private final List<CharSequence> fragments = new ArrayList<>();
+  private CompletableFuture<Void> fragmentsProcessed = new CompletableFuture<>();
+
+  HttpClientWebSocketListener(String url, VmServiceBase vmService) {
+    this.url = url;
+    this.vmService = vmService;
+  }
+
+  @Override
+  public void onOpen(WebSocket webSocket) {
+    vmService.connectionOpened();
+
+    Logging.getLogger().logInformation("VM connection open: " + url);
+    webSocket.request(1);
+  }
+
+  @Override
+  public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+    webSocket.request(1);
+
+    if (!last) {
+      fragments.add(data);
+      return fragmentsProcessed;
+    }
+
+    if (fragments.isEmpty()) {
+      processMessage(List.of(data));
+      return null;
+    }
+
+    fragments.add(data);
+    try {
+      processMessage(fragments);
+    }
+    finally {
+      fragments.clear();
+      fragmentsProcessed.complete(null);
+      fragmentsProcessed = new CompletableFuture<>();
+    }
+    return null;
+  }
+
+  @Override
+  public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+    Logging.getLogger().logInformation("VM connection closed: " + url);
+
+    vmService.connectionClosed();
+    return null;
+  }
+
+  @Override
+  public void onError(WebSocket webSocket, Throwable error) {
+    Logging.getLogger().logError("VM connection failed: " + url, error);
+
+    vmService.connectionClosed();
+  }
+
+  private void processMessage(List<CharSequence> message) {
+    final CharSequence first = message.get(0);
+    Logging.getLogger().logInformation("VM message: " + first.subSequence(0, Math.min(first.length(), MAX_LOGGED_LENGTH)));
+    try {
+      vmService.processMessage(message);
+    }
+    catch (Exception e) {
+      Logging.getLogger().logError(e.getMessage(), e);
+    }
+  }
+}
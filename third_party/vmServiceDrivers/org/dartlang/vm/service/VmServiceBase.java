@@ -23,6 +23,9 @@ import de.roderick.weberknecht.WebSocketException;
 import de.roderick.weberknecht.WebSocketMessage;
 import org.dartlang.vm.service.consumer.*;
 import org.dartlang.vm.service.element.*;
+import org.dartlang.vm.service.internal.CharSequenceReader;
+import org.dartlang.vm.service.internal.HttpClientWebSocketRequestSink;
+import org.dartlang.vm.service.internal.JsonScanner;
 import org.dartlang.vm.service.internal.RequestSink;
 import org.dartlang.vm.service.internal.VmServiceConst;
 import org.dartlang.vm.service.internal.WebSocketRequestSink;
@@ -31,9 +34,16 @@ import org.dartlang.vm.service.logging.Logging;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.ArrayList;
+import java.net.http.HttpClient;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -49,18 +59,7 @@ abstract class VmServiceBase implements VmServiceConst {
    * @return an API object for interacting with the VM service (not {@code null}).
    */
   public static VmService connect(final String url) throws IOException {
-    // Validate URL
-    URI uri;
-    try {
-      uri = new URI(url);
-    }
-    catch (URISyntaxException e) {
-      throw new IOException("Invalid URL: " + url, e);
-    }
-    String wsScheme = uri.getScheme();
-    if (!"ws".equals(wsScheme) && !"wss".equals(wsScheme)) {
-      throw new IOException("Unsupported URL scheme: " + wsScheme);
-    }
+    URI uri = validateUrl(url);
 
     // Create web socket and observatory
     WebSocket webSocket;
@@ -157,6 +156,97 @@ abstract class VmServiceBase implements VmServiceConst {
     return vmService;
   }
 
+  /**
+   * Connect to the VM observatory service via the specified URI without blocking the calling thread.
+   * <p>
+   * Unlike {@link #connect}, this uses a {@link java.net.http.WebSocket}. All connections share one
+   * {@link HttpClient}, and so one selector thread, and received messages are parsed without being
+   * copied into a single string.
+   *
+   * @return a future that completes with an API object for interacting with the VM service once the
+   * protocol version is known, or completes exceptionally with an {@link IOException}.
+   */
+  public static CompletableFuture<VmService> connectAsync(final String url) {
+    final URI uri;
+    try {
+      uri = validateUrl(url);
+    }
+    catch (IOException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+
+    final VmService vmService = new VmService();
+    return getHttpClient().newWebSocketBuilder()
+      .buildAsync(uri, new HttpClientWebSocketListener(url, vmService))
+      .handle((webSocket, error) -> {
+        if (error != null) {
+          throw new CompletionException(new IOException("Failed to connect: " + url, unwrap(error)));
+        }
+        vmService.requestSink = new HttpClientWebSocketRequestSink(webSocket);
+        return vmService;
+      })
+      .thenCompose(VmServiceBase::checkVersion)
+      .whenComplete((service, error) -> {
+        if (error != null && vmService.requestSink != null) {
+          vmService.requestSink.close();
+        }
+      });
+  }
+
+  private static CompletableFuture<VmService> checkVersion(VmService vmService) {
+    final CompletableFuture<VmService> result = new CompletableFuture<>();
+    vmService.getVersion(new VersionConsumer() {
+      @Override
+      public void onError(RPCError error) {
+        String msg = "Failed to determine protocol version: " + error.getCode() + "\n  message: "
+                     + error.getMessage() + "\n  details: " + error.getDetails();
+        Logging.getLogger().logInformation(msg);
+        result.completeExceptionally(new IOException(msg));
+      }
+
+      @Override
+      public void received(Version version) {
+        vmService.runtimeVersion = version;
+
+        result.complete(vmService);
+      }
+    });
+
+    return result.orTimeout(5, TimeUnit.SECONDS).handle((service, error) -> {
+      if (error == null) {
+        return service;
+      }
+      error = unwrap(error);
+      throw new CompletionException(error instanceof IOException ? error : new IOException("Failed to determine protocol version", error));
+    });
+  }
+
+  private static Throwable unwrap(Throwable error) {
+    return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+  }
+
+  private static synchronized HttpClient getHttpClient() {
+    if (httpClient == null) {
+      httpClient = HttpClient.newHttpClient();
+    }
+    return httpClient;
+  }
+
+  private static URI validateUrl(String url) throws IOException {
+    URI uri;
+    try {
+      uri = new URI(url);
+    }
+    catch (URISyntaxException e) {
+      throw new IOException("Invalid URL: " + url, e);
+    }
+    String wsScheme = uri.getScheme();
+    if (!"ws".equals(wsScheme) && !"wss".equals(wsScheme)) {
+      throw new IOException("Unsupported URL scheme: " + wsScheme);
+    }
+    return uri;
+  }
+
   /**
    * Connect to the VM observatory service on the given local port.
    *
@@ -169,15 +259,23 @@ abstract class VmServiceBase implements VmServiceConst {
   }
 
   /**
-   * A mapping between {@link String} ids' and the associated {@link Consumer} that was passed when
-   * the request was made. Synchronize against {@link #consumerMapLock} before accessing this field.
+   * The client shared by all connections made with {@link #connectAsync}.
+   */
+  private static HttpClient httpClient;
+
+  private static final VmServiceListener[] NO_LISTENERS = new VmServiceListener[0];
+
+  /**
+   * The length of message above which the extension data of an Extension event is kept as text, and only parsed
+   * when it's asked for; see {@link DeferredExtensionEvent}.
    */
-  private final Map<String, Consumer> consumerMap = Maps.newHashMap();
+  static final int DEFERRED_EXTENSION_DATA_LENGTH = 32 * 1024;
 
   /**
-   * The object used to synchronize access to {@link #consumerMap}.
+   * A mapping between request ids and the associated {@link Consumer} that was passed when
+   * the request was made.
    */
-  private final Object consumerMapLock = new Object();
+  private final Map<Integer, Consumer> consumerMap = new ConcurrentHashMap<>();
 
   /**
    * The unique ID for the next request.
@@ -185,9 +283,21 @@ abstract class VmServiceBase implements VmServiceConst {
   private final AtomicInteger nextId = new AtomicInteger();
 
   /**
-   * A list of objects to which {@link Event}s from the VM are forwarded.
+   * The objects to which {@link Event}s from every stream are forwarded. The array is replaced rather than modified,
+   * so events can be dispatched without locking or copying; synchronize against {@link #listenersLock} to replace it.
    */
-  private final List<VmServiceListener> vmListeners = new ArrayList<>();
+  private volatile VmServiceListener[] vmListeners = NO_LISTENERS;
+
+  /**
+   * The objects to which {@link Event}s from a single stream are forwarded, keyed by stream id. As with
+   * {@link #vmListeners}, the arrays are replaced rather than modified.
+   */
+  private final Map<String, VmServiceListener[]> streamListeners = new ConcurrentHashMap<>();
+
+  /**
+   * The object used to synchronize changes to {@link #vmListeners} and {@link #streamListeners}.
+   */
+  private final Object listenersLock = new Object();
 
   /**
    * A list of objects to which {@link Event}s from the VM are forwarded.
@@ -202,17 +312,69 @@ abstract class VmServiceBase implements VmServiceConst {
   Version runtimeVersion;
 
   /**
-   * Add a listener to receive {@link Event}s from the VM.
+   * Add a listener to receive {@link Event}s from all streams of the VM.
    */
   public void addVmServiceListener(VmServiceListener listener) {
-    vmListeners.add(listener);
+    synchronized (listenersLock) {
+      vmListeners = appendListener(vmListeners, listener);
+    }
   }
 
   /**
-   * Remove the given listener from the VM.
+   * Add a listener to receive {@link Event}s from the given stream of the VM. The listener is also notified when the
+   * connection is opened or closed, once regardless of how many streams it's added for.
+   */
+  public void addVmServiceListener(String streamId, VmServiceListener listener) {
+    synchronized (listenersLock) {
+      streamListeners.put(streamId, appendListener(streamListeners.getOrDefault(streamId, NO_LISTENERS), listener));
+    }
+  }
+
+  /**
+   * Remove the given listener from the VM, for all the streams it was added for.
    */
   public void removeVmServiceListener(VmServiceListener listener) {
-    vmListeners.remove(listener);
+    synchronized (listenersLock) {
+      vmListeners = removeListener(vmListeners, listener);
+      for (Map.Entry<String, VmServiceListener[]> entry : streamListeners.entrySet()) {
+        final VmServiceListener[] remaining = removeListener(entry.getValue(), listener);
+        if (remaining.length == 0) {
+          streamListeners.remove(entry.getKey());
+        }
+        else {
+          entry.setValue(remaining);
+        }
+      }
+    }
+  }
+
+  private static VmServiceListener[] appendListener(VmServiceListener[] listeners, VmServiceListener listener) {
+    final VmServiceListener[] result = Arrays.copyOf(listeners, listeners.length + 1);
+    result[listeners.length] = listener;
+    return result;
+  }
+
+  private static VmServiceListener[] removeListener(VmServiceListener[] listeners, VmServiceListener listener) {
+    for (int i = 0; i < listeners.length; i++) {
+      if (listeners[i].equals(listener)) {
+        final VmServiceListener[] result = new VmServiceListener[listeners.length - 1];
+        System.arraycopy(listeners, 0, result, 0, i);
+        System.arraycopy(listeners, i + 1, result, i, listeners.length - i - 1);
+        return result;
+      }
+    }
+    return listeners;
+  }
+
+  /**
+   * Returns every registered listener once, whichever streams it was added for.
+   */
+  private Collection<VmServiceListener> getAllListeners() {
+    final Set<VmServiceListener> result = new LinkedHashSet<>(Arrays.asList(vmListeners));
+    for (VmServiceListener[] listeners : streamListeners.values()) {
+      result.addAll(Arrays.asList(listeners));
+    }
+    return result;
   }
 
   /**
@@ -328,25 +490,23 @@ abstract class VmServiceBase implements VmServiceConst {
   protected void request(String method, JsonObject params, Consumer consumer) {
 
     // Assemble the request
-    String id = Integer.toString(nextId.incrementAndGet());
+    int id = nextId.incrementAndGet();
     JsonObject request = new JsonObject();
 
     request.addProperty(JSONRPC, JSONRPC_VERSION);
-    request.addProperty(ID, id);
+    request.addProperty(ID, Integer.toString(id));
     request.addProperty(METHOD, method);
     request.add(PARAMS, params);
 
     // Cache the consumer to receive the response
-    synchronized (consumerMapLock) {
-      consumerMap.put(id, consumer);
-    }
+    consumerMap.put(id, consumer);
 
     // Send the request
     requestSink.add(request);
   }
 
   public void connectionOpened() {
-    for (VmServiceListener listener : new ArrayList<>(vmListeners)) {
+    for (VmServiceListener listener : getAllListeners()) {
       try {
         listener.connectionOpened();
       }
@@ -357,7 +517,16 @@ abstract class VmServiceBase implements VmServiceConst {
   }
 
   private void forwardEvent(String streamId, Event event) {
-    for (VmServiceListener listener : new ArrayList<>(vmListeners)) {
+    forwardEvent(vmListeners, streamId, event);
+
+    final VmServiceListener[] listeners = streamListeners.get(streamId);
+    if (listeners != null) {
+      forwardEvent(listeners, streamId, event);
+    }
+  }
+
+  private static void forwardEvent(VmServiceListener[] listeners, String streamId, Event event) {
+    for (VmServiceListener listener : listeners) {
       try {
         listener.received(streamId, event);
       }
@@ -368,7 +537,7 @@ abstract class VmServiceBase implements VmServiceConst {
   }
 
   public void connectionClosed() {
-    for (VmServiceListener listener : new ArrayList<>(vmListeners)) {
+    for (VmServiceListener listener : getAllListeners()) {
       try {
         listener.connectionClosed();
       }
@@ -400,6 +569,10 @@ abstract class VmServiceBase implements VmServiceConst {
       return;
     }
 
+    if (jsonText.length() >= DEFERRED_EXTENSION_DATA_LENGTH && processMessageDeferringExtensionData(jsonText)) {
+      return;
+    }
+
     // Decode the JSON
     JsonObject json;
     try {
@@ -410,6 +583,84 @@ abstract class VmServiceBase implements VmServiceConst {
       return;
     }
 
+    processMessage(json);
+  }
+
+  /**
+   * Processes a large Extension event without parsing its extension data, which is often a big tree that the client
+   * only looks at part of, if at all.
+   *
+   * @return false if the message isn't such an event, and should be parsed as usual
+   */
+  private boolean processMessageDeferringExtensionData(String jsonText) {
+    final JsonObject json;
+    final String extensionDataText;
+    try {
+      final int params = JsonScanner.findMember(jsonText, 0, PARAMS);
+      final int event = params < 0 ? -1 : JsonScanner.findMember(jsonText, params, EVENT);
+      final int start = event < 0 ? -1 : JsonScanner.findMember(jsonText, event, "extensionData");
+      if (start < 0 || jsonText.charAt(start) != '{') {
+        return false;
+      }
+      final int end = JsonScanner.skipValue(jsonText, start);
+
+      // Parse the rest of the message with an empty object in place of the extension data.
+      json = (JsonObject)JsonParser.parseString(jsonText.substring(0, start) + "{}" + jsonText.substring(end));
+      if (json.has(ID) || !json.has(METHOD) || !"streamNotify".equals(json.get(METHOD).getAsString())) {
+        return false;
+      }
+      extensionDataText = jsonText.substring(start, end);
+    }
+    catch (Exception e) {
+      return false;
+    }
+
+    processNotification(json, extensionDataText);
+    return true;
+  }
+
+  /**
+   * Process a response from the VM service that was received in one or more fragments.
+   */
+  void processMessage(List<? extends CharSequence> fragments) {
+    if (fragments.isEmpty() || (fragments.size() == 1 && fragments.get(0).length() == 0)) {
+      return;
+    }
+
+    // Large Extension events are worth joining into one string, so that their extension data can be kept as text.
+    if (isExtensionEvent(fragments.get(0))) {
+      int length = 0;
+      for (CharSequence fragment : fragments) {
+        length += fragment.length();
+      }
+      if (length >= DEFERRED_EXTENSION_DATA_LENGTH) {
+        processMessage(fragments.size() == 1 ? fragments.get(0).toString() : String.join("", fragments));
+        return;
+      }
+    }
+
+    // Decode the JSON
+    JsonObject json;
+    try {
+      json = (JsonObject)JsonParser.parseReader(new CharSequenceReader(fragments));
+    }
+    catch (Exception e) {
+      Logging.getLogger().logError("Parse message failed: " + String.join("", fragments), e);
+      return;
+    }
+
+    processMessage(json);
+  }
+
+  /**
+   * Whether a message that starts with the given text looks like an event on the Extension stream.
+   */
+  private static boolean isExtensionEvent(CharSequence start) {
+    final String head = start.subSequence(0, Math.min(start.length(), 256)).toString();
+    return head.contains("\"streamNotify\"") && head.contains("\"Extension\"");
+  }
+
+  private void processMessage(JsonObject json) {
     if (json.has("method")) {
       if (!json.has(PARAMS)) {
         final String message = "Missing " + PARAMS;
@@ -544,6 +795,13 @@ abstract class VmServiceBase implements VmServiceConst {
     };
 
   void processNotification(JsonObject json) {
+    processNotification(json, null);
+  }
+
+  /**
+   * @param extensionDataText the text of the event's extension data, if it was left out of the JSON
+   */
+  private void processNotification(JsonObject json, String extensionDataText) {
     String method;
     try {
       method = json.get(METHOD).getAsString();
@@ -571,7 +829,8 @@ abstract class VmServiceBase implements VmServiceConst {
       }
       Event event;
       try {
-        event = new Event(params.get(EVENT).getAsJsonObject());
+        final JsonObject eventJson = params.get(EVENT).getAsJsonObject();
+        event = extensionDataText == null ? new Event(eventJson) : new DeferredExtensionEvent(eventJson, extensionDataText);
       }
       catch (Exception e) {
         Logging.getLogger().logError("Event missing " + EVENT, e);
@@ -615,7 +874,13 @@ abstract class VmServiceBase implements VmServiceConst {
       Logging.getLogger().logError("Response missing " + ID, e);
       return;
     }
-    Consumer consumer = consumerMap.remove(id);
+    Consumer consumer = null;
+    try {
+      consumer = consumerMap.remove(Integer.parseInt(id));
+    }
+    catch (NumberFormatException e) {
+      // Not an id that was sent by this client.
+    }
     if (consumer == null) {
       Logging.getLogger().logError("No consumer associated with " + ID + ": " + id);
       return;
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2015, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service.element;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * An Extension {@link Event} whose extension data was large enough that it was kept as JSON text when the event was
+ * received, and is only parsed the first time {@link #getExtensionData()} is called.
+ * <p>
+ * Clients that can read the data from its text, such as structured error views, can use
+ * {@link #getExtensionDataText()} to avoid building a tree for it at all. The event's own JSON has an empty object in
+ * place of the extension data.
+ */
+public class DeferredExtensionEvent extends Event {
+  private final String extensionDataText;
+
+  private volatile ExtensionData extensionData;
+
+  public DeferredExtensionEvent(JsonObject json, String extensionDataText) {
+    super(json);
+    this.extensionDataText = extensionDataText;
+  }
+
+  /**
+   * The JSON text of the event's extension data, which is always an object.
+   */
+  public String getExtensionDataText() {
+    return extensionDataText;
+  }
+
+  @Override
+  public ExtensionData getExtensionData() {
+    ExtensionData data = extensionData;
+    if (data == null) {
+      synchronized (this) {
+        data = extensionData;
+        if (data == null) {
+          data = new ExtensionData(JsonParser.parseString(extensionDataText).getAsJsonObject());
+          extensionData = data;
+        }
+      }
+    }
+    return data;
+  }
+}
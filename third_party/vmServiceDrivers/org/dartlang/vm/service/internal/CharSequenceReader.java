@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2015, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service.internal;
+
+import java.io.Reader;
+import java.util.List;
+
+/**
+ * A {@link Reader} over a message that was received as one or more {@link CharSequence} fragments, so that it can be
+ * parsed without first being copied into a single {@link String}.
+ */
+public class CharSequenceReader extends Reader {
+  private final List<? extends CharSequence> fragments;
+  private int fragmentIndex;
+  private int offset;
+
+  public CharSequenceReader(List<? extends CharSequence> fragments) {
+    this.fragments = fragments;
+  }
+
+  @Override
+  public int read(char[] buffer, int off, int len) {
+    if (len == 0) {
+      return 0;
+    }
+
+    int count = 0;
+    while (count < len && fragmentIndex < fragments.size()) {
+      final CharSequence fragment = fragments.get(fragmentIndex);
+      final int n = Math.min(len - count, fragment.length() - offset);
+      if (fragment instanceof String) {
+        ((String)fragment).getChars(offset, offset + n, buffer, off + count);
+      }
+      else {
+        for (int i = 0; i < n; i++) {
+          buffer[off + count + i] = fragment.charAt(offset + i);
+        }
+      }
+      count += n;
+      offset += n;
+      if (offset == fragment.length()) {
+        fragmentIndex++;
+        offset = 0;
+      }
+    }
+    return count == 0 ? -1 : count;
+  }
+
+  @Override
+  public void close() {
+  }
+}
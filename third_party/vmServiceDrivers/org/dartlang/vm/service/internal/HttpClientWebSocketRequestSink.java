@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2015, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service.internal;
+
+import com.google.gson.JsonObject;
+import org.dartlang.vm.service.logging.Logging;
+
+import java.net.http.WebSocket;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A {@link java.net.http.WebSocket} based implementation of {@link RequestSink}.
+ * <p>
+ * A {@link WebSocket} allows only one outstanding send at a time, so each request is chained onto the previous one
+ * rather than blocking the caller until it has been written.
+ */
+public class HttpClientWebSocketRequestSink implements RequestSink {
+
+  private WebSocket webSocket;
+
+  /**
+   * Completes when the most recently added request has been sent. Synchronize on this sink before accessing.
+   */
+  private CompletableFuture<?> lastSend = CompletableFuture.completedFuture(null);
+
+  public HttpClientWebSocketRequestSink(WebSocket webSocket) {
+    this.webSocket = webSocket;
+  }
+
+  @Override
+  public synchronized void add(JsonObject json) {
+    final String request = json.toString();
+    final WebSocket socket = webSocket;
+    if (socket == null) {
+      Logging.getLogger().logInformation("Dropped: " + request);
+      return;
+    }
+    Logging.getLogger().logInformation("Sent: " + request);
+    lastSend = lastSend
+      .thenCompose(ignored -> socket.sendText(request, true))
+      .exceptionally(e -> {
+        Logging.getLogger().logError("Failed to send request: " + request, e);
+        return null;
+      });
+  }
+
+  @Override
+  public synchronized void close() {
+    if (webSocket != null) {
+      final WebSocket socket = webSocket;
+      lastSend.thenRun(() -> socket.sendClose(WebSocket.NORMAL_CLOSURE, "").exceptionally(e -> {
+        Logging.getLogger().logError("Failed to close websocket", e);
+        return null;
+      }));
+      webSocket = null;
+    }
+  }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2015, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service.internal;
+
+import com.google.gson.JsonSyntaxException;
+
+import java.util.Arrays;
+
+/**
+ * Finds the extent of values in JSON text without building a tree for them, so that a part of a large document can be
+ * located, and only that part parsed.
+ * <p>
+ * Positions are indexes into the text. Values are checked only as far as needed to find where they end.
+ */
+public final class JsonScanner {
+  /**
+   * Receives the members of an object.
+   */
+  public interface MemberVisitor {
+    /**
+     * Called with a member's name and the extent of its value; returns false to stop visiting.
+     */
+    boolean visit(String name, int valueStart, int valueEnd);
+  }
+
+  private JsonScanner() {
+  }
+
+  /**
+   * Returns the index of the first non-whitespace character at or after the given one.
+   */
+  public static int skipWhitespace(CharSequence text, int index) {
+    while (index < text.length()) {
+      final char c = text.charAt(index);
+      if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+        break;
+      }
+      index++;
+    }
+    return index;
+  }
+
+  /**
+   * Returns the index just past the value that starts at or after the given index.
+   */
+  public static int skipValue(CharSequence text, int index) {
+    index = skipWhitespace(text, index);
+    if (index >= text.length()) {
+      throw malformed(index);
+    }
+    final char first = text.charAt(index);
+    if (first == '"') {
+      return skipString(text, index);
+    }
+    if (first == '{' || first == '[') {
+      int depth = 0;
+      for (int i = index; i < text.length(); i++) {
+        final char c = text.charAt(i);
+        if (c == '"') {
+          i = skipString(text, i) - 1;
+        }
+        else if (c == '{' || c == '[') {
+          depth++;
+        }
+        else if ((c == '}' || c == ']') && --depth == 0) {
+          return i + 1;
+        }
+      }
+      throw malformed(index);
+    }
+
+    // A number, true, false or null.
+    int end = index;
+    while (end < text.length()) {
+      final char c = text.charAt(end);
+      if (c == ',' || c == '}' || c == ']' || c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+        break;
+      }
+      end++;
+    }
+    if (end == index) {
+      throw malformed(index);
+    }
+    return end;
+  }
+
+  /**
+   * Returns the index just past the string whose opening quote is at the given index.
+   */
+  private static int skipString(CharSequence text, int index) {
+    for (int i = index + 1; i < text.length(); i++) {
+      final char c = text.charAt(i);
+      if (c == '\\') {
+        i++;
+      }
+      else if (c == '"') {
+        return i + 1;
+      }
+    }
+    throw malformed(index);
+  }
+
+  /**
+   * Decodes the string whose opening quote is at the given index.
+   */
+  public static String readString(CharSequence text, int index) {
+    if (index >= text.length() || text.charAt(index) != '"') {
+      throw malformed(index);
+    }
+    final int end = skipString(text, index) - 1;
+    final StringBuilder builder = new StringBuilder(end - index - 1);
+    for (int i = index + 1; i < end; i++) {
+      final char c = text.charAt(i);
+      if (c != '\\') {
+        builder.append(c);
+        continue;
+      }
+      final char escaped = text.charAt(++i);
+      switch (escaped) {
+        case 'b' -> builder.append('\b');
+        case 'f' -> builder.append('\f');
+        case 'n' -> builder.append('\n');
+        case 'r' -> builder.append('\r');
+        case 't' -> builder.append('\t');
+        case 'u' -> {
+          if (i + 4 >= end) {
+            throw malformed(i);
+          }
+          try {
+            builder.append((char)Integer.parseInt(text.subSequence(i + 1, i + 5).toString(), 16));
+          }
+          catch (NumberFormatException e) {
+            throw malformed(i);
+          }
+          i += 4;
+        }
+        default -> builder.append(escaped);
+      }
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Calls the visitor with each member of the object that starts at or after the given index, in order.
+   */
+  public static void forEachMember(CharSequence text, int objectStart, MemberVisitor visitor) {
+    int index = expect(text, skipWhitespace(text, objectStart), '{');
+    index = skipWhitespace(text, index);
+    if (index < text.length() && text.charAt(index) == '}') {
+      return;
+    }
+    while (true) {
+      final String name = readString(text, index);
+      index = expect(text, skipWhitespace(text, skipString(text, index)), ':');
+      final int valueStart = skipWhitespace(text, index);
+      final int valueEnd = skipValue(text, valueStart);
+      if (!visitor.visit(name, valueStart, valueEnd)) {
+        return;
+      }
+      index = skipWhitespace(text, valueEnd);
+      if (index < text.length() && text.charAt(index) == '}') {
+        return;
+      }
+      index = skipWhitespace(text, expect(text, index, ','));
+    }
+  }
+
+  /**
+   * Returns the index where the value of the named member of the object that starts at or after the given index
+   * starts, or -1 if the object has no such member.
+   */
+  public static int findMember(CharSequence text, int objectStart, String name) {
+    final int[] result = {-1};
+    forEachMember(text, objectStart, (memberName, valueStart, valueEnd) -> {
+      if (memberName.equals(name)) {
+        result[0] = valueStart;
+        return false;
+      }
+      return true;
+    });
+    return result[0];
+  }
+
+  /**
+   * Returns the indexes where the elements of the array that starts at or after the given index start.
+   */
+  public static int[] elementStarts(CharSequence text, int arrayStart) {
+    int index = expect(text, skipWhitespace(text, arrayStart), '[');
+    index = skipWhitespace(text, index);
+    if (index < text.length() && text.charAt(index) == ']') {
+      return new int[0];
+    }
+    int[] starts = new int[8];
+    int count = 0;
+    while (true) {
+      if (count == starts.length) {
+        starts = Arrays.copyOf(starts, count * 2);
+      }
+      starts[count++] = index;
+      index = skipWhitespace(text, skipValue(text, index));
+      if (index < text.length() && text.charAt(index) == ']') {
+        return Arrays.copyOf(starts, count);
+      }
+      index = skipWhitespace(text, expect(text, index, ','));
+    }
+  }
+
+  /**
+   * Checks that the given character is at the index, and returns the index after it.
+   */
+  private static int expect(CharSequence text, int index, char c) {
+    if (index >= text.length() || text.charAt(index) != c) {
+      throw malformed(index);
+    }
+    return index + 1;
+  }
+
+  private static JsonSyntaxException malformed(int index) {
+    return new JsonSyntaxException("Malformed JSON at offset " + index);
+  }
+}